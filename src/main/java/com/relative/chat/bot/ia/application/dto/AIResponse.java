@@ -0,0 +1,21 @@
+package com.relative.chat.bot.ia.application.dto;
+
+/**
+ * Respuesta del servicio de IA
+ * 
+ * @param text Texto para el usuario (respuesta del modelo o mensaje de respaldo)
+ * @param successful true solo si el texto es una respuesta completa del modelo; false si es un mensaje
+ *                   de respaldo ante error, una respuesta vacía o un streaming interrumpido
+ */
+public record AIResponse(
+    String text,
+    boolean successful
+) {
+    public static AIResponse success(String text) {
+        return new AIResponse(text, true);
+    }
+    
+    public static AIResponse fallback(String text) {
+        return new AIResponse(text, false);
+    }
+}
@@ -0,0 +1,39 @@
+package com.relative.chat.bot.ia.application.dto;
+
+import com.relative.chat.bot.ia.domain.types.IngestJobStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Estado de un job de ingesta de documentos
+ *
+ * @param jobId ID del job
+ * @param kbId Knowledge Base destino
+ * @param filename Nombre del archivo ingestado (o descripción del lote de documentos)
+ * @param status Estado actual
+ * @param itemsTotal Documentos del job
+ * @param itemsDone Documentos terminados
+ * @param pagesTotal Páginas del documento (0 si aún no se conoce)
+ * @param pagesProcessed Páginas leídas
+ * @param chunksProcessed Chunks con embedding ya persistidos
+ * @param attempts Intentos realizados
+ * @param error Último error, o null
+ */
+public record IngestJobView(
+        UUID jobId,
+        UUID kbId,
+        String filename,
+        IngestJobStatus status,
+        int itemsTotal,
+        int itemsDone,
+        int pagesTotal,
+        int pagesProcessed,
+        int chunksProcessed,
+        int attempts,
+        String error,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt
+) {
+}
@@ -0,0 +1,11 @@
+package com.relative.chat.bot.ia.application.dto;
+
+/**
+ * Evento publicado cuando cambia el contenido indexado de un Knowledge Base
+ * (ingesta o eliminación de chunks). Permite invalidar cachés por namespace.
+ *
+ * @param namespace Namespace del KB (formato "kb_<uuid>")
+ * @param reason Origen del cambio (p. ej. "ingest", "delete")
+ */
+public record KnowledgeBaseChangedEvent(String namespace, String reason) {
+}
@@ -16,6 +16,13 @@ public record MessageResponse(
         return new MessageResponse(messageId, conversationId, response, true, null);
     }
     
+    /**
+     * Mensaje aceptado pero no procesado intencionalmente (p. ej. duplicado del proveedor)
+     */
+    public static MessageResponse ignored(String reason) {
+        return new MessageResponse(null, null, null, true, reason);
+    }
+    
     public static MessageResponse error(String errorMessage) {
         return new MessageResponse(null, null, null, false, errorMessage);
     }
@@ -0,0 +1,17 @@
+package com.relative.chat.bot.ia.application.dto;
+
+/**
+ * Fragmento de un documento producido por el chunker
+ *
+ * @param index Posición del fragmento dentro del documento (desde 0)
+ * @param content Texto del fragmento (incluye el encabezado de sección si aplica)
+ * @param tokens Tokens estimados del contenido
+ * @param heading Encabezado de la sección a la que pertenece, o null
+ */
+public record TextChunk(
+        int index,
+        String content,
+        int tokens,
+        String heading
+) {
+}
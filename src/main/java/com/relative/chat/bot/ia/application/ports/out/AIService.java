@@ -1,7 +1,9 @@
 package com.relative.chat.bot.ia.application.ports.out;
 
+import com.relative.chat.bot.ia.application.dto.AIResponse;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Puerto para servicios de IA (OpenAI, etc.)
@@ -14,14 +16,43 @@ public interface AIService {
      * @param userMessage Mensaje del usuario
      * @param context Contexto relevante recuperado del knowledge base
      * @param conversationHistory Historial de conversación
-     * @return Respuesta generada por la IA
+     * @return Respuesta generada por la IA; ante error, un mensaje de respaldo marcado como no exitoso
      */
-    String generateResponse(
+    AIResponse generateResponse(
             String userMessage,
             List<String> context,
             List<Map<String, String>> conversationHistory
     );
     
+    /**
+     * Genera la respuesta en streaming: {@code onToken} recibe cada fragmento a medida que el modelo
+     * lo produce. Todo el texto retornado pasa por {@code onToken}, incluidos los mensajes de respaldo
+     * ante error.
+     * Por defecto genera la respuesta completa y la entrega como un único fragmento.
+     * 
+     * @return Respuesta completa (concatenación de los fragmentos); no exitosa si se entregó un
+     *         mensaje de respaldo o el stream se interrumpió
+     */
+    default AIResponse streamResponse(
+            String userMessage,
+            List<String> context,
+            List<Map<String, String>> conversationHistory,
+            Consumer<String> onToken
+    ) {
+        AIResponse response = generateResponse(userMessage, context, conversationHistory);
+        onToken.accept(response.text());
+        return response;
+    }
+    
+    /**
+     * Tokens que el servicio agrega siempre al prompt del flujo RAG (prompt de sistema, plantilla),
+     * para descontarlos del presupuesto antes de ajustar el contexto y el historial.
+     * Por defecto 0 (sin información del servicio).
+     */
+    default int fixedPromptTokens() {
+        return 0;
+    }
+    
     /**
      * Genera una respuesta simple sin contexto
      * 
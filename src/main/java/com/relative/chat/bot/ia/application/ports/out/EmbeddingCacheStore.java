@@ -0,0 +1,13 @@
+package com.relative.chat.bot.ia.application.ports.out;
+
+import java.util.Optional;
+
+/**
+ * Almacenamiento persistente (segundo nivel) para la caché de embeddings
+ */
+public interface EmbeddingCacheStore {
+    
+    Optional<float[]> find(String cacheKey);
+    
+    void save(String cacheKey, String model, int dimensions, float[] embedding);
+}
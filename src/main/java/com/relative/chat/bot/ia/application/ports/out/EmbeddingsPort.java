@@ -6,6 +6,13 @@ import java.util.List;
 public interface EmbeddingsPort {
     String model();
 
+    /**
+     * Dimensiones configuradas del embedding, o null si las define el modelo
+     */
+    default Integer dimensions() {
+        return null;
+    }
+
     float[] embedOne(String text);
 
     List<float[]> embedMany(List<String> texts);
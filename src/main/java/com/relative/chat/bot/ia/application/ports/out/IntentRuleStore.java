@@ -0,0 +1,32 @@
+package com.relative.chat.bot.ia.application.ports.out;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Origen de las reglas del enrutador de intenciones local
+ */
+public interface IntentRuleStore {
+    
+    /**
+     * @param clientId Cliente dueño de la regla, o null si es global
+     * @param keywords Frases clave que activan la regla
+     * @param maxWords Máximo de palabras del mensaje para aplicar la regla, o null sin límite
+     * @param priority Ante varias coincidencias gana la de mayor prioridad
+     */
+    record IntentRule(
+            UUID clientId,
+            String intent,
+            List<String> keywords,
+            String response,
+            Integer maxWords,
+            int priority
+    ) {}
+    
+    /**
+     * Reglas activas aplicables al cliente: las globales más las propias
+     *
+     * @param clientId ID del cliente, o null para obtener solo las globales
+     */
+    List<IntentRule> findActive(UUID clientId);
+}
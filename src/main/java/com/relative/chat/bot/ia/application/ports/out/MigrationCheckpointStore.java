@@ -0,0 +1,21 @@
+package com.relative.chat.bot.ia.application.ports.out;
+
+import java.util.Optional;
+
+/**
+ * Checkpoints de migraciones de vectores, para reanudarlas por último ID migrado
+ */
+public interface MigrationCheckpointStore {
+    
+    Optional<Checkpoint> find(String migrationKey);
+    
+    void save(String migrationKey, String lastId, long migrated);
+    
+    void clear(String migrationKey);
+    
+    /**
+     * @param lastId Último ID migrado: todos los IDs menores o iguales ya están en el destino
+     * @param migrated Vectores migrados hasta ese ID
+     */
+    record Checkpoint(String lastId, long migrated) {}
+}
@@ -0,0 +1,27 @@
+package com.relative.chat.bot.ia.application.ports.out;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+/**
+ * Puerto de salida para extraer texto de archivos PDF
+ *
+ * El texto se expone como un {@link Reader} que extrae una página a la vez bajo demanda,
+ * de modo que el consumo de memoria no depende del tamaño del archivo.
+ */
+public interface PdfTextReader {
+
+    /**
+     * Abre el PDF para lectura incremental. Cerrar el Reader libera el documento.
+     *
+     * @param pdf Archivo PDF en disco
+     * @param listener Notificado cada vez que se extrae una página
+     */
+    Reader open(Path pdf, PageListener listener) throws IOException;
+
+    @FunctionalInterface
+    interface PageListener {
+        void onPage(int pageNumber, int totalPages);
+    }
+}
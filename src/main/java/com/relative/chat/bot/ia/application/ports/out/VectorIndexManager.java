@@ -0,0 +1,82 @@
+package com.relative.chat.bot.ia.application.ports.out;
+
+import com.relative.chat.bot.ia.domain.types.VectorIndexType;
+
+import java.util.UUID;
+
+/**
+ * Administración del índice ANN del vector store y de los parámetros de búsqueda por Knowledge Base
+ */
+public interface VectorIndexManager {
+    
+    /**
+     * Estado del índice vectorial actual
+     */
+    IndexStatus status();
+    
+    /**
+     * Construye un índice nuevo sin bloquear escrituras ni búsquedas y reemplaza al actual.
+     * La construcción corre en segundo plano; el avance se consulta en {@link #status()}.
+     *
+     * @return false si ya hay una reconstrucción en curso
+     */
+    boolean rebuild(VectorIndexType type);
+    
+    /**
+     * Parámetros efectivos de búsqueda del KB (override del KB o valores por defecto)
+     */
+    SearchParams searchParams(UUID kbId);
+    
+    /**
+     * Guarda el override de parámetros de búsqueda del KB (null = usar el valor por defecto)
+     */
+    void updateSearchParams(UUID kbId, SearchParams params);
+    
+    /**
+     * Compara la búsqueda ANN contra la búsqueda exacta sobre vectores del propio KB
+     *
+     * @param k Resultados por consulta
+     * @param samples Consultas de muestra (vectores del KB elegidos al azar)
+     */
+    RecallReport measureRecall(UUID kbId, int k, int samples);
+    
+    /**
+     * @param probes Listas IVFFlat exploradas por consulta (ivfflat.probes)
+     * @param efSearch Tamaño de la lista de candidatos HNSW (hnsw.ef_search)
+     * @param hybrid Combinar la búsqueda léxica (trigramas) con la vectorial
+     * @param rrfK Constante k de reciprocal rank fusion en la búsqueda híbrida
+     */
+    record SearchParams(Integer probes, Integer efSearch, Boolean hybrid, Integer rrfK) {}
+    
+    /**
+     * @param name Nombre del índice, o null si no hay índice ANN
+     * @param type Tipo del índice, o null si no hay índice ANN
+     * @param definition Definición SQL del índice
+     * @param estimatedRows Filas estimadas de la tabla de embeddings
+     * @param rebuildInProgress Hay una reconstrucción en curso
+     * @param lastRebuildError Error de la última reconstrucción, o null
+     */
+    record IndexStatus(
+            String name,
+            VectorIndexType type,
+            String definition,
+            long estimatedRows,
+            boolean rebuildInProgress,
+            String lastRebuildError
+    ) {}
+    
+    /**
+     * @param recall Promedio de |ANN ∩ exacta| / |exacta| sobre las consultas de muestra
+     */
+    record RecallReport(
+            UUID kbId,
+            int k,
+            int samples,
+            double recall,
+            double annP50Ms,
+            double annP95Ms,
+            double exactP50Ms,
+            double exactP95Ms,
+            SearchParams params
+    ) {}
+}
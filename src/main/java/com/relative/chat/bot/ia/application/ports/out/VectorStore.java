@@ -14,9 +14,31 @@ public interface VectorStore {
 
     List<QueryResult> query(String ns, float[] vector, int topK, Map<String, Object> filter);
 
+    /**
+     * Filtro opcional para forzar el modo de búsqueda: "vector" o "hybrid"
+     */
+    String SEARCH_MODE_FILTER = "search_mode";
+
+    /**
+     * Búsqueda con el texto de la consulta además de su embedding. Los backends con búsqueda léxica
+     * pueden combinar ambas (búsqueda híbrida); por defecto solo se usa el vector.
+     */
+    default List<QueryResult> query(String ns, String text, float[] vector, int topK, Map<String, Object> filter) {
+        return query(ns, vector, topK, filter);
+    }
+
     void delete(String ns, List<String> ids);
 
-    Stream<List<VectorRecord>> streamAll(String ns, int batchSize);
+    default Stream<List<VectorRecord>> streamAll(String ns, int batchSize) {
+        return streamAll(ns, batchSize, null);
+    }
+
+    /**
+     * Recorre los vectores del namespace en lotes ordenados por ID, con memoria acotada al tamaño del lote
+     *
+     * @param afterId Último ID ya procesado (exclusivo), o null para empezar desde el inicio
+     */
+    Stream<List<VectorRecord>> streamAll(String ns, int batchSize, String afterId);
 
     record VectorRecord(String id, float[] vector, Map<String,Object> payload) {}
     record QueryResult(String id, double score, Map<String,Object> payload) {}
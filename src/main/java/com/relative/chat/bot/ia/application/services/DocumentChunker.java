@@ -0,0 +1,31 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.dto.TextChunk;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Divide documentos en fragmentos aptos para embeddings
+ *
+ * Las implementaciones leen la fuente de forma incremental: el stream es perezoso y
+ * solo mantiene en memoria el fragmento en construcción.
+ */
+public interface DocumentChunker {
+
+    /**
+     * Fragmenta el texto leído desde la fuente. El stream debe cerrarse para liberar el Reader.
+     */
+    Stream<TextChunk> chunk(Reader source);
+
+    /**
+     * Fragmenta un texto ya cargado en memoria
+     */
+    default List<TextChunk> chunk(String text) {
+        try (Stream<TextChunk> chunks = chunk(new StringReader(text))) {
+            return chunks.toList();
+        }
+    }
+}
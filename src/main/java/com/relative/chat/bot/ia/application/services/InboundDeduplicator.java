@@ -0,0 +1,77 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.infrastructure.config.InboundProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Deduplicación de mensajes entrantes por ID del proveedor (wamid en Meta)
+ *
+ * Primera barrera en memoria (LRU + TTL, O(1)) antes de cualquier acceso a BD o a OpenAI.
+ * Los índices únicos sobre inbound_envelope.external_id y message.external_id actúan
+ * como respaldo entre reinicios o entre instancias.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InboundDeduplicator {
+
+    private final InboundProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private LruTtlCache<String, Boolean> seen;
+    private Counter memoryCounter;
+    private Counter databaseCounter;
+
+    @PostConstruct
+    public void init() {
+        InboundProperties.Dedup dedup = properties.getDedup();
+        seen = new LruTtlCache<>(dedup.getCapacity(), Duration.ofSeconds(dedup.getTtlSeconds()));
+
+        memoryCounter = meterRegistry.counter("inbound.duplicates.suppressed", "layer", "memory");
+        databaseCounter = meterRegistry.counter("inbound.duplicates.suppressed", "layer", "database");
+        Gauge.builder("inbound.dedup.size", seen, LruTtlCache::size)
+                .description("IDs de mensajes recordados para deduplicación")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra el ID externo y retorna si es la primera vez que se ve.
+     * Los mensajes sin ID externo siempre se consideran nuevos.
+     */
+    public boolean firstSeen(String externalId) {
+        if (!properties.getDedup().isEnabled() || externalId == null || externalId.isBlank()) {
+            return true;
+        }
+        if (seen.putIfAbsent(externalId, Boolean.TRUE) != null) {
+            memoryCounter.increment();
+            log.info("🔁 Mensaje duplicado descartado (memoria): {}", externalId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Olvida un ID externo, p. ej. cuando no se pudo persistir el sobre y el reintento del proveedor debe procesarse
+     */
+    public void forget(String externalId) {
+        if (externalId != null) {
+            seen.remove(externalId);
+        }
+    }
+
+    /**
+     * Registra un duplicado detectado por la restricción única en BD
+     */
+    public void recordDatabaseDuplicate(String externalId) {
+        databaseCounter.increment();
+        log.info("🔁 Mensaje duplicado descartado (BD): {}", externalId);
+    }
+}
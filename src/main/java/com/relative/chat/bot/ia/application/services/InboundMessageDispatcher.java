@@ -0,0 +1,306 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.dto.MessageCommand;
+import com.relative.chat.bot.ia.application.dto.MessageResponse;
+import com.relative.chat.bot.ia.application.usecases.ReceiveWhatsAppMessage;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.messaging.InboundEnvelope;
+import com.relative.chat.bot.ia.domain.ports.messaging.InboundEnvelopeRepository;
+import com.relative.chat.bot.ia.domain.types.InboundStatus;
+import com.relative.chat.bot.ia.infrastructure.config.InboundProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pipeline asíncrono de mensajes entrantes
+ *
+ * - El webhook persiste un {@link InboundEnvelope} y lo encola; responde 200 sin esperar al procesamiento
+ * - Los sobres se encolan en un {@link KeyedSerialExecutor} por (cliente, contacto): los mensajes de una
+ *   misma conversación se procesan en orden y conversaciones distintas en paralelo sobre hilos virtuales
+ * - Si la cola del shard está llena el sobre queda PENDING en BD y el job de recuperación lo reencola (backpressure)
+ * - Orden estricto por clave también ante backpressure o reintentos: antes de atender un sobre, el worker
+ *   procesa los sobres anteriores sin terminar de la misma clave (por received_at). Si alguno sigue en
+ *   curso o falla con reintentos pendientes, el sobre nuevo queda PENDING (estacionado) y la recuperación
+ *   lo reencola después
+ * - Los sobres PROCESSING atascados (caída del proceso) vuelven a PENDING tras un tiempo configurable
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InboundMessageDispatcher {
+
+    private final InboundEnvelopeRepository envelopeRepository;
+    private final ReceiveWhatsAppMessage receiveWhatsAppMessage;
+    private final InboundDeduplicator deduplicator;
+    private final InboundProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * IDs encolados en memoria, para que la recuperación no duplique entradas en la cola
+     */
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    private KeyedSerialExecutor executor;
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter recoveredCounter;
+    private Counter doneCounter;
+    private Counter failedCounter;
+    private Counter parkedCounter;
+    private Timer processingTimer;
+    private Timer queueWaitTimer;
+
+    @PostConstruct
+    public void init() {
+        executor = new KeyedSerialExecutor(
+                "inbound", properties.getShards(), properties.getShardQueueCapacity());
+
+        Gauge.builder("inbound.queue.depth", executor, KeyedSerialExecutor::totalQueueDepth)
+                .description("Sobres entrantes esperando en todos los shards")
+                .register(meterRegistry);
+        Gauge.builder("inbound.queue.remaining", executor, KeyedSerialExecutor::remainingCapacity)
+                .description("Capacidad libre de la cola de entrada")
+                .register(meterRegistry);
+        Gauge.builder("inbound.workers.active", executor, KeyedSerialExecutor::activeCount)
+                .description("Shards procesando mensajes entrantes")
+                .register(meterRegistry);
+        for (int shard = 0; shard < executor.shardCount(); shard++) {
+            final int index = shard;
+            Gauge.builder("inbound.shard.queue.depth", executor, e -> e.queueDepth(index))
+                    .description("Sobres entrantes esperando en el shard")
+                    .tag("shard", String.valueOf(index))
+                    .register(meterRegistry);
+        }
+
+        acceptedCounter = meterRegistry.counter("inbound.envelopes", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("inbound.envelopes", "result", "rejected");
+        recoveredCounter = meterRegistry.counter("inbound.envelopes", "result", "recovered");
+        doneCounter = meterRegistry.counter("inbound.envelopes", "result", "done");
+        failedCounter = meterRegistry.counter("inbound.envelopes", "result", "failed");
+        parkedCounter = meterRegistry.counter("inbound.envelopes", "result", "parked");
+        processingTimer = Timer.builder("inbound.processing")
+                .description("Tiempo de procesamiento de un mensaje entrante")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("inbound.queue.wait")
+                .description("Tiempo desde la recepción hasta que un worker toma el mensaje")
+                .register(meterRegistry);
+
+        log.info("Dispatcher de mensajes entrantes iniciado con {} shards y cola de {} por shard",
+                properties.getShards(), properties.getShardQueueCapacity());
+    }
+
+    /**
+     * Persiste el sobre del mensaje y lo encola para procesamiento asíncrono.
+     * Si la cola está llena el sobre queda PENDING y se reintenta desde el job de recuperación.
+     *
+     * @param command Comando del mensaje entrante
+     * @param rawPayload Payload original del proveedor
+     * @return Sobre persistido, o vacío si ya existía un sobre con el mismo ID externo
+     */
+    public Optional<InboundEnvelope> accept(MessageCommand command, Map<String, Object> rawPayload) {
+        InboundEnvelope envelope = InboundEnvelope.create(
+                command.clientCode(),
+                command.phoneNumber(),
+                command.contactPhone(),
+                command.contactName(),
+                command.channel(),
+                command.content(),
+                command.externalId(),
+                rawPayload,
+                command.receivedAt()
+        );
+
+        try {
+            envelopeRepository.save(envelope);
+        } catch (DataIntegrityViolationException e) {
+            // Índice único sobre external_id: el proveedor reenvió un mensaje ya aceptado
+            deduplicator.recordDatabaseDuplicate(command.externalId());
+            return Optional.empty();
+        }
+        acceptedCounter.increment();
+
+        enqueue(envelope);
+        return Optional.of(envelope);
+    }
+
+    /**
+     * Reencola sobres PENDING que no entraron a la cola y libera los PROCESSING atascados
+     */
+    @Scheduled(fixedDelayString = "${app.inbound.recovery.interval-ms:15000}")
+    public void recoverPending() {
+        InboundProperties.Recovery recovery = properties.getRecovery();
+        Instant now = Instant.now();
+
+        try {
+            int released = envelopeRepository.releaseStuck(
+                    now.minus(recovery.getStuckAfterSeconds(), ChronoUnit.SECONDS));
+            if (released > 0) {
+                log.warn("⚠️ {} sobres entrantes atascados en PROCESSING devueltos a PENDING", released);
+            }
+
+            int free = executor.remainingCapacity();
+            if (free == 0) {
+                log.debug("Cola de entrada llena, se omite la recuperación en esta ejecución");
+                return;
+            }
+
+            List<InboundEnvelope> pending = envelopeRepository.findByStatusUpdatedBefore(
+                    InboundStatus.PENDING,
+                    now.minus(recovery.getPendingAfterSeconds(), ChronoUnit.SECONDS),
+                    Math.min(free, recovery.getBatchSize())
+            );
+
+            int requeued = 0;
+            for (InboundEnvelope envelope : pending) {
+                if (enqueue(envelope)) {
+                    requeued++;
+                }
+            }
+
+            if (requeued > 0) {
+                recoveredCounter.increment(requeued);
+                log.info("🔁 {} sobres entrantes pendientes reencolados", requeued);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error en la recuperación de sobres entrantes: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Deteniendo dispatcher de mensajes entrantes ({} en cola)", executor.totalQueueDepth());
+        // Los sobres no procesados siguen PENDING/PROCESSING en BD y se recuperan al reiniciar
+        if (!executor.shutdown(Duration.ofSeconds(properties.getShutdownTimeoutSeconds()))) {
+            log.warn("⚠️ El dispatcher no terminó de drenar la cola en {} s", properties.getShutdownTimeoutSeconds());
+        }
+    }
+
+    /**
+     * Clave de ordenamiento: mensajes del mismo contacto para el mismo cliente comparten shard
+     */
+    private static String orderingKey(InboundEnvelope envelope) {
+        return envelope.clientCode() + ":" + envelope.contactPhone();
+    }
+
+    private boolean enqueue(InboundEnvelope envelope) {
+        UuidId<InboundEnvelope> id = envelope.id();
+        Instant receivedAt = envelope.receivedAt();
+        if (!queued.add(id.value())) {
+            return false;
+        }
+
+        boolean submitted = executor.submit(orderingKey(envelope), () -> {
+            queued.remove(id.value());
+            queueWaitTimer.record(Duration.between(receivedAt, Instant.now()));
+            process(id);
+        });
+
+        if (!submitted) {
+            queued.remove(id.value());
+            rejectedCounter.increment();
+            log.warn("⚠️ Cola del shard {} llena. Sobre {} queda PENDING para recuperación",
+                    executor.shardOf(orderingKey(envelope)), id.value());
+        }
+        return submitted;
+    }
+
+    /**
+     * Procesa un sobre después de drenar, en orden, los sobres anteriores sin terminar de su clave
+     */
+    private void process(UuidId<InboundEnvelope> id) {
+        InboundEnvelope envelope = envelopeRepository.findById(id).orElse(null);
+        if (envelope == null || envelope.status() != InboundStatus.PENDING) {
+            log.debug("Sobre {} inexistente o ya tomado, se omite", id.value());
+            return;
+        }
+
+        List<InboundEnvelope> older = envelopeRepository.findUnfinishedBefore(
+                envelope.clientCode(), envelope.contactPhone(), envelope.receivedAt());
+        for (InboundEnvelope previous : older) {
+            if (previous.status() == InboundStatus.PROCESSING || !processClaimed(previous.id())) {
+                // Un mensaje anterior sigue en curso o quedó para reintento: no adelantarlo
+                parkedCounter.increment();
+                log.info("Sobre {} estacionado: el sobre anterior {} de la misma conversación no terminó",
+                        id.value(), previous.id().value());
+                return;
+            }
+        }
+
+        processClaimed(id);
+    }
+
+    /**
+     * Reclama y procesa un sobre
+     *
+     * @return true si el sobre quedó terminado (DONE o FAILED definitivo) y ya no bloquea a los siguientes
+     */
+    private boolean processClaimed(UuidId<InboundEnvelope> id) {
+        if (!envelopeRepository.claim(id)) {
+            log.debug("Sobre {} ya reclamado por otro worker", id.value());
+            return false;
+        }
+
+        InboundEnvelope envelope = envelopeRepository.findById(id).orElse(null);
+        if (envelope == null) {
+            log.warn("Sobre {} no encontrado después de reclamarlo", id.value());
+            return false;
+        }
+
+        processingTimer.record(() -> {
+            try {
+                MessageResponse response = receiveWhatsAppMessage.handle(toCommand(envelope));
+
+                if (response.success()) {
+                    envelope.markDone();
+                    doneCounter.increment();
+                    log.info("✅ Mensaje entrante procesado: {}", envelope.externalId().orElse(id.toString()));
+                } else {
+                    envelope.markFailed(response.errorMessage(), properties.getMaxAttempts());
+                    failedCounter.increment();
+                    log.warn("Procesamiento de sobre {} fallido (intento {}): {}",
+                            id.value(), envelope.attempts(), response.errorMessage());
+                }
+            } catch (Exception e) {
+                envelope.markFailed(e.getMessage(), properties.getMaxAttempts());
+                failedCounter.increment();
+                log.error("❌ Error procesando sobre {} (intento {}): {}",
+                        id.value(), envelope.attempts(), e.getMessage(), e);
+            }
+
+            envelopeRepository.save(envelope);
+        });
+        return envelope.status() != InboundStatus.PENDING;
+    }
+
+    private MessageCommand toCommand(InboundEnvelope envelope) {
+        return new MessageCommand(
+                envelope.clientCode(),
+                envelope.phoneNumber(),
+                envelope.contactPhone(),
+                envelope.contactName(),
+                envelope.channel(),
+                envelope.content(),
+                envelope.receivedAt(),
+                envelope.externalId().orElse(null)
+        );
+    }
+}
@@ -0,0 +1,179 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.ports.out.PdfTextReader;
+import com.relative.chat.bot.ia.application.usecases.IngestDocuments;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJob;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJobItem;
+import com.relative.chat.bot.ia.domain.ports.knowledge.IngestJobRepository;
+import com.relative.chat.bot.ia.infrastructure.config.IngestProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Workers de los jobs de ingesta persistidos
+ *
+ * - Cada instancia toma jobs QUEUED con FOR UPDATE SKIP LOCKED, por lo que varias instancias pueden compartir la cola
+ * - Cada documento guarda un checkpoint por lote de chunks; un reintento reutiliza los chunks ya persistidos
+ * - Los fallos se reintentan con backoff exponencial hasta el máximo de intentos
+ * - Los jobs RUNNING sin actividad (caída del proceso) vuelven a la cola
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestJobWorker {
+
+    private final IngestJobRepository jobRepository;
+    private final IngestDocuments ingestDocuments;
+    private final PdfTextReader pdfTextReader;
+    private final IngestProperties properties;
+
+    private ExecutorService executor;
+    private Semaphore slots;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kb-ingest-", 0).factory());
+        slots = new Semaphore(properties.getWorkers());
+    }
+
+    /**
+     * Toma jobs pendientes mientras haya workers libres
+     */
+    @Scheduled(fixedDelayString = "${app.kb.ingest.jobs.poll-interval-ms:2000}")
+    public void poll() {
+        try {
+            int released = jobRepository.releaseStale(
+                    Instant.now().minus(properties.getStaleAfterSeconds(), ChronoUnit.SECONDS));
+            if (released > 0) {
+                log.warn("⚠️ {} jobs de ingesta sin actividad devueltos a la cola", released);
+            }
+
+            while (slots.tryAcquire()) {
+                Optional<UuidId<IngestJob>> jobId = jobRepository.claimNext();
+                if (jobId.isEmpty()) {
+                    slots.release();
+                    return;
+                }
+                executor.execute(() -> {
+                    try {
+                        run(jobId.get());
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error("❌ Error buscando jobs de ingesta: {}", e.getMessage(), e);
+        }
+    }
+
+    private void run(UuidId<IngestJob> jobId) {
+        IngestJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            log.warn("Job de ingesta {} no encontrado después de reclamarlo", jobId.value());
+            return;
+        }
+
+        String namespace = "kb_" + job.kbId().value();
+        List<IngestJobItem> items = jobRepository.itemsOf(jobId);
+        log.info("Procesando job de ingesta {} (intento {}, {} documentos)", jobId.value(), job.attempts(), items.size());
+
+        try {
+            for (IngestJobItem item : items) {
+                if (item.done()) {
+                    continue;
+                }
+                ingestItem(namespace, item);
+                jobRepository.markItemDone(item.id());
+                deleteSpooledFile(item);
+            }
+
+            jobRepository.complete(jobId);
+            log.info("✅ Job de ingesta {} completado", jobId.value());
+
+        } catch (Exception e) {
+            if (job.attempts() >= properties.getMaxAttempts()) {
+                jobRepository.fail(jobId, e.getMessage());
+                items.forEach(this::deleteSpooledFile);
+                log.error("❌ Job de ingesta {} fallido tras {} intentos: {}",
+                        jobId.value(), job.attempts(), e.getMessage(), e);
+            } else {
+                Instant nextAttempt = Instant.now().plusSeconds(backoffSeconds(job.attempts()));
+                jobRepository.retryLater(jobId, e.getMessage(), nextAttempt);
+                log.warn("⚠️ Job de ingesta {} fallido (intento {}), reintento a las {}: {}",
+                        jobId.value(), job.attempts(), nextAttempt, e.getMessage());
+            }
+        }
+    }
+
+    private void ingestItem(String namespace, IngestJobItem item) throws IOException {
+        // Un reintento continúa sobre el mismo documento: los chunks ya persistidos coinciden por hash y no se re-embeben
+        IngestDocuments.Checkpoint checkpoint = (documentId, stored) -> jobRepository.checkpoint(item.id(), documentId, stored);
+
+        try (Reader source = openSource(item)) {
+            ingestDocuments.ingestStream(namespace, item.sourceId(), item.metadata(), source, item.documentId(), checkpoint);
+        }
+    }
+
+    private Reader openSource(IngestJobItem item) throws IOException {
+        if (!item.isFile()) {
+            return new StringReader(item.content());
+        }
+        return pdfTextReader.open(Path.of(item.filePath()),
+                (page, total) -> jobRepository.updatePages(item.jobId(), page, total));
+    }
+
+    /**
+     * Backoff exponencial: inicial * 2^(intento - 1), acotado al máximo configurado
+     */
+    private long backoffSeconds(int attempt) {
+        IngestProperties.Backoff backoff = properties.getBackoff();
+        long delay = backoff.getInitialSeconds() << Math.min(Math.max(attempt - 1, 0), 20);
+        return Math.min(delay, backoff.getMaxSeconds());
+    }
+
+    private void deleteSpooledFile(IngestJobItem item) {
+        if (!item.isFile()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(item.filePath()));
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el archivo {}: {}", item.filePath(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Los jobs interrumpidos quedan RUNNING y vuelven a la cola tras staleAfterSeconds
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Jobs de ingesta en curso interrumpidos al detener la aplicación");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
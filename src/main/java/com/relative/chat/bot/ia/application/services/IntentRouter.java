@@ -0,0 +1,144 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.ports.out.IntentRuleStore;
+import com.relative.chat.bot.ia.application.ports.out.IntentRuleStore.IntentRule;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Enrutador de intenciones local: responde sin pasar por el LLM los mensajes que coinciden con una
+ * regla por palabras clave (saludos, agradecimientos, horarios, preguntas frecuentes del cliente)
+ *
+ * - Las reglas (globales + propias del cliente) se cargan de la base de datos y se compilan en un
+ *   {@link KeywordAutomaton} por cliente, cacheado con TTL: los cambios en intent_rule se aplican
+ *   al vencer la entrada o con {@link #evict(UUID)}
+ * - Ante varias coincidencias gana la regla de mayor prioridad; a igual prioridad, la del cliente
+ *   sobre la global
+ * - Una regla con max_words solo aplica a mensajes cortos, para no responder con un saludo a una
+ *   pregunta que empieza con "hola"
+ *
+ * Métrica: ai.intent.router{result=hit|miss, intent} para seguir la tasa de acierto.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IntentRouter {
+
+    private static final String GLOBAL_KEY = "global";
+
+    private final IntentRuleStore ruleStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ai.intent-router.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.intent-router.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Value("${app.ai.intent-router.cache-size:1000}")
+    private int cacheSize;
+
+    private LruTtlCache<String, KeywordAutomaton<IntentRule>> automata;
+
+    /**
+     * Respuesta resuelta localmente
+     *
+     * @param intent Intención de la regla que coincidió
+     * @param response Respuesta configurada en la regla
+     */
+    public record Route(String intent, String response) {}
+
+    @PostConstruct
+    public void init() {
+        automata = new LruTtlCache<>(cacheSize, Duration.ofSeconds(cacheTtlSeconds));
+        log.info("Enrutador de intenciones local {} (reglas por cliente cacheadas {} s, máx. {} clientes)",
+                enabled ? "activo" : "desactivado", cacheTtlSeconds, cacheSize);
+    }
+
+    /**
+     * Busca una regla que responda el mensaje
+     *
+     * @param clientId ID del cliente, o null para usar solo las reglas globales
+     * @return Respuesta local, o vacío si el mensaje debe seguir al flujo con IA
+     */
+    public Optional<Route> route(UUID clientId, String message) {
+        if (!enabled || message == null || message.isBlank()) {
+            return Optional.empty();
+        }
+        KeywordAutomaton<IntentRule> automaton = automata.computeIfAbsent(
+                clientId != null ? clientId.toString() : GLOBAL_KEY, key -> compile(clientId));
+        if (automaton == null || automaton.size() == 0) {
+            return Optional.empty();
+        }
+
+        String normalized = KeywordAutomaton.normalize(message);
+        int words = normalized.isEmpty() ? 0 : normalized.split(" ").length;
+        IntentRule best = null;
+        for (IntentRule rule : automaton.findAll(normalized)) {
+            if (rule.maxWords() != null && words > rule.maxWords()) {
+                continue;
+            }
+            if (best == null || outranks(rule, best)) {
+                best = rule;
+            }
+        }
+
+        if (best == null) {
+            meterRegistry.counter("ai.intent.router", "result", "miss", "intent", "none").increment();
+            return Optional.empty();
+        }
+        meterRegistry.counter("ai.intent.router", "result", "hit", "intent", best.intent()).increment();
+        log.debug("Mensaje resuelto localmente con la intención '{}'", best.intent());
+        return Optional.of(new Route(best.intent(), best.response()));
+    }
+
+    /**
+     * Descarta las reglas compiladas del cliente (o las globales si es null) para recargarlas
+     */
+    public void evict(UUID clientId) {
+        if (clientId == null) {
+            automata.clear();
+        } else {
+            automata.remove(clientId.toString());
+        }
+    }
+
+    private static boolean outranks(IntentRule candidate, IntentRule current) {
+        if (candidate.priority() != current.priority()) {
+            return candidate.priority() > current.priority();
+        }
+        return candidate.clientId() != null && current.clientId() == null;
+    }
+
+    /**
+     * Compila las reglas del cliente; ante error retorna null para no cachear el fallo
+     */
+    private KeywordAutomaton<IntentRule> compile(UUID clientId) {
+        try {
+            List<IntentRule> rules = ruleStore.findActive(clientId);
+            List<KeywordAutomaton.Keyword<IntentRule>> keywords = new ArrayList<>();
+            for (IntentRule rule : rules) {
+                for (String keyword : rule.keywords()) {
+                    keywords.add(new KeywordAutomaton.Keyword<>(keyword, rule));
+                }
+            }
+            KeywordAutomaton<IntentRule> automaton = new KeywordAutomaton<>(keywords);
+            log.info("Reglas de intención compiladas para {}: {} reglas, {} frases clave",
+                    clientId != null ? "cliente " + clientId : "reglas globales", rules.size(), automaton.size());
+            return automaton;
+        } catch (Exception e) {
+            log.warn("No se pudieron cargar las reglas de intención para {}: {}", clientId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.relative.chat.bot.ia.application.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecutor particionado por clave
+ *
+ * - Cada clave se asigna siempre al mismo shard (hash de la clave módulo número de shards)
+ * - Cada shard tiene una cola acotada y un único consumidor en un hilo virtual, por lo que
+ *   las tareas de una misma clave se ejecutan estrictamente en orden de llegada
+ * - Claves en shards distintos se ejecutan en paralelo
+ * - {@link #submit} no bloquea: si la cola del shard está llena retorna false (backpressure)
+ */
+@Slf4j
+public final class KeyedSerialExecutor {
+
+    private static final long POLL_INTERVAL_MS = 200;
+
+    private final String name;
+    private final List<Shard> shards;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public KeyedSerialExecutor(String name, int shardCount, int shardQueueCapacity) {
+        if (shardCount <= 0 || shardQueueCapacity <= 0) {
+            throw new IllegalArgumentException("shardCount y shardQueueCapacity deben ser mayores a 0");
+        }
+        this.name = name;
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(new ArrayBlockingQueue<>(shardQueueCapacity));
+            shard.consumer = Thread.ofVirtual()
+                    .name(name + "-shard-" + i)
+                    .start(() -> consume(shard));
+            shards.add(shard);
+        }
+    }
+
+    /**
+     * Encola una tarea en el shard de la clave
+     *
+     * @return false si la cola del shard está llena o el ejecutor está detenido
+     */
+    public boolean submit(Object key, Runnable task) {
+        if (!running) {
+            return false;
+        }
+        return shards.get(shardOf(key)).queue.offer(task);
+    }
+
+    /**
+     * Índice del shard asignado a una clave
+     */
+    public int shardOf(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16); // dispersar los bits altos, igual que HashMap
+        return Math.floorMod(h, shards.size());
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int queueDepth(int shard) {
+        return shards.get(shard).queue.size();
+    }
+
+    public int totalQueueDepth() {
+        return shards.stream().mapToInt(s -> s.queue.size()).sum();
+    }
+
+    public int remainingCapacity() {
+        return shards.stream().mapToInt(s -> s.queue.remainingCapacity()).sum();
+    }
+
+    public int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * Deja de aceptar tareas y espera a que los shards drenen su cola
+     *
+     * @return true si todos los consumidores terminaron dentro del plazo
+     */
+    public boolean shutdown(Duration timeout) {
+        running = false;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Shard shard : shards) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !shard.consumer.join(Duration.ofNanos(remaining))) {
+                    shards.forEach(s -> s.consumer.interrupt());
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            shards.forEach(s -> s.consumer.interrupt());
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void consume(Shard shard) {
+        while (running || !shard.queue.isEmpty()) {
+            Runnable task;
+            try {
+                task = shard.queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == null) {
+                continue;
+            }
+
+            active.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Un error en una tarea no debe detener el consumidor del shard
+                log.error("❌ Error no controlado en {}: {}", Thread.currentThread().getName(), t.getMessage(), t);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+        log.debug("Consumidor {} detenido", name);
+    }
+
+    private static final class Shard {
+        private final BlockingQueue<Runnable> queue;
+        private Thread consumer;
+
+        private Shard(BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+    }
+}
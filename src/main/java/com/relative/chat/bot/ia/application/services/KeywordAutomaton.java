@@ -0,0 +1,130 @@
+package com.relative.chat.bot.ia.application.services;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Autómata Aho-Corasick sobre frases clave: encuentra todas las frases presentes en un texto en una
+ * sola pasada, O(longitud del texto + coincidencias), sin importar cuántas frases haya
+ *
+ * - Las frases y el texto se comparan normalizados con {@link #normalize(String)}
+ * - Solo cuentan coincidencias de palabras completas ("ok" no coincide dentro de "poker")
+ * - Inmutable una vez construido: thread-safe para búsquedas concurrentes
+ *
+ * @param <T> Valor asociado a cada frase
+ */
+public final class KeywordAutomaton<T> {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * @param text Frase clave (se normaliza al construir el autómata)
+     * @param value Valor que se retorna cuando la frase aparece en el texto
+     */
+    public record Keyword<T>(String text, T value) {}
+
+    private static final class Node<T> {
+        final Map<Character, Node<T>> next = new HashMap<>();
+        final List<Keyword<T>> outputs = new ArrayList<>();
+        Node<T> fail;
+    }
+
+    private final Node<T> root = new Node<>();
+    private final int size;
+
+    public KeywordAutomaton(List<Keyword<T>> keywords) {
+        int count = 0;
+        for (Keyword<T> keyword : keywords) {
+            String text = normalize(keyword.text());
+            if (text.isEmpty()) {
+                continue;
+            }
+            Node<T> node = root;
+            for (int i = 0; i < text.length(); i++) {
+                node = node.next.computeIfAbsent(text.charAt(i), c -> new Node<>());
+            }
+            node.outputs.add(new Keyword<>(text, keyword.value()));
+            count++;
+        }
+        this.size = count;
+        buildFailureLinks();
+    }
+
+    /**
+     * Enlaces de fallo por BFS: cada nodo apunta al sufijo propio más largo que también es prefijo
+     * de alguna frase, y hereda sus salidas
+     */
+    private void buildFailureLinks() {
+        ArrayDeque<Node<T>> queue = new ArrayDeque<>();
+        for (Node<T> child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node<T> node = queue.poll();
+            for (Map.Entry<Character, Node<T>> edge : node.next.entrySet()) {
+                Node<T> child = edge.getValue();
+                Node<T> fail = node.fail;
+                while (fail != root && !fail.next.containsKey(edge.getKey())) {
+                    fail = fail.fail;
+                }
+                Node<T> target = fail.next.get(edge.getKey());
+                child.fail = target != null && target != child ? target : root;
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Valores de las frases que aparecen como palabras completas en el texto (una entrada por
+     * aparición), en orden de posición final
+     *
+     * @param normalizedText Texto ya normalizado con {@link #normalize(String)}
+     */
+    public List<T> findAll(String normalizedText) {
+        List<T> matches = new ArrayList<>();
+        Node<T> node = root;
+        for (int i = 0; i < normalizedText.length(); i++) {
+            char c = normalizedText.charAt(i);
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            for (Keyword<T> keyword : node.outputs) {
+                int start = i - keyword.text().length() + 1;
+                if (isBoundary(normalizedText, start - 1) && isBoundary(normalizedText, i + 1)) {
+                    matches.add(keyword.value());
+                }
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Minúsculas, sin tildes ni diacríticos, y cualquier secuencia que no sea letra o dígito
+     * reemplazada por un único espacio
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return SEPARATORS.matcher(MARKS.matcher(decomposed).replaceAll("")).replaceAll(" ").strip();
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || text.charAt(index) == ' ';
+    }
+}
@@ -0,0 +1,124 @@
+package com.relative.chat.bot.ia.application.services;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria acotada con expulsión LRU y expiración por TTL
+ *
+ * - Operaciones O(1) sobre un {@link LinkedHashMap} en orden de acceso
+ * - Al superar la capacidad se expulsa la entrada menos usada recientemente
+ * - Las entradas vencidas se descartan de forma perezosa al consultarlas
+ * - Thread-safe mediante sincronización sobre la instancia
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public final class LruTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long evictions;
+
+    /**
+     * @param maxSize Capacidad máxima de entradas
+     * @param ttl Tiempo de vida de cada entrada; null o cero para no expirar
+     */
+    public LruTtlCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize debe ser mayor a 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null || ttl.isZero() || ttl.isNegative() ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruTtlCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene el valor de una clave, o null si no existe o expiró
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Inserta el valor solo si la clave no existe (o expiró)
+     *
+     * @return el valor vigente previo, o null si se insertó
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V current = get(key);
+        if (current != null) {
+            return current;
+        }
+        put(key, value);
+        return null;
+    }
+
+    /**
+     * Obtiene el valor o lo calcula y almacena si no existe.
+     * El cálculo se hace fuera del lock para no serializar llamadas costosas.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.createdAtNanos > ttlNanos;
+    }
+
+    private record Entry<V>(V value, long createdAtNanos) {
+    }
+}
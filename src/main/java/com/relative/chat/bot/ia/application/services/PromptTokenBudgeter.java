@@ -0,0 +1,161 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.infrastructure.config.PromptBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ajusta el contexto y el historial de un prompt a un presupuesto de tokens por cliente
+ *
+ * - Los tokens se cuentan localmente con cl100k_base (JTokkit), sin llamar a la API
+ * - Presupuesto libre = máximo del cliente - tokens fijos del servicio de IA - pregunta
+ * - Contexto: los chunks llegan ordenados por score; se incluyen en ese orden y el último que no
+ *   cabe entero se recorta (o se descarta si quedaría por debajo de min-chunk-tokens)
+ * - Historial: llega del más reciente al más antiguo; cada mensaje se recorta a
+ *   max-history-message-tokens y se incluyen los más recientes que quepan en su parte
+ *   (history-share) más lo que el contexto no haya usado
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PromptTokenBudgeter {
+
+    private final PromptBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+
+    private DistributionSummary estimatedTokens;
+    private Counter droppedChunks;
+    private Counter truncatedChunks;
+    private Counter droppedHistory;
+
+    @PostConstruct
+    public void initMetrics() {
+        estimatedTokens = DistributionSummary.builder("ai.prompt.tokens.estimated")
+                .description("Tokens estimados del prompt después de aplicar el presupuesto")
+                .baseUnit("tokens")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        droppedChunks = meterRegistry.counter("ai.prompt.budget.trimmed", "part", "context", "action", "dropped");
+        truncatedChunks = meterRegistry.counter("ai.prompt.budget.trimmed", "part", "context", "action", "truncated");
+        droppedHistory = meterRegistry.counter("ai.prompt.budget.trimmed", "part", "history", "action", "dropped");
+    }
+
+    /**
+     * @param context Chunks que entran al prompt, en orden de relevancia
+     * @param history Historial que entra al prompt, del más reciente al más antiguo
+     * @param estimatedTokens Tokens estimados del prompt completo
+     */
+    public record Budgeted(List<String> context, List<Map<String, String>> history, int estimatedTokens) {}
+
+    /**
+     * @param clientId ID del cliente (para el override de presupuesto), o null
+     * @param fixedTokens Tokens que el servicio de IA agrega siempre (prompt de sistema, plantilla)
+     */
+    public Budgeted fit(String clientId, String userMessage, List<String> context,
+                        List<Map<String, String>> history, int fixedTokens) {
+        int maxTokens = properties.maxTokensFor(clientId);
+        int used = fixedTokens + tokenCounter.estimate(userMessage);
+        int free = Math.max(0, maxTokens - used);
+
+        int historyReserve = (int) (free * properties.getHistoryShare());
+        List<String> keptContext = fitContext(context, free - historyReserve);
+        int contextTokens = 0;
+        for (String chunk : keptContext) {
+            contextTokens += tokenCounter.estimate(chunk);
+        }
+
+        List<Map<String, String>> keptHistory = fitHistory(history, free - contextTokens);
+        int historyTokens = 0;
+        for (Map<String, String> entry : keptHistory) {
+            historyTokens += tokenCounter.estimate(entry.getOrDefault("content", ""));
+        }
+
+        int total = used + contextTokens + historyTokens;
+        estimatedTokens.record(total);
+        if (keptContext.size() < sizeOf(context) || keptHistory.size() < sizeOf(history)) {
+            log.info("Prompt ajustado a {} de {} tokens: contexto {}/{}, historial {}/{}",
+                    total, maxTokens, keptContext.size(), sizeOf(context), keptHistory.size(), sizeOf(history));
+        }
+        return new Budgeted(keptContext, keptHistory, total);
+    }
+
+    private List<String> fitContext(List<String> context, int budget) {
+        List<String> kept = new ArrayList<>();
+        if (context == null) {
+            return kept;
+        }
+        int remaining = budget;
+        for (int i = 0; i < context.size(); i++) {
+            String chunk = context.get(i);
+            int tokens = tokenCounter.estimate(chunk);
+            if (tokens <= remaining) {
+                kept.add(chunk);
+                remaining -= tokens;
+                continue;
+            }
+            if (remaining >= properties.getMinChunkTokens()) {
+                kept.add(truncate(chunk, tokens, remaining));
+                truncatedChunks.increment();
+                i++;
+            }
+            droppedChunks.increment(context.size() - i);
+            break;
+        }
+        return kept;
+    }
+
+    private List<Map<String, String>> fitHistory(List<Map<String, String>> history, int budget) {
+        List<Map<String, String>> kept = new ArrayList<>();
+        if (history == null) {
+            return kept;
+        }
+        int remaining = budget;
+        for (Map<String, String> entry : history) {
+            String content = entry.getOrDefault("content", "");
+            int tokens = tokenCounter.estimate(content);
+            if (tokens > properties.getMaxHistoryMessageTokens()) {
+                content = truncate(content, tokens, properties.getMaxHistoryMessageTokens());
+                tokens = tokenCounter.estimate(content);
+            }
+            if (tokens > remaining) {
+                break;
+            }
+            Map<String, String> trimmed = new HashMap<>(entry);
+            trimmed.put("content", content);
+            kept.add(trimmed);
+            remaining -= tokens;
+        }
+        droppedHistory.increment(history.size() - kept.size());
+        return kept;
+    }
+
+    /**
+     * Recorta el texto a como mucho {@code maxTokens}: corte proporcional en caracteres y
+     * reducción hasta que la estimación entra en el presupuesto
+     */
+    private String truncate(String text, int tokens, int maxTokens) {
+        int length = (int) ((long) text.length() * maxTokens / Math.max(tokens, 1));
+        String cut = text.substring(0, Math.min(length, text.length()));
+        while (!cut.isEmpty() && tokenCounter.estimate(cut + "…") > maxTokens) {
+            cut = cut.substring(0, cut.length() * 9 / 10);
+        }
+        return cut + "…";
+    }
+
+    private static int sizeOf(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+}
@@ -0,0 +1,303 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.dto.TextChunk;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Chunker recursivo por separadores, acotado por tokens
+ *
+ * - Lee la fuente línea a línea y agrupa párrafos (separados por líneas en blanco) hasta el máximo de tokens
+ * - Un párrafo que excede el máximo se divide recursivamente por líneas, oraciones, cláusulas y palabras
+ * - Entre fragmentos consecutivos se repiten los últimos segmentos (hasta el solapamiento configurado)
+ * - En modo heading-aware los encabezados Markdown cierran el fragmento actual y se anteponen a los siguientes
+ * - Los tokens se estiman con cl100k_base (JTokkit), el mismo tokenizador de los modelos de embeddings de OpenAI
+ */
+@Slf4j
+@Service
+public class RecursiveDocumentChunker implements DocumentChunker {
+
+    private static final Pattern HEADING = Pattern.compile("^\\s{0,3}#{1,6}\\s+(.+?)\\s*#*\\s*$");
+
+    /**
+     * Separadores en orden de preferencia para dividir un párrafo que excede el máximo
+     */
+    private static final List<String> SEPARATORS = List.of("\n", ". ", "; ", ", ", " ");
+
+    private static final String PARAGRAPH_JOINER = "\n\n";
+
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+
+    @Value("${app.kb.chunking.max-tokens:512}")
+    private int maxTokens;
+
+    @Value("${app.kb.chunking.overlap-tokens:64}")
+    private int overlapTokens;
+
+    @Value("${app.kb.chunking.heading-aware:true}")
+    private boolean headingAware;
+
+    @PostConstruct
+    public void init() {
+        if (maxTokens <= 0 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalStateException(
+                    "Configuración de chunking inválida: max-tokens=" + maxTokens + ", overlap-tokens=" + overlapTokens);
+        }
+        log.info("Chunker de documentos: máx {} tokens, solapamiento {} tokens, heading-aware: {}",
+                maxTokens, overlapTokens, headingAware);
+    }
+
+    @Override
+    public Stream<TextChunk> chunk(Reader source) {
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(new ChunkIterator(reader), Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        log.debug("Error cerrando fuente del documento: {}", e.getMessage());
+                    }
+                });
+    }
+
+    private record Segment(String text, int tokens, String joiner) {
+    }
+
+    /**
+     * Construye los fragmentos a medida que se consumen; solo retiene el párrafo y el fragmento en curso
+     */
+    private final class ChunkIterator implements Iterator<TextChunk> {
+
+        private final BufferedReader reader;
+        private final Deque<TextChunk> ready = new ArrayDeque<>();
+        private final Deque<Segment> window = new ArrayDeque<>();
+        private final StringBuilder paragraph = new StringBuilder();
+        private int windowTokens;
+        private int freshSegments;
+        private String heading;
+        private int headingTokens;
+        private int index;
+        private boolean finished;
+
+        private ChunkIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && !finished) {
+                advance();
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public TextChunk next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        private void advance() {
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error leyendo documento para chunking", e);
+            }
+
+            if (line == null) {
+                endParagraph();
+                emit(false);
+                finished = true;
+                return;
+            }
+
+            Matcher matcher = headingAware ? HEADING.matcher(line) : null;
+            if (matcher != null && matcher.matches()) {
+                // Nueva sección: se cierra el fragmento actual sin solapamiento
+                endParagraph();
+                emit(false);
+                window.clear();
+                windowTokens = 0;
+                heading = matcher.group(1).strip();
+                headingTokens = tokenCounter.estimate(heading) + 1;
+                return;
+            }
+
+            if (line.isBlank()) {
+                endParagraph();
+                return;
+            }
+
+            if (!paragraph.isEmpty()) {
+                paragraph.append('\n');
+            }
+            paragraph.append(line.stripTrailing());
+
+            // Evita acumular párrafos gigantes (p. ej. texto extraído sin líneas en blanco)
+            if (paragraph.length() > maxTokens * 16) {
+                endParagraph();
+            }
+        }
+
+        /**
+         * Presupuesto de tokens del cuerpo del fragmento, descontando el encabezado antepuesto
+         */
+        private int budget() {
+            return heading == null ? maxTokens : Math.max(maxTokens - headingTokens, maxTokens / 2);
+        }
+
+        private void endParagraph() {
+            if (paragraph.isEmpty()) {
+                return;
+            }
+            String text = paragraph.toString();
+            paragraph.setLength(0);
+            addPieces(text, PARAGRAPH_JOINER, 0);
+        }
+
+        /**
+         * Agrega un texto como segmento, dividiéndolo recursivamente si excede el presupuesto
+         */
+        private void addPieces(String text, String joiner, int level) {
+            int tokens = tokenCounter.estimate(text);
+            if (tokens <= budget()) {
+                add(new Segment(text, tokens, joiner));
+                return;
+            }
+            if (level >= SEPARATORS.size()) {
+                hardSplit(text, tokens, joiner);
+                return;
+            }
+
+            String separator = SEPARATORS.get(level);
+            List<String> parts = split(text, separator);
+            if (parts.size() <= 1) {
+                addPieces(text, joiner, level + 1);
+                return;
+            }
+
+            String innerJoiner = separator.equals("\n") ? "\n" : " ";
+            for (int i = 0; i < parts.size(); i++) {
+                addPieces(parts.get(i), i == 0 ? joiner : innerJoiner, level + 1);
+            }
+        }
+
+        /**
+         * Último recurso para textos sin separadores (p. ej. URLs o base64): corte por caracteres
+         */
+        private void hardSplit(String text, int tokens, String joiner) {
+            int charsPerPiece = Math.max(1, (int) ((long) text.length() * budget() / tokens));
+            for (int start = 0; start < text.length(); start += charsPerPiece) {
+                String piece = text.substring(start, Math.min(start + charsPerPiece, text.length()));
+                add(new Segment(piece, tokenCounter.estimate(piece), start == 0 ? joiner : ""));
+            }
+        }
+
+        private void add(Segment segment) {
+            int budget = budget();
+            if (!window.isEmpty() && windowTokens + segment.tokens() > budget) {
+                emit(true);
+                // Si el solapamiento no deja espacio para el segmento nuevo, se recorta
+                while (!window.isEmpty() && windowTokens + segment.tokens() > budget) {
+                    windowTokens -= window.removeFirst().tokens();
+                }
+            }
+            window.addLast(segment);
+            windowTokens += segment.tokens();
+            freshSegments++;
+        }
+
+        private void emit(boolean keepOverlap) {
+            if (freshSegments == 0) {
+                return;
+            }
+
+            StringBuilder content = new StringBuilder();
+            if (heading != null) {
+                content.append(heading).append(PARAGRAPH_JOINER);
+            }
+            boolean first = true;
+            for (Segment segment : window) {
+                if (!first) {
+                    content.append(segment.joiner());
+                }
+                content.append(segment.text());
+                first = false;
+            }
+
+            String text = content.toString();
+            ready.add(new TextChunk(index++, text, tokenCounter.estimate(text), heading));
+            freshSegments = 0;
+
+            if (!keepOverlap || overlapTokens == 0) {
+                window.clear();
+                windowTokens = 0;
+                return;
+            }
+
+            // Conservar los últimos segmentos como contexto del siguiente fragmento
+            Deque<Segment> tail = new ArrayDeque<>();
+            int kept = 0;
+            Iterator<Segment> it = window.descendingIterator();
+            while (it.hasNext()) {
+                Segment segment = it.next();
+                if (kept + segment.tokens() > overlapTokens) {
+                    break;
+                }
+                tail.addFirst(segment);
+                kept += segment.tokens();
+            }
+            window.clear();
+            window.addAll(tail);
+            windowTokens = kept;
+        }
+    }
+
+    /**
+     * Divide por el separador conservando la puntuación (". " -> "oración.")
+     */
+    private static List<String> split(String text, String separator) {
+        String kept = separator.strip();
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int pos;
+        while ((pos = text.indexOf(separator, start)) >= 0) {
+            String part = text.substring(start, pos) + kept;
+            if (!part.isBlank()) {
+                parts.add(part);
+            }
+            start = pos + separator.length();
+        }
+        String last = text.substring(start);
+        if (!last.isBlank()) {
+            parts.add(last);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,91 @@
+package com.relative.chat.bot.ia.application.services;
+
+import java.util.function.Consumer;
+
+/**
+ * Agrupa los fragmentos de una respuesta en streaming en segmentos enviables como mensajes
+ *
+ * - Corta en saltos de párrafo y en fin de oración (. ! ? … seguidos de espacio), nunca dentro de
+ *   una URL o un número decimal
+ * - Un segmento por fin de oración debe tener al menos {@code minChars} caracteres, para no enviar
+ *   mensajes de pocas palabras; los párrafos se envían siempre
+ * - Como mucho {@code maxSegments}: el último segmento acumula el resto de la respuesta
+ *
+ * No es thread-safe: una instancia por respuesta.
+ */
+public class ResponseSegmenter {
+
+    private final int minChars;
+    private final int maxSegments;
+    private final Consumer<String> onSegment;
+    private final StringBuilder buffer = new StringBuilder();
+    private int emitted;
+
+    public ResponseSegmenter(int minChars, int maxSegments, Consumer<String> onSegment) {
+        this.minChars = minChars;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.onSegment = onSegment;
+    }
+
+    /**
+     * Agrega un fragmento (tokens) de la respuesta y emite los segmentos que quedan completos
+     */
+    public void accept(String fragment) {
+        if (fragment == null || fragment.isEmpty()) {
+            return;
+        }
+        buffer.append(fragment);
+
+        int cut;
+        while (emitted < maxSegments - 1 && (cut = findCut()) > 0) {
+            emit(buffer.substring(0, cut));
+            buffer.delete(0, cut);
+        }
+    }
+
+    /**
+     * Emite lo que quede en el buffer al terminar la respuesta
+     */
+    public void flush() {
+        emit(buffer.toString());
+        buffer.setLength(0);
+    }
+
+    public int emittedSegments() {
+        return emitted;
+    }
+
+    /**
+     * Posición de corte (exclusiva) del primer segmento completo, o -1 si aún no hay ninguno
+     */
+    private int findCut() {
+        // Espacios iniciales (p. ej. tras un corte de párrafo) no forman parte del segmento
+        int leading = 0;
+        while (leading < buffer.length() && Character.isWhitespace(buffer.charAt(leading))) {
+            leading++;
+        }
+        buffer.delete(0, leading);
+
+        int paragraph = buffer.indexOf("\n\n");
+        if (paragraph > 0) {
+            return paragraph + 2;
+        }
+
+        // Fin de oración: el signo debe ir seguido de un espacio ya recibido
+        for (int i = Math.max(0, minChars - 1); i < buffer.length() - 1; i++) {
+            char c = buffer.charAt(i);
+            if ((c == '.' || c == '!' || c == '?' || c == '…') && Character.isWhitespace(buffer.charAt(i + 1))) {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private void emit(String segment) {
+        String trimmed = segment.strip();
+        if (!trimmed.isEmpty()) {
+            emitted++;
+            onSegment.accept(trimmed);
+        }
+    }
+}
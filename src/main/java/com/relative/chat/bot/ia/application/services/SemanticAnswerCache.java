@@ -0,0 +1,172 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.dto.KnowledgeBaseChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché semántica de respuestas por Knowledge Base
+ *
+ * Reutiliza la respuesta del modelo de chat cuando una pregunta nueva:
+ * - Tiene un embedding a distancia coseno menor o igual a la configurada de una pregunta reciente
+ * - Recuperó exactamente los mismos chunks del KB
+ *
+ * Las entradas de un namespace se descartan cuando su KB cambia ({@link KnowledgeBaseChangedEvent}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SemanticAnswerCache {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Deque<CachedAnswer>> byNamespace = new ConcurrentHashMap<>();
+
+    @Value("${app.ai.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.answer-cache.max-distance:0.05}")
+    private double maxDistance;
+
+    @Value("${app.ai.answer-cache.max-entries-per-namespace:500}")
+    private int maxEntriesPerNamespace;
+
+    @Value("${app.ai.answer-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter invalidations;
+
+    @PostConstruct
+    public void init() {
+        hits = meterRegistry.counter("ai.answer.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("ai.answer.cache.requests", "result", "miss");
+        invalidations = meterRegistry.counter("ai.answer.cache.invalidations");
+        log.info("Caché semántica de respuestas: {} (distancia máx {}, {} entradas por namespace, TTL {} min)",
+                enabled, maxDistance, maxEntriesPerNamespace, ttlMinutes);
+    }
+
+    /**
+     * Busca una respuesta reutilizable para la pregunta
+     *
+     * @param namespace Namespace del KB
+     * @param embedding Embedding de la pregunta
+     * @param chunkIds IDs de los chunks recuperados para la pregunta
+     * @return Respuesta cacheada si existe una pregunta equivalente
+     */
+    public Optional<String> lookup(String namespace, float[] embedding, List<String> chunkIds) {
+        if (!enabled || embedding == null || chunkIds.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Deque<CachedAnswer> entries = byNamespace.get(namespace);
+        if (entries != null) {
+            Set<String> chunkSet = new HashSet<>(chunkIds);
+            float norm = norm(embedding);
+            long now = System.nanoTime();
+
+            synchronized (entries) {
+                Iterator<CachedAnswer> it = entries.iterator();
+                while (it.hasNext()) {
+                    CachedAnswer entry = it.next();
+                    if (isExpired(entry, now)) {
+                        it.remove();
+                        continue;
+                    }
+                    if (entry.chunkIds().equals(chunkSet)
+                            && cosineDistance(embedding, norm, entry.embedding(), entry.norm()) <= maxDistance) {
+                        hits.increment();
+                        log.debug("Respuesta reutilizada desde caché semántica en namespace {}", namespace);
+                        return Optional.of(entry.answer());
+                    }
+                }
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Guarda la respuesta generada para una pregunta
+     */
+    public void store(String namespace, float[] embedding, List<String> chunkIds, String answer) {
+        if (!enabled || embedding == null || chunkIds.isEmpty() || answer == null || answer.isBlank()) {
+            return;
+        }
+
+        CachedAnswer entry = new CachedAnswer(
+                embedding.clone(), norm(embedding), Set.copyOf(chunkIds), answer, System.nanoTime());
+        Deque<CachedAnswer> entries = byNamespace.computeIfAbsent(namespace, ns -> new ArrayDeque<>());
+        synchronized (entries) {
+            // Las más recientes primero; se descarta la más antigua al superar el límite
+            entries.addFirst(entry);
+            while (entries.size() > maxEntriesPerNamespace) {
+                entries.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Descarta todas las respuestas cacheadas de un namespace
+     */
+    public void invalidate(String namespace) {
+        if (byNamespace.remove(namespace) != null) {
+            invalidations.increment();
+            log.info("Caché semántica invalidada para namespace {}", namespace);
+        }
+    }
+
+    /**
+     * Invalida el namespace una vez confirmada la transacción que modificó el KB
+     * (o de inmediato si el cambio ocurrió fuera de una transacción)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKnowledgeBaseChanged(KnowledgeBaseChangedEvent event) {
+        invalidate(event.namespace());
+    }
+
+    private boolean isExpired(CachedAnswer entry, long now) {
+        return ttlMinutes > 0 && now - entry.createdAtNanos() > TimeUnit.MINUTES.toNanos(ttlMinutes);
+    }
+
+    private static float norm(float[] v) {
+        double sum = 0;
+        for (float x : v) {
+            sum += x * x;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private static double cosineDistance(float[] a, float normA, float[] b, float normB) {
+        if (a.length != b.length || normA == 0 || normB == 0) {
+            return 1.0;
+        }
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return 1.0 - dot / ((double) normA * normB);
+    }
+
+    private record CachedAnswer(float[] embedding, float norm, Set<String> chunkIds, String answer, long createdAtNanos) {
+    }
+}
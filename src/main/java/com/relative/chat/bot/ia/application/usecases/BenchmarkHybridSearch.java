@@ -0,0 +1,135 @@
+package com.relative.chat.bot.ia.application.usecases;
+
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
+import com.relative.chat.bot.ia.application.ports.out.VectorStore;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.ports.knowledge.KbRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Use Case: Medir la búsqueda híbrida (léxica + vectorial) frente a la solo vectorial en un Knowledge Base
+ *
+ * - Consultas de muestra: fragmentos cortos (pocas palabras) de chunks del propio KB, como los códigos
+ *   o nombres propios que el embedding suele fallar; el chunk de origen es el resultado esperado
+ * - Recall@k: fracción de consultas cuyo chunk de origen aparece en los k primeros resultados
+ * - Latencia: solo la búsqueda (el embedding de cada consulta se calcula una vez y se reutiliza)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BenchmarkHybridSearch {
+
+    private final VectorStore vectorStore;
+    private final EmbeddingsPort embeddings;
+    private final KbRepository kbRepository;
+
+    /**
+     * @param vectorRecall Recall@k de la búsqueda solo vectorial
+     * @param hybridRecall Recall@k de la búsqueda híbrida
+     */
+    public record Report(
+            UUID kbId,
+            int k,
+            int samples,
+            int queryWords,
+            double vectorRecall,
+            double hybridRecall,
+            double vectorP50Ms,
+            double vectorP95Ms,
+            double hybridP50Ms,
+            double hybridP95Ms
+    ) {}
+
+    /**
+     * @param k Resultados por consulta
+     * @param samples Consultas de muestra
+     * @param queryWords Palabras de cada consulta
+     */
+    public Report handle(UUID kbId, int k, int samples, int queryWords) {
+        if (k <= 0 || samples <= 0 || queryWords <= 0) {
+            throw new IllegalArgumentException("k, samples y queryWords deben ser mayores a 0");
+        }
+        kbRepository.findById(UuidId.of(kbId))
+            .orElseThrow(() -> new IllegalArgumentException("Knowledge Base no encontrado: " + kbId));
+
+        String namespace = "kb_" + kbId;
+        // chunk_id es un UUID aleatorio: el primer lote por ID es una muestra sin sesgo del KB
+        List<VectorStore.VectorRecord> sample;
+        try (Stream<List<VectorStore.VectorRecord>> batches = vectorStore.streamAll(namespace, samples)) {
+            sample = batches.findFirst().orElse(List.of());
+        }
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("El KB " + kbId + " no tiene vectores");
+        }
+
+        Map<String, Object> vectorOnly = Map.of(VectorStore.SEARCH_MODE_FILTER, "vector");
+        Map<String, Object> hybrid = Map.of(VectorStore.SEARCH_MODE_FILTER, "hybrid");
+        double[] vectorMs = new double[sample.size()];
+        double[] hybridMs = new double[sample.size()];
+        int vectorHits = 0;
+        int hybridHits = 0;
+
+        for (int i = 0; i < sample.size(); i++) {
+            VectorStore.VectorRecord source = sample.get(i);
+            String query = sampleQuery(String.valueOf(source.payload().get("text")), queryWords, source.id().hashCode());
+            float[] embedding = embeddings.embedOne(query);
+
+            long start = System.nanoTime();
+            List<VectorStore.QueryResult> vectorResults = vectorStore.query(namespace, query, embedding, k, vectorOnly);
+            vectorMs[i] = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            List<VectorStore.QueryResult> hybridResults = vectorStore.query(namespace, query, embedding, k, hybrid);
+            hybridMs[i] = (System.nanoTime() - start) / 1_000_000.0;
+
+            if (containsId(vectorResults, source.id())) {
+                vectorHits++;
+            }
+            if (containsId(hybridResults, source.id())) {
+                hybridHits++;
+            }
+        }
+
+        Arrays.sort(vectorMs);
+        Arrays.sort(hybridMs);
+        Report report = new Report(
+                kbId, k, sample.size(), queryWords,
+                vectorHits / (double) sample.size(), hybridHits / (double) sample.size(),
+                percentile(vectorMs, 0.50), percentile(vectorMs, 0.95),
+                percentile(hybridMs, 0.50), percentile(hybridMs, 0.95)
+        );
+        log.info("Benchmark híbrido del KB {} ({} consultas de {} palabras): recall@{} vectorial {} / híbrida {}, "
+                        + "p50 {} ms / {} ms, p95 {} ms / {} ms",
+                kbId, report.samples(), queryWords, k,
+                String.format("%.3f", report.vectorRecall()), String.format("%.3f", report.hybridRecall()),
+                String.format("%.1f", report.vectorP50Ms()), String.format("%.1f", report.hybridP50Ms()),
+                String.format("%.1f", report.vectorP95Ms()), String.format("%.1f", report.hybridP95Ms()));
+        return report;
+    }
+
+    /**
+     * Ventana de {@code words} palabras consecutivas del texto, en una posición determinada por la semilla
+     */
+    static String sampleQuery(String text, int words, long seed) {
+        String[] tokens = text.strip().split("\\s+");
+        if (tokens.length <= words) {
+            return text.strip();
+        }
+        int start = new Random(seed).nextInt(tokens.length - words + 1);
+        return String.join(" ", Arrays.copyOfRange(tokens, start, start + words));
+    }
+
+    private static boolean containsId(List<VectorStore.QueryResult> results, String id) {
+        return results.stream().anyMatch(r -> id.equals(r.id()));
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -1,5 +1,7 @@
 package com.relative.chat.bot.ia.application.usecases;
 
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
+import com.relative.chat.bot.ia.application.ports.out.VectorStore;
 import com.relative.chat.bot.ia.domain.common.UuidId;
 import com.relative.chat.bot.ia.domain.identity.Client;
 import com.relative.chat.bot.ia.domain.knowledge.Kb;
@@ -9,6 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Objects;
+
 /**
  * Caso de uso: Crear un Knowledge Base
  */
@@ -18,6 +22,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class CreateKnowledgeBase {
     
     private final KbRepository kbRepository;
+    private final VectorStore vectorStore;
+    private final EmbeddingsPort embeddings;
     
     /**
      * Crea un nuevo Knowledge Base para un cliente
@@ -47,6 +53,15 @@ public class CreateKnowledgeBase {
         log.info("Knowledge Base creado: id={}, name={}, client={}", 
                 kb.id().value(), name, clientId.value());
         
+        // Partición de vectores del KB; si falla, los vectores van a la partición DEFAULT
+        // y la ingesta vuelve a intentarlo
+        try {
+            vectorStore.ensureNamespace("kb_" + kb.id().value(),
+                    Objects.requireNonNullElse(embeddings.dimensions(), 0));
+        } catch (Exception e) {
+            log.warn("No se pudo preparar el namespace vectorial del KB {}: {}", kb.id().value(), e.getMessage());
+        }
+        
         return kb;
     }
 }
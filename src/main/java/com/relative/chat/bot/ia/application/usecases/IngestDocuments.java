@@ -1,28 +1,41 @@
 package com.relative.chat.bot.ia.application.usecases;
 
+import com.relative.chat.bot.ia.application.dto.KnowledgeBaseChangedEvent;
+import com.relative.chat.bot.ia.application.dto.TextChunk;
 import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
 import com.relative.chat.bot.ia.application.ports.out.VectorStore;
+import com.relative.chat.bot.ia.application.services.DocumentChunker;
 import com.relative.chat.bot.ia.domain.common.UuidId;
 import com.relative.chat.bot.ia.domain.knowledge.Kb;
 import com.relative.chat.bot.ia.domain.knowledge.KbChunk;
 import com.relative.chat.bot.ia.domain.knowledge.KbDocument;
 import com.relative.chat.bot.ia.domain.model.Document;
 import com.relative.chat.bot.ia.domain.ports.knowledge.KbRepository;
+import com.relative.chat.bot.ia.domain.vo.ChecksumSha256;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Use Case: Ingestar documentos en el Knowledge Base
  * 
  * Proceso:
- * 1. Crear registros de documentos en la BD
- * 2. Dividir documentos en chunks
- * 3. Generar embeddings para cada chunk
- * 4. Persistir embeddings y referencias en vector store
+ * 1. Crear el documento en la BD, o reutilizar el existente con el mismo ID externo (sourceId)
+ * 2. Dividir documentos en chunks acotados por tokens ({@link DocumentChunker})
+ * 3. Generar embeddings por lotes, solo para chunks nuevos o modificados (se comparan por hash SHA-256)
+ * 4. Persistir chunks, embeddings y referencias en vector store a medida que se completa cada lote
+ * 5. Eliminar del vector store los chunks que ya no están en el documento
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -32,11 +45,100 @@ public class IngestDocuments {
     private final EmbeddingsPort embeddings;
     private final VectorStore vectorStore;
     private final KbRepository kbRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentChunker chunker;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
     
-    @Transactional
+    /**
+     * Chunks acumulados antes de generar embeddings y persistirlos en el vector store
+     */
+    @Value("${app.kb.ingest.embedding-batch-size:256}")
+    private int embeddingBatchSize;
+    
+    private Counter embeddedCounter;
+    private Counter reusedCounter;
+    private Counter deletedCounter;
+    
+    @PostConstruct
+    public void initMetrics() {
+        embeddedCounter = meterRegistry.counter("kb.ingest.chunks", "result", "embedded");
+        reusedCounter = meterRegistry.counter("kb.ingest.chunks", "result", "reused");
+        deletedCounter = meterRegistry.counter("kb.ingest.chunks", "result", "deleted");
+    }
+    
+    /**
+     * Ingesta síncrona de documentos de texto. Cada documento y cada lote de chunks se persiste
+     * en su propia transacción: las llamadas a OpenAI no mantienen una transacción abierta.
+     */
     public void handle(String namespace, List<Document> docs) {
         log.info("Iniciando ingesta de {} documentos en namespace '{}'", docs.size(), namespace);
         
+        Kb kb = requireKb(namespace);
+        log.info("Ingesta en KB: {} (Cliente: {})", kb.name(), kb.clientId().value());
+        ensureNamespace(namespace);
+        
+        int totalChunks = 0;
+        for (Document doc : docs) {
+            totalChunks += ingest(namespace, kb, doc.id(), doc.metadata(), (long) doc.text().length(),
+                    new StringReader(doc.text()), null, (documentId, stored) -> {});
+        }
+        
+        // Invalidar cachés del namespace
+        eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(namespace, "ingest"));
+        
+        log.info("✅ Ingesta completada: {} documentos, {} chunks", docs.size(), totalChunks);
+    }
+    
+    /**
+     * Notificado dentro de la transacción que crea el documento o persiste un lote de chunks,
+     * de modo que el checkpoint queda consistente con los datos
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        void onCheckpoint(UuidId<KbDocument> documentId, int chunksStored);
+    }
+    
+    /**
+     * Ingesta un documento leyendo su texto de forma incremental (p. ej. un PDF página a página).
+     * Cada lote de chunks se persiste en su propia transacción, por lo que el progreso es visible
+     * mientras avanza y la memoria no depende del tamaño del documento.
+     *
+     * @param namespace Namespace del KB (kb_<uuid>)
+     * @param sourceId ID externo del documento
+     * @param metadata Metadata del documento (source, filename, mimeType, language...)
+     * @param source Texto del documento
+     * @param documentId Documento creado por un intento anterior, o null para buscarlo por sourceId
+     * @param checkpoint Notificado con el total de chunks persistidos tras cada lote
+     * @return Número total de chunks del documento
+     */
+    public int ingestStream(String namespace, String sourceId, Map<String, Object> metadata,
+                            Reader source, UuidId<KbDocument> documentId, Checkpoint checkpoint) {
+        Kb kb = requireKb(namespace);
+        log.info("Iniciando ingesta incremental de '{}' en KB {}", metadata.getOrDefault("filename", sourceId), kb.name());
+        ensureNamespace(namespace);
+        
+        int totalChunks = ingest(namespace, kb, sourceId, metadata, null, source, documentId, checkpoint);
+        
+        eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(namespace, "ingest"));
+        log.info("✅ Ingesta incremental completada: {} chunks", totalChunks);
+        return totalChunks;
+    }
+    
+    /**
+     * Prepara el namespace en el vector store (p. ej. la partición pgvector del KB) antes de abrir
+     * transacciones que escriban embeddings
+     */
+    private void ensureNamespace(String namespace) {
+        vectorStore.ensureNamespace(namespace, Objects.requireNonNullElse(embeddings.dimensions(), 0));
+    }
+    
+    /**
+     * Resuelve y valida el Knowledge Base de un namespace
+     *
+     * @throws IllegalArgumentException si el namespace es inválido o el KB no existe
+     */
+    public Kb requireKb(String namespace) {
         // Extraer kbId del namespace (formato: "kb_<uuid>")
         UUID kbId = extractKbIdFromNamespace(namespace);
         if (kbId == null) {
@@ -44,72 +146,170 @@ public class IngestDocuments {
         }
         
         // Verificar que el KB existe
-        Optional<Kb> kbOpt = kbRepository.findById(UuidId.of(kbId));
-        if (kbOpt.isEmpty()) {
-            throw new IllegalArgumentException("Knowledge Base no encontrado: " + kbId);
-        }
-        
-        Kb kb = kbOpt.get();
-        log.info("Ingesta en KB: {} (Cliente: {})", kb.name(), kb.clientId().value());
+        return kbRepository.findById(UuidId.of(kbId))
+            .orElseThrow(() -> new IllegalArgumentException("Knowledge Base no encontrado: " + kbId));
+    }
+    
+    private int ingest(String namespace, Kb kb, String sourceId, Map<String, Object> metadata, Long sizeBytes,
+                       Reader source, UuidId<KbDocument> documentId, Checkpoint checkpoint) {
+        // 1. Reutilizar el documento de un intento anterior o de una ingesta previa del mismo sourceId
+        //    (sin sourceId no se busca: los documentos previos a V16 no tienen source_id y coincidirían todos)
+        UuidId<KbDocument> existingId = documentId != null || sourceId == null || sourceId.isBlank()
+            ? documentId
+            : kbRepository.findDocumentBySourceId(kb.id(), sourceId).map(KbDocument::id).orElse(null);
         
-        // Listas para los vectores y records
-        List<String> textsToEmbed = new ArrayList<>();
-        List<KbChunk> chunks = new ArrayList<>();
+        // Chunks actuales del documento por hash de contenido (puede haber contenidos repetidos)
+        Map<String, Deque<UuidId<KbChunk>>> existing = new HashMap<>();
         
-        // Para cada documento, crear estructura en BD
-        for (Document doc : docs) {
-            // 1. Crear KbDocument
+        UuidId<KbDocument> docId;
+        if (existingId == null) {
             KbDocument kbDoc = new KbDocument(
                 UuidId.of(UUID.randomUUID()),
-                UuidId.of(kbId),
-                doc.metadata().getOrDefault("source", "unknown").toString(),
-                doc.id(),
-                doc.metadata().getOrDefault("filename", "document.txt").toString(),
-                doc.metadata().getOrDefault("mimeType", "text/plain").toString(),
-                (long) doc.text().length(),
+                kb.id(),
+                metadata.getOrDefault("source", "unknown").toString(),
+                sourceId,
+                metadata.getOrDefault("filename", "document.txt").toString(),
+                metadata.getOrDefault("mimeType", "text/plain").toString(),
+                sizeBytes,
                 null,
-                doc.metadata().getOrDefault("language", "es").toString()
+                metadata.getOrDefault("language", "es").toString()
             );
-            
-            kbRepository.saveDocument(kbDoc);
-            log.debug("Documento creado: {}", kbDoc.id().value());
-            
-            // 2. Dividir en chunks (por ahora, 1 documento = 1 chunk)
-            // TODO: Implementar chunking más inteligente (por tamaño, párrafos, etc.)
-            KbChunk chunk = new KbChunk(
-                UuidId.of(UUID.randomUUID()),
-                kbDoc.id(),
-                0, // index
-                doc.text(),
-                null // tokens (calcularlo si es necesario)
-            );
-            
-            kbRepository.saveChunk(chunk);
-            log.debug("Chunk creado: {} para documento {}", chunk.id().value(), kbDoc.id().value());
-            
-            chunks.add(chunk);
-            textsToEmbed.add(doc.text());
+            transactionTemplate.executeWithoutResult(status -> {
+                kbRepository.saveDocument(kbDoc);
+                checkpoint.onCheckpoint(kbDoc.id(), 0);
+            });
+            docId = kbDoc.id();
+            log.debug("Documento creado: {}", docId.value());
+        } else {
+            docId = existingId;
+            transactionTemplate.executeWithoutResult(status -> {
+                kbRepository.releaseChunkIndexes(existingId);
+                checkpoint.onCheckpoint(existingId, 0);
+            });
+            kbRepository.chunkHashesOf(existingId).forEach((chunkId, hash) ->
+                existing.computeIfAbsent(hash, h -> new ArrayDeque<>()).add(chunkId));
+            log.info("Re-ingesta del documento {} ({} chunks existentes)", docId.value(),
+                existing.values().stream().mapToInt(Deque::size).sum());
         }
         
+        // 2. Dividir en chunks acotados por tokens; los nuevos se embeben y persisten por lotes,
+        //    los que no cambiaron solo se reubican en su nuevo índice
+        Batch batch = new Batch(embeddingBatchSize);
+        int totalChunks = 0;
+        int reused = 0;
+        
+        try (Stream<TextChunk> textChunks = chunker.chunk(source)) {
+            Iterator<TextChunk> it = textChunks.iterator();
+            while (it.hasNext()) {
+                TextChunk textChunk = it.next();
+                totalChunks++;
+                
+                String hash = ChecksumSha256.of(textChunk.content()).hex();
+                Deque<UuidId<KbChunk>> sameContent = existing.get(hash);
+                if (sameContent != null && !sameContent.isEmpty()) {
+                    batch.reused.put(sameContent.poll(), textChunk.index());
+                    reused++;
+                } else {
+                    KbChunk chunk = new KbChunk(
+                        UuidId.of(UUID.randomUUID()),
+                        docId,
+                        textChunk.index(),
+                        textChunk.content(),
+                        textChunk.tokens(),
+                        hash
+                    );
+                    batch.pending.add(new PendingChunk(chunk, textChunk.heading(), metadata));
+                }
+                
+                if (batch.isFull()) {
+                    flush(namespace, kb, docId, batch, checkpoint);
+                }
+            }
+        }
+        flush(namespace, kb, docId, batch, checkpoint);
+        
+        // Chunks que ya no forman parte del documento
+        List<String> removed = existing.values().stream()
+            .flatMap(Collection::stream)
+            .map(chunkId -> chunkId.value().toString())
+            .toList();
+        if (!removed.isEmpty()) {
+            vectorStore.delete(namespace, removed);
+        }
+        
+        embeddedCounter.increment(totalChunks - reused);
+        reusedCounter.increment(reused);
+        deletedCounter.increment(removed.size());
+        
+        log.info("Documento {}: {} chunks ({} nuevos o modificados, {} sin cambios, {} eliminados)",
+            docId.value(), totalChunks, totalChunks - reused, reused, removed.size());
+        return totalChunks;
+    }
+    
+    /**
+     * Lote en curso: chunks nuevos a embeber y chunks existentes reutilizados con su nuevo índice
+     */
+    private static final class Batch {
+        private final int maxSize;
+        private final List<PendingChunk> pending;
+        private final Map<UuidId<KbChunk>, Integer> reused = new HashMap<>();
+        private int stored;
+        
+        private Batch(int maxSize) {
+            this.maxSize = maxSize;
+            this.pending = new ArrayList<>(maxSize);
+        }
+        
+        private boolean isFull() {
+            return pending.size() >= maxSize || reused.size() >= maxSize;
+        }
+        
+        private boolean isEmpty() {
+            return pending.isEmpty() && reused.isEmpty();
+        }
+    }
+    
+    /**
+     * Chunk a la espera de su embedding
+     */
+    private record PendingChunk(KbChunk chunk, String heading, Map<String, Object> documentMetadata) {}
+    
+    /**
+     * Genera los embeddings de los chunks nuevos (fuera de transacción) y persiste chunks,
+     * vectores, índices de los chunks reutilizados y checkpoint en una transacción corta
+     */
+    private void flush(String namespace, Kb kb, UuidId<KbDocument> documentId, Batch batch, Checkpoint checkpoint) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PendingChunk> pending = batch.pending;
+        
         // 3. Generar embeddings en batch
-        log.info("Generando {} embeddings...", textsToEmbed.size());
-        List<float[]> vectors = embeddings.embedMany(textsToEmbed);
+        List<float[]> vectors = List.of();
+        if (!pending.isEmpty()) {
+            log.info("Generando {} embeddings...", pending.size());
+            vectors = embeddings.embedMany(pending.stream().map(p -> p.chunk().content()).toList());
+        }
         
         // 4. Crear VectorRecords con metadata completa
-        List<VectorStore.VectorRecord> records = new ArrayList<>();
+        List<VectorStore.VectorRecord> records = new ArrayList<>(pending.size());
         
-        for (int i = 0; i < chunks.size(); i++) {
-            KbChunk chunk = chunks.get(i);
+        for (int i = 0; i < pending.size(); i++) {
+            KbChunk chunk = pending.get(i).chunk();
             float[] vector = vectors.get(i);
             
             // Metadata enriquecida para búsqueda
-            Map<String, Object> metadata = new HashMap<>(docs.get(i).metadata());
+            Map<String, Object> metadata = new HashMap<>(pending.get(i).documentMetadata());
             metadata.put("chunk_id", chunk.id().value().toString());
             metadata.put("document_id", chunk.documentId().value().toString());
-            metadata.put("kb_id", kbId.toString());
+            metadata.put("kb_id", kb.id().value().toString());
             metadata.put("client_id", kb.clientId().value().toString());
             metadata.put("text", chunk.content());
             metadata.put("chunk_index", chunk.index());
+            metadata.put("tokens", chunk.tokens());
+            if (pending.get(i).heading() != null) {
+                metadata.put("heading", pending.get(i).heading());
+            }
             
             records.add(new VectorStore.VectorRecord(
                 chunk.id().value().toString(),
@@ -118,11 +318,20 @@ public class IngestDocuments {
             ));
         }
         
-        // 5. Persistir en vector store (esto creará los embeddings y referencias)
-        vectorStore.upsert(namespace, records);
+        // 5. Persistir chunks y vectores (esto creará los embeddings y referencias)
+        int stored = batch.stored + pending.size() + batch.reused.size();
+        transactionTemplate.executeWithoutResult(status -> {
+            kbRepository.reindexChunks(batch.reused);
+            pending.forEach(p -> kbRepository.saveChunk(p.chunk()));
+            if (!records.isEmpty()) {
+                vectorStore.upsert(namespace, records);
+            }
+            checkpoint.onCheckpoint(documentId, stored);
+        });
         
-        log.info("✅ Ingesta completada: {} documentos, {} chunks, {} embeddings", 
-                 docs.size(), chunks.size(), vectors.size());
+        batch.stored = stored;
+        pending.clear();
+        batch.reused.clear();
     }
     
     /**
@@ -0,0 +1,77 @@
+package com.relative.chat.bot.ia.application.usecases;
+
+import com.relative.chat.bot.ia.application.ports.out.VectorIndexManager;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.ports.knowledge.KbRepository;
+import com.relative.chat.bot.ia.domain.types.VectorIndexType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Use Case: Administrar el índice vectorial y los parámetros de búsqueda ANN por Knowledge Base
+ *
+ * Solo disponible con el vector store pgvector (app.vector-store.provider=pgvector).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ManageVectorIndex {
+    
+    private final ObjectProvider<VectorIndexManager> indexManager;
+    private final KbRepository kbRepository;
+    
+    public VectorIndexManager.IndexStatus status() {
+        return manager().status();
+    }
+    
+    /**
+     * @return false si ya hay una reconstrucción en curso
+     */
+    public boolean rebuild(VectorIndexType type) {
+        log.info("Solicitada reconstrucción del índice vectorial: {}", type);
+        return manager().rebuild(type);
+    }
+    
+    public VectorIndexManager.SearchParams searchParams(UUID kbId) {
+        requireKb(kbId);
+        return manager().searchParams(kbId);
+    }
+    
+    public VectorIndexManager.SearchParams updateSearchParams(UUID kbId, Integer probes, Integer efSearch,
+                                                             Boolean hybrid, Integer rrfK) {
+        requireKb(kbId);
+        if ((probes != null && probes <= 0) || (efSearch != null && efSearch <= 0) || (rrfK != null && rrfK <= 0)) {
+            throw new IllegalArgumentException("probes, efSearch y rrfK deben ser mayores a 0");
+        }
+        manager().updateSearchParams(kbId, new VectorIndexManager.SearchParams(probes, efSearch, hybrid, rrfK));
+        return manager().searchParams(kbId);
+    }
+    
+    /**
+     * Recall@k de la búsqueda ANN frente a la búsqueda exacta, con latencias de ambas
+     */
+    public VectorIndexManager.RecallReport measureRecall(UUID kbId, int k, int samples) {
+        requireKb(kbId);
+        if (k <= 0 || samples <= 0) {
+            throw new IllegalArgumentException("k y samples deben ser mayores a 0");
+        }
+        return manager().measureRecall(kbId, k, samples);
+    }
+    
+    private void requireKb(UUID kbId) {
+        kbRepository.findById(UuidId.of(kbId))
+            .orElseThrow(() -> new IllegalArgumentException("Knowledge Base no encontrado: " + kbId));
+    }
+    
+    private VectorIndexManager manager() {
+        VectorIndexManager manager = indexManager.getIfAvailable();
+        if (manager == null) {
+            throw new IllegalStateException("La gestión de índices vectoriales requiere app.vector-store.provider=pgvector");
+        }
+        return manager;
+    }
+}
@@ -1,32 +1,185 @@
-
 package com.relative.chat.bot.ia.application.usecases;
 
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
+import com.relative.chat.bot.ia.application.ports.out.MigrationCheckpointStore;
 import com.relative.chat.bot.ia.application.ports.out.VectorStore;
-
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
-@Service @RequiredArgsConstructor
+/**
+ * Use Case: Migrar vectores entre namespaces o backends
+ *
+ * - El origen se lee en lotes ordenados por ID ({@link VectorStore#streamAll}) con memoria acotada
+ * - Hasta {@code parallelism} lotes se escriben en el destino a la vez; como mucho esos lotes están en memoria
+ * - El checkpoint (último ID) solo avanza sobre lotes contiguos ya escritos, por lo que reanudar nunca
+ *   omite vectores: a lo sumo reescribe algunos lotes (el upsert es idempotente)
+ * - Si la dimensión destino difiere de la del origen, los vectores se regeneran desde el texto del chunk
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
 public class MigrateVectors {
+    
     private final VectorStore source;
-
     private final VectorStore dest;
-
+    private final EmbeddingsPort embeddings;
+    private final MigrationCheckpointStore checkpoints;
+    private final MeterRegistry meterRegistry;
+    
     public long handle(String nsSource, String nsDest, int dim, int batchSize) {
+        return handle(nsSource, nsDest, dim, batchSize, 1, true);
+    }
+    
+    /**
+     * @param parallelism Lotes escritos en paralelo en el destino
+     * @param resume Continuar desde el último checkpoint de este par origen/destino
+     * @return Total de vectores migrados (incluye los de ejecuciones anteriores al reanudar)
+     */
+    public long handle(String nsSource, String nsDest, int dim, int batchSize, int parallelism, boolean resume) {
+        String migrationKey = nsSource + "->" + nsDest;
         dest.ensureNamespace(nsDest, dim);
-
-        long total = 0;
-
-        for (var batch : (Iterable<List<VectorStore.VectorRecord>>) () -> source.streamAll(nsSource, batchSize).iterator()) {
-            dest.upsert(nsDest, batch);
-
-            total += batch.size();
-
+        
+        Optional<MigrationCheckpointStore.Checkpoint> checkpoint = resume
+                ? checkpoints.find(migrationKey)
+                : Optional.empty();
+        Progress progress = new Progress(
+                migrationKey,
+                checkpoint.map(MigrationCheckpointStore.Checkpoint::lastId).orElse(null),
+                checkpoint.map(MigrationCheckpointStore.Checkpoint::migrated).orElse(0L)
+        );
+        checkpoint.ifPresent(c -> log.info("Reanudando migración {} desde {} ({} vectores ya migrados)",
+                migrationKey, c.lastId(), c.migrated()));
+        
+        Counter migratedCounter = meterRegistry.counter("vector.migration.vectors", "migration", migrationKey);
+        Timer batchTimer = Timer.builder("vector.migration.batch")
+                .description("Duración de la escritura de un lote de vectores en el destino")
+                .tag("migration", migrationKey)
+                .register(meterRegistry);
+        
+        log.info("Iniciando migración {} (dimensión {}, lotes de {}, {} en paralelo)",
+                migrationKey, dim, batchSize, parallelism);
+        
+        Semaphore inFlight = new Semaphore(parallelism);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<List<VectorStore.VectorRecord>> batches = source.streamAll(nsSource, batchSize, progress.lastId)) {
+            
+            Iterator<List<VectorStore.VectorRecord>> it = batches.iterator();
+            long sequence = 0;
+            while (failure.get() == null) {
+                // Reservar el hueco antes de leer el siguiente lote: acota la memoria a parallelism lotes
+                inFlight.acquire();
+                if (failure.get() != null || !it.hasNext()) {
+                    inFlight.release();
+                    break;
+                }
+                List<VectorStore.VectorRecord> batch = it.next();
+                long batchSequence = sequence++;
+                
+                executor.execute(() -> {
+                    try {
+                        batchTimer.record(() -> dest.upsert(nsDest, adaptDimensions(batch, dim)));
+                        migratedCounter.increment(batch.size());
+                        progress.completed(batchSequence, batch.get(batch.size() - 1).id(), batch.size());
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Migración " + migrationKey + " interrumpida en " + progress.lastId, e);
+        }
+        
+        if (failure.get() != null) {
+            throw new IllegalStateException("Migración " + migrationKey + " fallida; se puede reanudar desde "
+                    + progress.lastId, failure.get());
+        }
+        
+        checkpoints.clear(migrationKey);
+        log.info("✅ Migración {} completada: {} vectores", migrationKey, progress.migrated);
+        return progress.migrated;
+    }
+    
+    /**
+     * Regenera los embeddings del lote cuando su dimensión no coincide con la del destino
+     */
+    private List<VectorStore.VectorRecord> adaptDimensions(List<VectorStore.VectorRecord> batch, int dim) {
+        if (batch.stream().allMatch(r -> r.vector().length == dim)) {
+            return batch;
+        }
+        if (embeddings.dimensions() != null && embeddings.dimensions() != dim) {
+            throw new IllegalStateException("El modelo " + embeddings.model() + " genera " + embeddings.dimensions()
+                    + " dimensiones, el destino requiere " + dim);
+        }
+        
+        List<float[]> vectors = embeddings.embedMany(batch.stream()
+                .map(r -> String.valueOf(r.payload().get("text")))
+                .toList());
+        
+        List<VectorStore.VectorRecord> reembedded = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            VectorStore.VectorRecord record = batch.get(i);
+            reembedded.add(new VectorStore.VectorRecord(record.id(), vectors.get(i), record.payload()));
+        }
+        return reembedded;
+    }
+    
+    /**
+     * Avance de la migración. Los lotes pueden terminar en desorden; el checkpoint solo avanza
+     * hasta el último lote de la secuencia contigua de lotes terminados.
+     */
+    private final class Progress {
+        
+        private final String migrationKey;
+        private final Map<Long, CompletedBatch> completed = new HashMap<>();
+        private final long startNanos = System.nanoTime();
+        private final long migratedBefore;
+        private long nextSequence;
+        private String lastId;
+        private long migrated;
+        
+        private Progress(String migrationKey, String lastId, long migrated) {
+            this.migrationKey = migrationKey;
+            this.lastId = lastId;
+            this.migrated = migrated;
+            this.migratedBefore = migrated;
+        }
+        
+        private synchronized void completed(long sequence, String batchLastId, int size) {
+            completed.put(sequence, new CompletedBatch(batchLastId, size));
+            
+            CompletedBatch next;
+            boolean advanced = false;
+            while ((next = completed.remove(nextSequence)) != null) {
+                lastId = next.lastId();
+                migrated += next.size();
+                nextSequence++;
+                advanced = true;
+            }
+            
+            if (advanced) {
+                checkpoints.save(migrationKey, lastId, migrated);
+                double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+                log.info("Migración {}: {} vectores migrados hasta {} ({} vectores/s)", migrationKey, migrated, lastId,
+                        seconds > 0 ? Math.round((migrated - migratedBefore) / seconds) : 0);
+            }
         }
-        return total;
-
     }
+    
+    private record CompletedBatch(String lastId, int size) {}
 }
@@ -1,5 +1,6 @@
 package com.relative.chat.bot.ia.application.usecases;
 
+import com.relative.chat.bot.ia.application.dto.AIResponse;
 import com.relative.chat.bot.ia.application.dto.AppointmentIntent;
 import com.relative.chat.bot.ia.application.ports.out.AIService;
 import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
@@ -15,8 +16,13 @@ import com.relative.chat.bot.ia.domain.ports.messaging.MessageRepository;
 import com.relative.chat.bot.ia.domain.scheduling.CalendarProvider;
 import com.relative.chat.bot.ia.domain.scheduling.CalendarProviderAccount;
 import com.relative.chat.bot.ia.domain.ports.scheduling.CalendarProviderAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -28,6 +34,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -52,10 +66,56 @@ public class ProcessMessageWithAI {
     private final CreateAppointmentFromChat createAppointment;
     private final CalendarProviderAccountRepository accountRepository;
     private final CloseConversation closeConversation;
+    private final SemanticAnswerCache answerCache;
+    private final PromptTokenBudgeter promptBudgeter;
+    private final IntentRouter intentRouter;
+    private final MeterRegistry meterRegistry;
     
     private static final int TOP_K_RESULTS = 5;
     private static final int MAX_CONVERSATION_HISTORY = 10;
     
+    /**
+     * Etapas medidas en ai.pipeline.stage
+     */
+    private static final List<String> PIPELINE_STAGES =
+            List.of("intent_router", "context", "embedding", "vector_query", "history", "generation");
+    
+    private final Map<String, Timer> stageTimers = new HashMap<>();
+    
+    /**
+     * Ejecutor de hilos virtuales para las etapas de recuperación (RAG e historial) en paralelo
+     */
+    private final ExecutorService retrievalExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Value("${app.ai.retrieval.context-timeout-ms:4000}")
+    private long contextTimeoutMs;
+    
+    @Value("${app.ai.retrieval.history-timeout-ms:2000}")
+    private long historyTimeoutMs;
+    
+    /**
+     * Longitud mínima de un segmento cortado por fin de oración en respuestas en streaming
+     */
+    @Value("${app.ai.streaming.min-segment-chars:80}")
+    private int minSegmentChars;
+    
+    /**
+     * Máximo de mensajes por respuesta en streaming (el último acumula el resto)
+     */
+    @Value("${app.ai.streaming.max-segments:4}")
+    private int maxSegments;
+    
+    @PostConstruct
+    public void initMetrics() {
+        for (String stage : PIPELINE_STAGES) {
+            stageTimers.put(stage, Timer.builder("ai.pipeline.stage")
+                    .description("Latencia por etapa del flujo de respuesta con IA")
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+    
     /**
      * Procesa un mensaje del usuario y genera una respuesta usando IA
      * 
@@ -72,6 +132,25 @@ public class ProcessMessageWithAI {
             String namespace,
             UuidId<Client> clientId,
             UuidId<Contact> contactId
+    ) {
+        return handle(userMessage, conversationId, namespace, clientId, contactId, null);
+    }
+    
+    /**
+     * Procesa un mensaje y, si la respuesta se genera con el modelo, la entrega por segmentos
+     * (párrafos u oraciones) a medida que se completa. Las respuestas que no salen del modelo
+     * (agendamiento, caché semántica) no se segmentan: solo se retornan.
+     * 
+     * @param onSegment Recibe cada segmento listo para enviar, o null para no usar streaming
+     * @return Respuesta completa
+     */
+    public String handle(
+            String userMessage, 
+            UuidId<Conversation> conversationId, 
+            String namespace,
+            UuidId<Client> clientId,
+            UuidId<Contact> contactId,
+            Consumer<String> onSegment
     ) {
         try {
             // 1. Verificar si está en modo agendamiento
@@ -95,7 +174,7 @@ public class ProcessMessageWithAI {
             
             // 3. Flujo normal con IA
             log.debug("Procesando mensaje con flujo normal de IA");
-            return handleNormalFlow(userMessage, conversationId, namespace);
+            return handleNormalFlow(userMessage, conversationId, namespace, clientId, onSegment);
             
         } catch (Exception e) {
             log.error("Error al procesar mensaje con IA: {}", e.getMessage(), e);
@@ -107,7 +186,7 @@ public class ProcessMessageWithAI {
      * Método legacy para compatibilidad (sin clientId y contactId)
      */
     public String handle(String userMessage, UuidId<Conversation> conversationId, String namespace) {
-        return handleNormalFlow(userMessage, conversationId, namespace);
+        return handleNormalFlow(userMessage, conversationId, namespace, null, null);
     }
     
     /**
@@ -372,21 +451,106 @@ public class ProcessMessageWithAI {
     
     /**
      * Flujo normal de procesamiento con IA
+     * 
+     * Antes de recuperar contexto, el enrutador de intenciones puede resolver el mensaje localmente.
+     * La búsqueda de contexto (embedding + pgvector) y la carga del historial son independientes,
+     * por lo que se ejecutan en paralelo en hilos virtuales. Cada etapa tiene su propio timeout:
+     * si vence, se continúa sin esa información (contexto o historial vacío). El timeout solo deja de
+     * esperar: la consulta atrasada sigue en su hilo virtual hasta terminar y su resultado se descarta.
+     * Antes de generar, el contexto y el historial se ajustan al presupuesto de tokens del cliente.
      */
-    private String handleNormalFlow(String userMessage, UuidId<Conversation> conversationId, String namespace) {
-        // 1. Buscar contexto relevante en el knowledge base
-        List<String> contextDocs = searchRelevantContext(userMessage, namespace);
+    private String handleNormalFlow(String userMessage, UuidId<Conversation> conversationId, String namespace,
+                                    UuidId<Client> clientId, Consumer<String> onSegment) {
+        // 0. Respuesta local por reglas de intención (saludos, preguntas frecuentes) sin llamar al LLM
+        Optional<IntentRouter.Route> route = timed("intent_router",
+                () -> intentRouter.route(clientId != null ? clientId.value() : null, userMessage));
+        if (route.isPresent()) {
+            log.info("Mensaje de conversación {} resuelto localmente (intención '{}')",
+                    conversationId.value(), route.get().intent());
+            return route.get().response();
+        }
+        
+        long start = System.nanoTime();
+        
+        // 1. Buscar contexto relevante y obtener historial en paralelo
+        CompletableFuture<RetrievedContext> contextFuture = CompletableFuture.supplyAsync(
+                () -> timed("context", () -> searchRelevantContext(userMessage, namespace)), retrievalExecutor);
+        CompletableFuture<List<Map<String, String>>> historyFuture = CompletableFuture.supplyAsync(
+                () -> timed("history", () -> getConversationHistory(conversationId)), retrievalExecutor);
+        
+        RetrievedContext context = awaitStage(contextFuture, "context", start, contextTimeoutMs, RetrievedContext.EMPTY);
         
-        // 2. Obtener historial de conversación
-        List<Map<String, String>> conversationHistory = getConversationHistory(conversationId);
+        // 2. Reutilizar la respuesta de una pregunta casi idéntica con el mismo contexto recuperado
+        Optional<String> cached = answerCache.lookup(namespace, context.queryEmbedding(), context.chunkIds());
+        if (cached.isPresent()) {
+            log.info("Respuesta reutilizada de caché semántica para conversación {}", conversationId.value());
+            return cached.get();
+        }
         
-        // 3. Generar respuesta con IA
-        String response = aiService.generateResponse(userMessage, contextDocs, conversationHistory);
+        List<Map<String, String>> conversationHistory = awaitStage(historyFuture, "history", start, historyTimeoutMs, List.of());
+        
+        // 3. Ajustar contexto (por relevancia) e historial (por recencia) al presupuesto de tokens
+        PromptTokenBudgeter.Budgeted prompt = promptBudgeter.fit(
+                clientId != null ? clientId.value().toString() : null,
+                userMessage, context.texts(), conversationHistory, aiService.fixedPromptTokens());
+        
+        // 4. Generar respuesta con IA (en streaming, los segmentos se entregan mientras se genera)
+        AIResponse response;
+        if (onSegment != null) {
+            ResponseSegmenter segmenter = new ResponseSegmenter(minSegmentChars, maxSegments, onSegment);
+            response = timed("generation",
+                    () -> aiService.streamResponse(userMessage, prompt.context(), prompt.history(), segmenter::accept));
+            segmenter.flush();
+        } else {
+            response = timed("generation",
+                    () -> aiService.generateResponse(userMessage, prompt.context(), prompt.history()));
+        }
+        // Solo se cachean respuestas completas del modelo, nunca mensajes de respaldo ni streams cortados
+        if (response.successful()) {
+            answerCache.store(namespace, context.queryEmbedding(), context.chunkIds(), response.text());
+        } else {
+            meterRegistry.counter("ai.generation.fallbacks").increment();
+        }
         
-        log.info("Respuesta generada para conversación {}: {} caracteres", 
-                conversationId.value(), response.length());
+        log.info("Respuesta generada para conversación {}: {} caracteres{}", 
+                conversationId.value(), response.text().length(), response.successful() ? "" : " (respaldo)");
         
-        return response;
+        return response.text();
+    }
+    
+    /**
+     * Espera el resultado de una etapa hasta su deadline (medido desde el inicio del flujo).
+     * Ante timeout o error retorna el valor por defecto para degradar sin fallar la respuesta.
+     * No interrumpe la tarea (CompletableFuture no propaga la cancelación a su hilo): solo se deja
+     * de esperarla.
+     */
+    private <T> T awaitStage(CompletableFuture<T> future, String stage, long startNanos, long timeoutMs, T fallback) {
+        long remainingNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs) - System.nanoTime();
+        try {
+            return future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            meterRegistry.counter("ai.pipeline.stage.timeouts", "stage", stage).increment();
+            log.warn("Etapa '{}' excedió el timeout de {} ms, se continúa sin ella", stage, timeoutMs);
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            log.warn("Error en etapa '{}': {}", stage, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return fallback;
+        }
+    }
+    
+    /**
+     * Mide la latencia de una etapa del flujo con histograma de percentiles
+     */
+    private <T> T timed(String stage, Supplier<T> supplier) {
+        return stageTimers.get(stage).record(supplier);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        retrievalExecutor.shutdown();
     }
     
     private String formatDate(LocalDate date) {
@@ -398,31 +562,50 @@ public class ProcessMessageWithAI {
         return time.format(DateTimeFormatter.ofPattern("h:mm a", java.util.Locale.ENGLISH));
     }
     
+    /**
+     * Contexto recuperado del knowledge base para una pregunta
+     * 
+     * @param queryEmbedding Embedding de la pregunta (null si no se pudo generar)
+     * @param chunkIds IDs de los chunks recuperados, en orden de relevancia
+     * @param texts Texto de los chunks recuperados
+     */
+    private record RetrievedContext(float[] queryEmbedding, List<String> chunkIds, List<String> texts) {
+        static final RetrievedContext EMPTY = new RetrievedContext(null, List.of(), List.of());
+    }
+    
     /**
      * Busca documentos relevantes en el knowledge base
      */
-    private List<String> searchRelevantContext(String query, String namespace) {
+    private RetrievedContext searchRelevantContext(String query, String namespace) {
+        float[] queryEmbedding = null;
         try {
             // Generar embedding de la consulta
-            float[] queryEmbedding = embeddingsPort.embedOne(query);
+            queryEmbedding = timed("embedding", () -> embeddingsPort.embedOne(query));
+            float[] embedding = queryEmbedding;
             
             // Buscar documentos similares
-            List<VectorStore.QueryResult> results = vectorStore.query(
+            List<VectorStore.QueryResult> results = timed("vector_query", () -> vectorStore.query(
                     namespace,
-                    queryEmbedding,
+                    query,
+                    embedding,
                     TOP_K_RESULTS,
                     Map.of()
-            );
+            ));
             
             // Extraer el texto de los resultados
-            return results.stream()
+            List<VectorStore.QueryResult> withText = results.stream()
                     .filter(r -> r.payload() != null && r.payload().containsKey("text"))
-                    .map(r -> (String) r.payload().get("text"))
-                    .collect(Collectors.toList());
+                    .toList();
+            
+            return new RetrievedContext(
+                    queryEmbedding,
+                    withText.stream().map(VectorStore.QueryResult::id).collect(Collectors.toList()),
+                    withText.stream().map(r -> (String) r.payload().get("text")).collect(Collectors.toList())
+            );
                     
         } catch (Exception e) {
             log.warn("Error al buscar contexto: {}", e.getMessage());
-            return List.of();
+            return new RetrievedContext(queryEmbedding, List.of(), List.of());
         }
     }
     
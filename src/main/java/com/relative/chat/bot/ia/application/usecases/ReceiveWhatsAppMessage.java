@@ -9,19 +9,37 @@ import com.relative.chat.bot.ia.domain.messaging.Contact;
 import com.relative.chat.bot.ia.domain.messaging.Conversation;
 import com.relative.chat.bot.ia.domain.messaging.Message;
 import com.relative.chat.bot.ia.domain.ports.identity.ClientRepository;
+import com.relative.chat.bot.ia.domain.ports.messaging.ContactRepository;
+import com.relative.chat.bot.ia.domain.ports.messaging.ConversationRepository;
 import com.relative.chat.bot.ia.domain.ports.messaging.MessageRepository;
 import com.relative.chat.bot.ia.domain.types.Direction;
+import com.relative.chat.bot.ia.domain.types.MessageStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Caso de uso principal: Recibir y procesar mensaje de WhatsApp
  * Orquesta todo el flujo desde recibir el mensaje hasta enviar la respuesta
+ * 
+ * No es transaccional como un todo: la generación con IA y el envío al proveedor pueden
+ * tardar varios segundos y no deben retener una conexión del pool. El flujo se divide en
+ * unidades transaccionales cortas (registro del mensaje entrante y registro de la respuesta).
+ * 
+ * Con app.ai.streaming.enabled la respuesta del modelo se envía por segmentos (párrafos u oraciones)
+ * a medida que se genera; whatsapp.reply.latency mide el tiempo hasta el primer mensaje enviado
+ * (phase=first) y hasta el último (phase=total).
  */
 @Slf4j
 @Service
@@ -30,15 +48,32 @@ public class ReceiveWhatsAppMessage {
     
     private final ClientRepository clientRepository;
     private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final ContactRepository contactRepository;
     private final GetOrCreateContact getOrCreateContact;
     private final GetOrCreateConversation getOrCreateConversation;
     private final ProcessMessageWithAI processMessageWithAI;
     private final SendMessage sendMessage;
     private final GetKnowledgeBase getKnowledgeBase;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.ai.streaming.enabled:false}")
+    private boolean streamingEnabled;
+    
+    private Timer firstReplyLatency;
+    private Timer totalReplyLatency;
+    
+    @PostConstruct
+    public void initMetrics() {
+        firstReplyLatency = replyLatencyTimer("first");
+        totalReplyLatency = replyLatencyTimer("total");
+    }
     
     /**
      * Procesa un mensaje entrante de WhatsApp
      * 
+     * 0. Descarta mensajes ya respondidos (mismo ID externo y respuesta enviada)
      * 1. Valida el cliente
      * 2. Obtiene o crea el contacto
      * 3. Obtiene o crea la conversación
@@ -46,46 +81,39 @@ public class ReceiveWhatsAppMessage {
      * 5. Genera respuesta con IA
      * 6. Envía la respuesta
      * 
+     * Los pasos 1-4 se ejecutan en una transacción corta; la IA y el envío no retienen conexión.
+     * Si el mensaje entrante ya estaba guardado pero no se respondió (reintento tras un fallo de la IA
+     * o del envío), se reanuda desde la generación de la respuesta sin volver a registrarlo.
+     * 
      * @param command Comando con los datos del mensaje
      * @return Respuesta con el resultado del procesamiento
      */
-    @Transactional
     public MessageResponse handle(MessageCommand command) {
         try {
             log.info("Recibiendo mensaje de WhatsApp: cliente={}, de={}, contenido={}",
                     command.clientCode(), command.contactPhone(), command.content());
             
-            // 1. Obtener cliente
-            Client client = getClient(command.clientCode());
-            if (client == null) {
-                return MessageResponse.error("Cliente no encontrado: " + command.clientCode());
+            // 0. Idempotencia: solo se omite un mensaje ya guardado si además se le envió respuesta
+            Optional<Message> stored = command.externalId() != null
+                    ? messageRepository.findInboundByExternalId(command.externalId())
+                    : Optional.empty();
+            if (stored.isPresent()
+                    && messageRepository.existsReplySince(stored.get().conversationId(), stored.get().createdAt())) {
+                log.info("Mensaje {} ya respondido, se omite el reproceso", command.externalId());
+                return MessageResponse.ignored("Mensaje duplicado: " + command.externalId());
             }
             
-            // 2. Obtener o crear contacto
-            Contact contact = getOrCreateContact.handle(
-                    client.id(),
-                    command.contactPhone(),
-                    command.contactName(),
-                    command.channel()
-            );
-            
-            // 3. Obtener o crear conversación (reutiliza conversaciones abiertas)
-            Conversation conversation = getOrCreateConversation.handle(
-                    client.id(),
-                    contact.id(),
-                    null, // phoneId - obtener del comando si está disponible
-                    command.channel(),
-                    "Conversación con " + (command.contactName() != null ? command.contactName() : command.contactPhone())
-            );
-            
-            log.info("Usando conversación: {} (status: {})", 
-                    conversation.id().value(), conversation.status());
-            
-            // 4. Guardar mensaje entrante
-            Message incomingMessage = createIncomingMessage(command, client, conversation, contact);
-            messageRepository.save(incomingMessage);
-            
-            log.info("Mensaje entrante guardado: id={}", incomingMessage.id().value());
+            // 1-4. Unidad transaccional corta: cliente, contacto, conversación y mensaje entrante
+            //      (en un reintento, se resuelven a partir del mensaje ya guardado)
+            InboundContext context = transactionTemplate.execute(status -> stored.isPresent()
+                    ? resumeInbound(stored.get())
+                    : registerInbound(command));
+            if (context == null) {
+                return MessageResponse.error("Cliente no encontrado: " + command.clientCode());
+            }
+            Client client = context.client();
+            Contact contact = context.contact();
+            Conversation conversation = context.conversation();
             
             // 5. Obtener namespace del knowledge base del cliente
             String namespace = getKnowledgeBaseNamespace(client);
@@ -94,45 +122,158 @@ public class ReceiveWhatsAppMessage {
                 return MessageResponse.error("No hay Knowledge Base configurado para este cliente");
             }
             
-            // 6. Generar respuesta con IA (con soporte para agendamiento)
+            // 6. Generar respuesta con IA (con soporte para agendamiento), sin transacción abierta.
+            //    En streaming, cada segmento se envía en cuanto está completo.
+            long startNanos = System.nanoTime();
+            List<Message> sent = new ArrayList<>();
+            Consumer<String> onSegment = !streamingEnabled ? null : segment -> {
+                sent.add(sendReply(command, client, contact, conversation, segment));
+                if (sent.size() == 1) {
+                    recordReplyLatency(firstReplyLatency, startNanos);
+                }
+            };
+            
             String aiResponse = processMessageWithAI.handle(
                     command.content(),
                     conversation.id(),
                     namespace,
                     client.id(),
-                    contact.id()
+                    contact.id(),
+                    onSegment
             );
             
-            // 7. Enviar respuesta
-            if (aiResponse != null && !aiResponse.isBlank()) {
-                Message responseMessage = sendMessage.handle(
-                        client.id(),
-                        conversation.id(),
-                        contact.id(),
-                        null, // phoneId
-                        command.channel(),
-                        aiResponse,
-                        command.phoneNumber(),
-                        command.contactPhone()
-                );
-                
-                log.info("Respuesta enviada: id={}", responseMessage.id().value());
-                
-                return MessageResponse.success(
-                        responseMessage.id().value(),
-                        conversation.id().value(),
-                        aiResponse
-                );
-            } else {
-                return MessageResponse.error("No se pudo generar una respuesta");
+            // 7. Enviar respuesta si no se envió en streaming (el envío HTTP ocurre fuera de transacción)
+            if (sent.isEmpty()) {
+                if (aiResponse == null || aiResponse.isBlank()) {
+                    return MessageResponse.error("No se pudo generar una respuesta");
+                }
+                sent.add(sendReply(command, client, contact, conversation, aiResponse));
+                recordReplyLatency(firstReplyLatency, startNanos);
+            }
+            recordReplyLatency(totalReplyLatency, startNanos);
+            
+            // Un envío fallido no cuenta como respuesta: se reporta error para que el sobre se reintente
+            if (sent.stream().allMatch(m -> m.status() == MessageStatus.FAILED)) {
+                return MessageResponse.error("No se pudo enviar la respuesta: "
+                        + sent.get(sent.size() - 1).error().orElse("error desconocido"));
             }
             
+            log.info("Respuesta enviada en {} mensaje(s): ids={}", sent.size(),
+                    sent.stream().map(m -> m.id().value().toString()).toList());
+            
+            return MessageResponse.success(
+                    sent.get(0).id().value(),
+                    conversation.id().value(),
+                    aiResponse
+            );
+            
         } catch (Exception e) {
             log.error("Error al procesar mensaje de WhatsApp: {}", e.getMessage(), e);
             return MessageResponse.error("Error al procesar mensaje: " + e.getMessage());
         }
     }
     
+    /**
+     * Envía un mensaje de respuesta (completo o un segmento) al contacto
+     */
+    private Message sendReply(MessageCommand command, Client client, Contact contact,
+                              Conversation conversation, String content) {
+        return sendMessage.handle(
+                client.id(),
+                conversation.id(),
+                contact.id(),
+                null, // phoneId
+                command.channel(),
+                content,
+                command.phoneNumber(),
+                command.contactPhone()
+        );
+    }
+    
+    private Timer replyLatencyTimer(String phase) {
+        return Timer.builder("whatsapp.reply.latency")
+                .description("Tiempo desde el inicio del procesamiento hasta el envío de la respuesta")
+                .tag("phase", phase)
+                .tag("streaming", String.valueOf(streamingEnabled))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    private static void recordReplyLatency(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Datos resueltos al registrar el mensaje entrante
+     */
+    private record InboundContext(Client client, Contact contact, Conversation conversation) {
+    }
+    
+    /**
+     * Registra el mensaje entrante: resuelve cliente, contacto y conversación y guarda el mensaje.
+     * Se ejecuta dentro de una transacción corta.
+     * 
+     * @return Contexto resuelto, o null si el cliente no existe
+     */
+    private InboundContext registerInbound(MessageCommand command) {
+        // 1. Obtener cliente
+        Client client = getClient(command.clientCode());
+        if (client == null) {
+            return null;
+        }
+        
+        // 2. Obtener o crear contacto
+        Contact contact = getOrCreateContact.handle(
+                client.id(),
+                command.contactPhone(),
+                command.contactName(),
+                command.channel()
+        );
+        
+        // 3. Obtener o crear conversación (reutiliza conversaciones abiertas)
+        Conversation conversation = getOrCreateConversation.handle(
+                client.id(),
+                contact.id(),
+                null, // phoneId - obtener del comando si está disponible
+                command.channel(),
+                "Conversación con " + (command.contactName() != null ? command.contactName() : command.contactPhone())
+        );
+        
+        log.info("Usando conversación: {} (status: {})", 
+                conversation.id().value(), conversation.status());
+        
+        // 4. Guardar mensaje entrante
+        Message incomingMessage = createIncomingMessage(command, client, conversation, contact);
+        messageRepository.save(incomingMessage);
+        
+        log.info("Mensaje entrante guardado: id={}", incomingMessage.id().value());
+        
+        return new InboundContext(client, contact, conversation);
+    }
+    
+    /**
+     * Resuelve cliente, contacto y conversación de un mensaje entrante ya guardado (reintento)
+     * 
+     * @return Contexto resuelto, o null si el cliente ya no existe
+     */
+    private InboundContext resumeInbound(Message stored) {
+        Client client = clientRepository.findById(stored.clientId()).orElse(null);
+        if (client == null) {
+            return null;
+        }
+        Conversation conversation = conversationRepository.findById(stored.conversationId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Conversación no encontrada: " + stored.conversationId().value()));
+        Contact contact = stored.contactId()
+                .flatMap(contactRepository::findById)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Contacto no encontrado para el mensaje " + stored.id().value()));
+        
+        log.info("Reanudando mensaje entrante {} sin respuesta enviada (conversación {})",
+                stored.id().value(), conversation.id().value());
+        return new InboundContext(client, contact, conversation);
+    }
+    
     /**
      * Obtiene el cliente por código
      */
@@ -22,7 +22,7 @@ public class SearchDocuments {
     public List<VectorStore.QueryResult> handle(String namespace, String query, int topK) {
         float[] q = embeddings.embedOne(query);
 
-        return vectorStore.query(namespace, q, topK, Map.of());
+        return vectorStore.query(namespace, query, q, topK, Map.of());
 
     }
 }
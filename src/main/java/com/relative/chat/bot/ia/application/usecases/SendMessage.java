@@ -15,13 +15,16 @@ import com.relative.chat.bot.ia.infrastructure.adapters.out.whatsapp.WhatsAppPro
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.Optional;
 
 /**
  * Caso de uso: Enviar mensaje
+ * 
+ * El envío al proveedor se hace fuera de transacción; solo el registro del mensaje
+ * se ejecuta en una transacción corta para no retener conexiones durante la llamada HTTP.
  */
 @Slf4j
 @Service
@@ -32,6 +35,7 @@ public class SendMessage {
     private final WhatsAppProviderRouter whatsAppRouter;
     private final ClientPhoneRepository clientPhoneRepository;
     private final WhatsAppProviderConfigServiceV2 configServiceV2;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Envía un mensaje al contacto
@@ -46,7 +50,6 @@ public class SendMessage {
      * @param toNumber       Número de destino
      * @return Mensaje enviado
      */
-    @Transactional
     public Message handle(
             UuidId<Client> clientId,
             UuidId<Conversation> conversationId,
@@ -91,8 +94,8 @@ public class SendMessage {
             message.fail(e.getMessage());
         }
 
-        // Guardar el mensaje
-        messageRepository.save(message);
+        // Guardar el mensaje en una transacción corta
+        transactionTemplate.executeWithoutResult(status -> messageRepository.save(message));
 
         return message;
     }
@@ -0,0 +1,147 @@
+package com.relative.chat.bot.ia.application.usecases;
+
+import com.relative.chat.bot.ia.application.dto.IngestJobView;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJob;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJobItem;
+import com.relative.chat.bot.ia.domain.knowledge.Kb;
+import com.relative.chat.bot.ia.domain.model.Document;
+import com.relative.chat.bot.ia.domain.ports.knowledge.IngestJobRepository;
+import com.relative.chat.bot.ia.infrastructure.config.IngestProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Use Case: Encolar la ingesta de documentos como job persistido
+ *
+ * - El job y sus documentos se guardan en BD; el endpoint responde sin esperar a los embeddings
+ * - Los PDFs se mueven al directorio de spool para que sobrevivan a un reinicio
+ * - El procesamiento lo realiza {@link com.relative.chat.bot.ia.application.services.IngestJobWorker}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubmitIngestJob {
+
+    private final IngestDocuments ingestDocuments;
+    private final IngestJobRepository jobRepository;
+    private final IngestProperties properties;
+
+    /**
+     * Encola la ingesta de documentos de texto
+     *
+     * @param namespace Namespace del KB (kb_<uuid>)
+     * @param docs Documentos a ingestar
+     * @return Estado inicial del job
+     */
+    public IngestJobView submitDocuments(String namespace, List<Document> docs) {
+        Kb kb = ingestDocuments.requireKb(namespace);
+
+        IngestJob job = IngestJob.queued(kb.id(), docs.size() + " documentos", docs.size());
+        List<IngestJobItem> items = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            Document doc = docs.get(i);
+            items.add(IngestJobItem.text(job.id(), i, doc.id(), doc.text(), doc.metadata()));
+        }
+
+        jobRepository.create(job, items);
+        log.info("Job de ingesta {} encolado con {} documentos en KB {}", job.id().value(), docs.size(), kb.id().value());
+        return toView(job);
+    }
+
+    /**
+     * Encola la ingesta de un PDF. El archivo se mueve al directorio de spool y se elimina
+     * cuando el job termina.
+     *
+     * @param namespace Namespace del KB (kb_<uuid>)
+     * @param pdf Archivo PDF en disco (pasa a ser propiedad del job)
+     * @param filename Nombre original del archivo
+     * @param sourceId ID externo del documento; una nueva subida con el mismo ID actualiza el documento
+     * @param metadata Metadata adicional del documento (source, language...)
+     * @return Estado inicial del job
+     */
+    public IngestJobView submitPdf(String namespace, Path pdf, String filename, String sourceId,
+                                   Map<String, Object> metadata) {
+        Kb kb;
+        try {
+            kb = ingestDocuments.requireKb(namespace);
+        } catch (RuntimeException e) {
+            deleteQuietly(pdf);
+            throw e;
+        }
+
+        IngestJob job = IngestJob.queued(kb.id(), filename, 1);
+        Path spooled = spool(pdf, job.id());
+
+        Map<String, Object> documentMetadata = new HashMap<>(metadata);
+        documentMetadata.put("filename", filename);
+        documentMetadata.put("mimeType", "application/pdf");
+        documentMetadata.putIfAbsent("source", filename);
+
+        IngestJobItem item = IngestJobItem.file(job.id(), 0, sourceId, spooled.toString(), documentMetadata);
+
+        try {
+            jobRepository.create(job, List.of(item));
+        } catch (RuntimeException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+
+        log.info("Job de ingesta {} encolado para '{}' en KB {}", job.id().value(), filename, kb.id().value());
+        return toView(job);
+    }
+
+    /**
+     * Estado de un job de ingesta del Knowledge Base
+     */
+    public Optional<IngestJobView> status(UUID kbId, UUID jobId) {
+        return jobRepository.findById(UuidId.of(jobId))
+                .filter(job -> job.kbId().value().equals(kbId))
+                .map(SubmitIngestJob::toView);
+    }
+
+    private Path spool(Path pdf, UuidId<IngestJob> jobId) {
+        try {
+            Path dir = Files.createDirectories(Path.of(properties.getSpoolDir()));
+            return Files.move(pdf, dir.resolve(jobId.value() + ".pdf"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(pdf);
+            throw new UncheckedIOException("No se pudo guardar el PDF para ingesta", e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el archivo temporal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static IngestJobView toView(IngestJob job) {
+        return new IngestJobView(
+                job.id().value(),
+                job.kbId().value(),
+                job.label(),
+                job.status(),
+                job.totalItems(),
+                job.itemsDone(),
+                job.pagesTotal(),
+                job.pagesProcessed(),
+                job.chunksProcessed(),
+                job.attempts(),
+                job.lastError(),
+                job.createdAt(),
+                job.startedAt(),
+                job.finishedAt()
+        );
+    }
+}
@@ -0,0 +1,42 @@
+package com.relative.chat.bot.ia.domain.knowledge;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.types.IngestJobStatus;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Job de ingesta de documentos en segundo plano
+ */
+public record IngestJob(
+        UuidId<IngestJob> id,
+        UuidId<Kb> kbId,
+        String label,
+        IngestJobStatus status,
+        int totalItems,
+        int itemsDone,
+        int pagesTotal,
+        int pagesProcessed,
+        int chunksProcessed,
+        int attempts,
+        String lastError,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt
+) {
+    /**
+     * Crea un job nuevo en estado QUEUED
+     */
+    public static IngestJob queued(UuidId<Kb> kbId, String label, int totalItems) {
+        return new IngestJob(
+                UuidId.of(UUID.randomUUID()), kbId, label, IngestJobStatus.QUEUED,
+                totalItems, 0, 0, 0, 0, 0, null, Instant.now(), null, null
+        );
+    }
+
+    public Optional<String> lastErrorOpt() {
+        return Optional.ofNullable(lastError);
+    }
+}
@@ -0,0 +1,43 @@
+package com.relative.chat.bot.ia.domain.knowledge;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Documento de un job de ingesta con su checkpoint
+ *
+ * @param content Texto del documento (ingesta de texto), o null si viene de archivo
+ * @param filePath Archivo a ingestar (PDF), o null si el texto viene en content
+ * @param documentId KbDocument creado para el item, o null si aún no se creó
+ * @param chunksStored Chunks ya persistidos con su embedding
+ */
+public record IngestJobItem(
+        UuidId<IngestJobItem> id,
+        UuidId<IngestJob> jobId,
+        int index,
+        String sourceId,
+        String content,
+        String filePath,
+        Map<String, Object> metadata,
+        boolean done,
+        UuidId<KbDocument> documentId,
+        int chunksStored
+) {
+    public static IngestJobItem text(UuidId<IngestJob> jobId, int index, String sourceId, String content,
+                                     Map<String, Object> metadata) {
+        return new IngestJobItem(UuidId.of(UUID.randomUUID()), jobId, index, sourceId, content, null,
+                metadata, false, null, 0);
+    }
+
+    public static IngestJobItem file(UuidId<IngestJob> jobId, int index, String sourceId, String filePath,
+                                     Map<String, Object> metadata) {
+        return new IngestJobItem(UuidId.of(UUID.randomUUID()), jobId, index, sourceId, null, filePath,
+                metadata, false, null, 0);
+    }
+
+    public boolean isFile() {
+        return filePath != null;
+    }
+}
@@ -9,13 +9,20 @@ public final class KbChunk {
     private final int index;
     private final String content;
     private final Integer tokens;
+    private final String contentHash;
     
     public KbChunk(UuidId<KbChunk> id, UuidId<KbDocument> documentId, int index, String content, Integer tokens) {
+        this(id, documentId, index, content, tokens, null);
+    }
+    
+    public KbChunk(UuidId<KbChunk> id, UuidId<KbDocument> documentId, int index, String content, Integer tokens,
+                   String contentHash) {
         this.id = id;
         this.documentId = documentId;
         this.index = index;
         this.content = content;
         this.tokens = tokens;
+        this.contentHash = contentHash;
         if (index < 0) {
             throw new DomainException("chunk index < 0");
         }
@@ -43,4 +50,11 @@ public final class KbChunk {
     public Integer tokens() {
         return tokens;
     }
+    
+    /**
+     * SHA-256 (hex) del contenido; permite detectar chunks sin cambios al re-ingestar
+     */
+    public String contentHash() {
+        return contentHash;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.relative.chat.bot.ia.domain.messaging;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.types.Channel;
+import com.relative.chat.bot.ia.domain.types.InboundStatus;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Sobre de un mensaje entrante aceptado por el webhook.
+ * Se persiste antes de responder al proveedor y se procesa de forma asíncrona.
+ */
+public final class InboundEnvelope {
+    
+    private final UuidId<InboundEnvelope> id;
+    private final String clientCode;
+    private final String phoneNumber;
+    private final String contactPhone;
+    private final String contactName;
+    private final Channel channel;
+    private final String content;
+    private final String externalId;
+    private final Map<String, Object> rawPayload;
+    private final Instant receivedAt;
+    private InboundStatus status;
+    private int attempts;
+    private String lastError;
+    private Instant processedAt;
+    
+    private InboundEnvelope(
+            UuidId<InboundEnvelope> id,
+            String clientCode,
+            String phoneNumber,
+            String contactPhone,
+            String contactName,
+            Channel channel,
+            String content,
+            String externalId,
+            Map<String, Object> rawPayload,
+            Instant receivedAt,
+            InboundStatus status,
+            int attempts,
+            String lastError,
+            Instant processedAt
+    ) {
+        this.id = Objects.requireNonNull(id);
+        this.clientCode = Objects.requireNonNull(clientCode, "clientCode es requerido");
+        this.phoneNumber = Objects.requireNonNull(phoneNumber, "phoneNumber es requerido");
+        this.contactPhone = Objects.requireNonNull(contactPhone, "contactPhone es requerido");
+        this.contactName = contactName;
+        this.channel = channel == null ? Channel.WHATSAPP : channel;
+        this.content = Objects.requireNonNull(content, "content es requerido");
+        this.externalId = externalId;
+        this.rawPayload = rawPayload == null ? Map.of() : rawPayload;
+        this.receivedAt = receivedAt == null ? Instant.now() : receivedAt;
+        this.status = status == null ? InboundStatus.PENDING : status;
+        this.attempts = attempts;
+        this.lastError = lastError;
+        this.processedAt = processedAt;
+    }
+    
+    /**
+     * Crea un nuevo sobre pendiente de procesamiento
+     */
+    public static InboundEnvelope create(
+            String clientCode,
+            String phoneNumber,
+            String contactPhone,
+            String contactName,
+            Channel channel,
+            String content,
+            String externalId,
+            Map<String, Object> rawPayload,
+            Instant receivedAt
+    ) {
+        return new InboundEnvelope(
+                UuidId.newId(),
+                clientCode,
+                phoneNumber,
+                contactPhone,
+                contactName,
+                channel,
+                content,
+                externalId,
+                rawPayload,
+                receivedAt,
+                InboundStatus.PENDING,
+                0,
+                null,
+                null
+        );
+    }
+    
+    /**
+     * Reconstruye un sobre existente desde persistencia
+     */
+    public static InboundEnvelope existing(
+            UuidId<InboundEnvelope> id,
+            String clientCode,
+            String phoneNumber,
+            String contactPhone,
+            String contactName,
+            Channel channel,
+            String content,
+            String externalId,
+            Map<String, Object> rawPayload,
+            Instant receivedAt,
+            InboundStatus status,
+            int attempts,
+            String lastError,
+            Instant processedAt
+    ) {
+        return new InboundEnvelope(id, clientCode, phoneNumber, contactPhone, contactName, channel,
+                content, externalId, rawPayload, receivedAt, status, attempts, lastError, processedAt);
+    }
+    
+    public void markDone() {
+        this.status = InboundStatus.DONE;
+        this.lastError = null;
+        this.processedAt = Instant.now();
+    }
+    
+    /**
+     * Registra un fallo. Si aún quedan intentos vuelve a PENDING para que la recuperación lo reintente.
+     */
+    public void markFailed(String error, int maxAttempts) {
+        this.lastError = error;
+        this.status = attempts >= maxAttempts ? InboundStatus.FAILED : InboundStatus.PENDING;
+        if (this.status == InboundStatus.FAILED) {
+            this.processedAt = Instant.now();
+        }
+    }
+    
+    public UuidId<InboundEnvelope> id() {
+        return id;
+    }
+    
+    public String clientCode() {
+        return clientCode;
+    }
+    
+    public String phoneNumber() {
+        return phoneNumber;
+    }
+    
+    public String contactPhone() {
+        return contactPhone;
+    }
+    
+    public String contactName() {
+        return contactName;
+    }
+    
+    public Channel channel() {
+        return channel;
+    }
+    
+    public String content() {
+        return content;
+    }
+    
+    public Optional<String> externalId() {
+        return Optional.ofNullable(externalId);
+    }
+    
+    public Map<String, Object> rawPayload() {
+        return rawPayload;
+    }
+    
+    public Instant receivedAt() {
+        return receivedAt;
+    }
+    
+    public InboundStatus status() {
+        return status;
+    }
+    
+    public int attempts() {
+        return attempts;
+    }
+    
+    public Optional<String> lastError() {
+        return Optional.ofNullable(lastError);
+    }
+    
+    public Optional<Instant> processedAt() {
+        return Optional.ofNullable(processedAt);
+    }
+}
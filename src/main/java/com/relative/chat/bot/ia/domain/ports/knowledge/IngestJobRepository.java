@@ -0,0 +1,64 @@
+package com.relative.chat.bot.ia.domain.ports.knowledge;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJob;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJobItem;
+import com.relative.chat.bot.ia.domain.knowledge.KbDocument;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Puerto de repositorio para jobs de ingesta y sus checkpoints
+ */
+public interface IngestJobRepository {
+    
+    /**
+     * Persiste un job nuevo con sus items
+     */
+    void create(IngestJob job, List<IngestJobItem> items);
+    
+    Optional<IngestJob> findById(UuidId<IngestJob> id);
+    
+    /**
+     * Items del job en orden
+     */
+    List<IngestJobItem> itemsOf(UuidId<IngestJob> jobId);
+    
+    /**
+     * Toma el siguiente job QUEUED cuyo próximo intento ya venció (FOR UPDATE SKIP LOCKED):
+     * lo pasa a RUNNING e incrementa los intentos
+     */
+    Optional<UuidId<IngestJob>> claimNext();
+    
+    /**
+     * Registra el avance de un item (documento creado y chunks persistidos) y actualiza el total del job.
+     * Debe llamarse dentro de la transacción que persiste el lote.
+     */
+    void checkpoint(UuidId<IngestJobItem> itemId, UuidId<KbDocument> documentId, int chunksStored);
+    
+    /**
+     * Marca un item como terminado
+     */
+    void markItemDone(UuidId<IngestJobItem> itemId);
+    
+    /**
+     * Actualiza el avance de lectura de páginas del job
+     */
+    void updatePages(UuidId<IngestJob> jobId, int pagesProcessed, int pagesTotal);
+    
+    void complete(UuidId<IngestJob> jobId);
+    
+    /**
+     * Devuelve el job a QUEUED para reintentarlo a partir de la fecha dada
+     */
+    void retryLater(UuidId<IngestJob> jobId, String error, Instant nextAttemptAt);
+    
+    void fail(UuidId<IngestJob> jobId, String error);
+    
+    /**
+     * Devuelve a QUEUED los jobs RUNNING sin actividad desde la fecha dada (p. ej. por caída del proceso)
+     */
+    int releaseStale(Instant before);
+}
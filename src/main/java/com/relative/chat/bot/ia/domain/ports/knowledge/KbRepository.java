@@ -8,6 +8,7 @@ import com.relative.chat.bot.ia.domain.knowledge.KbChunk;
 import com.relative.chat.bot.ia.domain.knowledge.VectorRef;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface KbRepository {
@@ -22,5 +23,27 @@ public interface KbRepository {
     List<KbDocument> docsOf(UuidId<Kb> kbId);
     List<KbChunk> chunksOf(UuidId<KbDocument> docId);
     
+    /**
+     * Documento del KB con el ID externo dado (re-ingesta del mismo documento)
+     */
+    Optional<KbDocument> findDocumentBySourceId(UuidId<Kb> kbId, String sourceId);
+    
+    /**
+     * Hash de contenido de cada chunk del documento, sin cargar el contenido
+     */
+    Map<UuidId<KbChunk>, String> chunkHashesOf(UuidId<KbDocument> docId);
+    
+    /**
+     * Libera las posiciones de los chunks actuales del documento (pasan a índices negativos)
+     * para que una re-ingesta pueda escribir los índices definitivos sin violar uq_kb_chunk.
+     * Los chunks que la re-ingesta no reutilice quedan con índice negativo y se eliminan al final.
+     */
+    void releaseChunkIndexes(UuidId<KbDocument> docId);
+    
+    /**
+     * Asigna el índice definitivo a chunks reutilizados, en una sola sentencia
+     */
+    void reindexChunks(Map<UuidId<KbChunk>, Integer> indexes);
+    
     void saveVectorRef(VectorRef ref);
 }
@@ -0,0 +1,47 @@
+package com.relative.chat.bot.ia.domain.ports.messaging;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.messaging.InboundEnvelope;
+import com.relative.chat.bot.ia.domain.types.InboundStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Puerto de repositorio para sobres de mensajes entrantes
+ */
+public interface InboundEnvelopeRepository {
+    
+    /**
+     * Guarda un sobre (crea o actualiza)
+     */
+    void save(InboundEnvelope envelope);
+    
+    /**
+     * Busca un sobre por su ID
+     */
+    Optional<InboundEnvelope> findById(UuidId<InboundEnvelope> id);
+    
+    /**
+     * Reclama un sobre PENDING para procesarlo: lo pasa a PROCESSING e incrementa los intentos.
+     * Retorna false si otro worker ya lo reclamó.
+     */
+    boolean claim(UuidId<InboundEnvelope> id);
+    
+    /**
+     * Busca sobres en un estado cuya última actualización es anterior a la fecha dada
+     */
+    List<InboundEnvelope> findByStatusUpdatedBefore(InboundStatus status, Instant before, int limit);
+    
+    /**
+     * Sobres sin terminar (PENDING o PROCESSING) del mismo cliente y contacto recibidos antes de la
+     * fecha dada, en orden de recepción
+     */
+    List<InboundEnvelope> findUnfinishedBefore(String clientCode, String contactPhone, Instant receivedBefore);
+    
+    /**
+     * Devuelve a PENDING los sobres PROCESSING atascados (p. ej. por caída del proceso)
+     */
+    int releaseStuck(Instant before);
+}
@@ -3,9 +3,18 @@ package com.relative.chat.bot.ia.domain.ports.messaging;
 import com.relative.chat.bot.ia.domain.common.UuidId;
 import com.relative.chat.bot.ia.domain.messaging.Conversation;
 import com.relative.chat.bot.ia.domain.messaging.Message;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface MessageRepository {
     void save(Message message);
     List<Message> findByConversation(UuidId<Conversation> conversationId, int limit);
+    boolean existsInboundByExternalId(String externalId);
+    Optional<Message> findInboundByExternalId(String externalId);
+    
+    /**
+     * Indica si la conversación tiene una respuesta saliente no fallida registrada desde la fecha dada
+     */
+    boolean existsReplySince(UuidId<Conversation> conversationId, Instant since);
 }
@@ -0,0 +1,3 @@
+package com.relative.chat.bot.ia.domain.types;
+ public enum IngestJobStatus {
+QUEUED, RUNNING, COMPLETED, FAILED }
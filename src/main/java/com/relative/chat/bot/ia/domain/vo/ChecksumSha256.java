@@ -1,7 +1,22 @@
 package com.relative.chat.bot.ia.domain.vo;
  import com.relative.chat.bot.ia.domain.common.DomainException;
+ import java.nio.charset.StandardCharsets;
+ import java.security.MessageDigest;
+ import java.security.NoSuchAlgorithmException;
+ import java.util.HexFormat;
  public record ChecksumSha256(String hex){
 public ChecksumSha256{
 if(hex!=null && !hex.matches("^[a-fA-F0-9]{64}$")) throw new DomainException("SHA-256 inválido");
  }
+/**
+ * Calcula el SHA-256 del texto en UTF-8
+ */
+public static ChecksumSha256 of(String text){
+try {
+byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+return new ChecksumSha256(HexFormat.of().formatHex(digest));
+} catch (NoSuchAlgorithmException e) {
+throw new IllegalStateException("SHA-256 no disponible", e);
+}
+ }
 }
\ No newline at end of file
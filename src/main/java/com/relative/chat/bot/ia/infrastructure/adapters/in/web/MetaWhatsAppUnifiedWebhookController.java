@@ -1,7 +1,8 @@
 package com.relative.chat.bot.ia.infrastructure.adapters.in.web;
 
 import com.relative.chat.bot.ia.application.dto.MessageCommand;
-import com.relative.chat.bot.ia.application.usecases.ReceiveWhatsAppMessage;
+import com.relative.chat.bot.ia.application.services.InboundDeduplicator;
+import com.relative.chat.bot.ia.application.services.InboundMessageDispatcher;
 import com.relative.chat.bot.ia.application.services.WhatsAppProviderConfigServiceV2;
 import com.relative.chat.bot.ia.domain.identity.Client;
 import com.relative.chat.bot.ia.domain.messaging.QualityRating;
@@ -46,6 +47,9 @@ import java.util.Optional;
  * - account_alerts: Alertas de límites y cambios de perfil
  * - phone_number_quality_update: Cambios en límites de mensajería
  * - user_preferences: Preferencias de marketing de usuarios
+ * 
+ * Los mensajes entrantes no se procesan en el hilo HTTP: se persisten como sobre y se encolan
+ * en {@link InboundMessageDispatcher}, de modo que Meta recibe el 200 en milisegundos.
  */
 @Slf4j
 @RestController
@@ -54,7 +58,8 @@ import java.util.Optional;
 @Tag(name = "Meta WhatsApp Unified Webhook", description = "Webhook unificado para todos los eventos de Meta WhatsApp")
 public class MetaWhatsAppUnifiedWebhookController {
     
-    private final ReceiveWhatsAppMessage receiveWhatsAppMessage;
+    private final InboundMessageDispatcher inboundMessageDispatcher;
+    private final InboundDeduplicator inboundDeduplicator;
     private final ClientPhoneRepository clientPhoneRepository;
     private final WhatsAppProviderConfigServiceV2 configServiceV2;
     private final WhatsAppTemplateRepository templateRepository;
@@ -537,7 +542,7 @@ public class MetaWhatsAppUnifiedWebhookController {
     // ==================== MÉTODOS AUXILIARES ====================
     
     /**
-     * Procesa un mensaje individual
+     * Procesa un mensaje individual: lo persiste como sobre y lo encola para procesamiento asíncrono
      */
     @Hidden
     private void processMessage(Map<String, Object> message, String phoneNumberId) {
@@ -568,6 +573,11 @@ public class MetaWhatsAppUnifiedWebhookController {
             return;
         }
         
+        // Descartar reintentos de Meta del mismo wamid antes de tocar la BD
+        if (!inboundDeduplicator.firstSeen(messageId)) {
+            return;
+        }
+        
         // Resolver el cliente por el phoneNumberId de Meta
         Optional<Client> clientOpt = resolveClient(phoneNumberId);
         
@@ -597,12 +607,14 @@ public class MetaWhatsAppUnifiedWebhookController {
                     messageId      // externalId
             );
             
-            // Procesar el mensaje
-            receiveWhatsAppMessage.handle(command);
-            
-            log.info("✅ Mensaje procesado exitosamente: {}", messageId);
+            // Persistir y encolar; el procesamiento (IA, envío de respuesta) ocurre en los workers
+            if (inboundMessageDispatcher.accept(command, message).isPresent()) {
+                log.info("✅ Mensaje aceptado para procesamiento: {}", messageId);
+            }
             
         } catch (Exception e) {
+            // No se persistió: permitir que el reintento de Meta vuelva a intentarlo
+            inboundDeduplicator.forget(messageId);
             log.error("❌ Error procesando mensaje {}: {}", messageId, e.getMessage(), e);
         }
     }
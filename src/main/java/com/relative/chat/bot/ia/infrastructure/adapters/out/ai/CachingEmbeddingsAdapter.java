@@ -0,0 +1,159 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai;
+
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingCacheStore;
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
+import com.relative.chat.bot.ia.application.services.LruTtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Decorador de {@link EmbeddingsPort} con caché de embeddings de consultas
+ *
+ * - Primer nivel: LRU en memoria acotado por número de entradas, con valores float[] primitivos
+ * - Segundo nivel (opcional): tabla embedding_cache en Postgres, compartida entre instancias
+ * - Clave: modelo + dimensiones + texto normalizado (NFC, minúsculas, espacios colapsados)
+ *
+ * Solo se cachea {@link #embedOne}: las consultas de usuarios se repiten mucho, mientras que
+ * los lotes de ingesta son textos únicos que solo desplazarían las entradas útiles.
+ */
+@Slf4j
+@Primary
+@Component
+public class CachingEmbeddingsAdapter implements EmbeddingsPort {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingsPort delegate;
+    private final EmbeddingCacheStore persistentStore;
+    private final boolean enabled;
+    private final boolean persistentEnabled;
+    private final LruTtlCache<String, float[]> memory;
+    private final Counter hits;
+    private final Counter persistentHits;
+    private final Counter misses;
+
+    public CachingEmbeddingsAdapter(
+            @Qualifier("embeddingsProvider") EmbeddingsPort delegate,
+            EmbeddingCacheStore persistentStore,
+            MeterRegistry meterRegistry,
+            @Value("${app.ai.embeddings.cache.enabled:true}") boolean enabled,
+            @Value("${app.ai.embeddings.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.ai.embeddings.cache.ttl-minutes:0}") long ttlMinutes,
+            @Value("${app.ai.embeddings.cache.persistent.enabled:false}") boolean persistentEnabled
+    ) {
+        this.delegate = delegate;
+        this.persistentStore = persistentStore;
+        this.enabled = enabled;
+        this.persistentEnabled = persistentEnabled;
+        this.memory = new LruTtlCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+
+        this.hits = meterRegistry.counter("embeddings.cache.requests", "result", "hit", "tier", "memory");
+        this.persistentHits = meterRegistry.counter("embeddings.cache.requests", "result", "hit", "tier", "database");
+        this.misses = meterRegistry.counter("embeddings.cache.requests", "result", "miss", "tier", "none");
+        FunctionCounter.builder("embeddings.cache.evictions", memory, LruTtlCache::evictionCount)
+                .description("Entradas expulsadas de la caché de embeddings en memoria")
+                .register(meterRegistry);
+        Gauge.builder("embeddings.cache.size", memory, LruTtlCache::size)
+                .description("Entradas en la caché de embeddings en memoria")
+                .register(meterRegistry);
+
+        log.info("Caché de embeddings: {} (máx {} entradas, TTL {} min, persistente: {}) sobre modelo {}",
+                enabled, maxEntries, ttlMinutes, persistentEnabled, delegate.model());
+    }
+
+    @Override
+    public String model() {
+        return delegate.model();
+    }
+
+    @Override
+    public Integer dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public float[] embedOne(String text) {
+        if (!enabled || text == null || text.isBlank()) {
+            return delegate.embedOne(text);
+        }
+
+        String key = cacheKey(text);
+
+        float[] cached = memory.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.clone();
+        }
+
+        if (persistentEnabled) {
+            Optional<float[]> stored = findPersistent(key);
+            if (stored.isPresent()) {
+                persistentHits.increment();
+                memory.put(key, stored.get());
+                return stored.get().clone();
+            }
+        }
+
+        misses.increment();
+        float[] embedding = delegate.embedOne(text);
+        memory.put(key, embedding.clone());
+
+        if (persistentEnabled) {
+            savePersistent(key, embedding);
+        }
+        return embedding;
+    }
+
+    @Override
+    public List<float[]> embedMany(List<String> texts) {
+        return delegate.embedMany(texts);
+    }
+
+    private String cacheKey(String text) {
+        String normalized = WHITESPACE.matcher(
+                Normalizer.normalize(text, Normalizer.Form.NFC).trim().toLowerCase(Locale.ROOT)
+        ).replaceAll(" ");
+        String composite = delegate.model() + "|" + delegate.dimensions() + "|" + normalized;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(composite.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private Optional<float[]> findPersistent(String key) {
+        try {
+            return persistentStore.find(key);
+        } catch (Exception e) {
+            log.warn("Error leyendo caché persistente de embeddings: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void savePersistent(String key, float[] embedding) {
+        try {
+            persistentStore.save(key, delegate.model(), embedding.length, embedding);
+        } catch (Exception e) {
+            log.warn("Error guardando en caché persistente de embeddings: {}", e.getMessage());
+        }
+    }
+}
@@ -1,33 +1,62 @@
 package com.relative.chat.bot.ia.infrastructure.adapters.out.ai;
 
+import com.relative.chat.bot.ia.application.dto.AIResponse;
 import com.relative.chat.bot.ia.application.ports.out.AIService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
 
 import java.net.SocketException;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Implementación de AIService usando Spring AI con OpenAI
+ *
+ * Los ChatClient (con sus opciones) se construyen una sola vez: son inmutables y thread-safe.
+ * El builder inyectado es prototype y mutable, por lo que se clona para cada cliente.
+ *
+ * Los tokens de prompt, de respuesta y de prompt servidos desde el caché de prefijos que informa
+ * la API se registran en el histograma {@code ai.tokens} (tag {@code type=prompt|completion|cached}).
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OpenAIServiceAdapter implements AIService {
     
-    private final ChatClient.Builder chatClientBuilder;
-    private static final Pattern SMALL_TALK = Pattern.compile(
-            "\\b(hola|buen[ao]s? (días?|tardes?|noches?)|hey|qué tal|como estas|¿me ayudas|tengo una pregunta|ayuda|gracias|ok|listo|de acuerdo|entendido|hola\\s*,?\\s*tengo una pregunta)\\b",
-            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
-    );
+    /**
+     * Cliente del flujo RAG: temperatura 0 para minimizar divagación
+     */
+    private final ChatClient ragClient;
+    
+    /**
+     * Cliente de respuestas simples con las opciones por defecto del modelo
+     */
+    private final ChatClient simpleClient;
+    
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary completionTokens;
+    private final DistributionSummary cachedTokens;
+    
+    /**
+     * Tokens del prompt de sistema y de la plantilla RAG (estimados una sola vez)
+     */
+    private final int fixedPromptTokens;
+    
+    private static final String EMPTY_RESPONSE = "Lo siento, no pude generar una respuesta.";
     private static final String SYSTEM_PROMPT = """
             Eres un asistente de preguntas y respuestas ESTRICTO basado en recuperación (RAG).
                 
@@ -84,57 +113,159 @@ public class OpenAIServiceAdapter implements AIService {
                 R: "¿Que iformacion necesitas?"                        
         """;
 
+    /**
+     * Mensaje de sistema del flujo RAG: prompt de sistema + instrucciones de respuesta.
+     * Es idéntico en todas las llamadas y va primero, para que el proveedor lo reutilice de su caché
+     * de prefijos (OpenAI cachea automáticamente prefijos comunes de 1024 tokens o más).
+     */
+    private static final SystemMessage SYSTEM_MESSAGE = new SystemMessage(SYSTEM_PROMPT + RagPromptBuilder.RESPONSE_INSTRUCTIONS);
+    
+    public OpenAIServiceAdapter(ChatClient.Builder chatClientBuilder, MeterRegistry meterRegistry) {
+        this.ragClient = chatClientBuilder.clone()
+                .defaultOptions(OpenAiChatOptions.builder()
+                        .temperature(0.0)
+                        .streamUsage(true)
+                        .build())
+                .build();
+        this.simpleClient = chatClientBuilder.clone().build();
+        this.promptTokens = tokenSummary(meterRegistry, "prompt");
+        this.completionTokens = tokenSummary(meterRegistry, "completion");
+        this.cachedTokens = tokenSummary(meterRegistry, "cached");
+        this.fixedPromptTokens = new JTokkitTokenCountEstimator()
+                .estimate(SYSTEM_MESSAGE.getText() + RagPromptBuilder.build("", List.of(), List.of()));
+    }
+    
+    private static DistributionSummary tokenSummary(MeterRegistry meterRegistry, String type) {
+        return DistributionSummary.builder("ai.tokens")
+                .description("Tokens por llamada al modelo según la API")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
     @Override
-    public String generateResponse(
+    public int fixedPromptTokens() {
+        return fixedPromptTokens;
+    }
+    
+    @Override
+    public AIResponse generateResponse(
             String userMessage,
             List<String> context,
             List<Map<String, String>> conversationHistory
     ) {
         try {
-            if (SMALL_TALK.matcher(userMessage.trim()).find()) {
-                return "¡Hola! Claro, dime tu consulta.";
-            }
-            // Construir el prompt con contexto
-            String contextStr = buildContextString(context);
-            String historyStr = buildHistoryString(conversationHistory);
-
-            String enhancedPrompt = String.format("""
-                <CONTEXT>
-                %s
-                </CONTEXT>
-
-                <HISTORIAL>
-                %s
-                </HISTORIAL>
-                
-                <PREGUNTA>
-                %s
-                </PREGUNTA>
-                
-                <INSTRUCCIONES_DE_RESPUESTA>
-                - Primero, verifica si la respuesta está explícitamente cubierta por el CONTEXTO.
-                - Segundo, siempre se gentil y amable
-                </INSTRUCCIONES_DE_RESPUESTA>
-                """, contextStr, historyStr, userMessage);
-
-            ChatClient chatClient = chatClientBuilder
-                    .defaultOptions(OpenAiChatOptions.builder()
-                            .temperature(0.0)       // minimizar divagación
-                            .build())
-                    .build();
-            log.info("chat: {}", enhancedPrompt);
-            String response = chatClient
-                    .prompt(new PromptTemplate("{msg}").create(Map.of("msg", enhancedPrompt)))
-                    .system(SYSTEM_PROMPT)
+            ChatResponse chatResponse = ragClient
+                    .prompt(buildPrompt(userMessage, context, conversationHistory))
                     .call()
-                    .content();
+                    .chatResponse();
+            recordUsage(chatResponse);
+            String response = chatResponse != null && chatResponse.getResult() != null
+                    ? chatResponse.getResult().getOutput().getText()
+                    : null;
             
             log.info("Respuesta generada exitosamente para mensaje: {}", 
                     userMessage.substring(0, Math.min(50, userMessage.length())));
             
-            return response != null ? response : "Lo siento, no pude generar una respuesta.";
+            return response != null && !response.isBlank()
+                    ? AIResponse.success(response)
+                    : AIResponse.fallback(EMPTY_RESPONSE);
             
-        } catch (ResourceAccessException e) {
+        } catch (Exception e) {
+            return AIResponse.fallback(errorResponse(e, context, userMessage));
+        }
+    }
+    
+    /**
+     * Streaming con la API stream() de ChatClient: los fragmentos se entregan a medida que llegan.
+     * Si el stream falla antes del primer fragmento se entrega el mensaje de respaldo; si falla
+     * después, se conserva lo ya entregado.
+     */
+    @Override
+    public AIResponse streamResponse(
+            String userMessage,
+            List<String> context,
+            List<Map<String, String>> conversationHistory,
+            Consumer<String> onToken
+    ) {
+        StringBuilder response = new StringBuilder();
+        try {
+            Flux<ChatResponse> chunks = ragClient
+                    .prompt(buildPrompt(userMessage, context, conversationHistory))
+                    .stream()
+                    .chatResponse();
+            // Se consume de forma bloqueante: el llamador corre en un hilo virtual.
+            // Con streamUsage el último fragmento no trae texto, solo el uso de tokens.
+            for (ChatResponse chunk : chunks.toIterable()) {
+                recordUsage(chunk);
+                String token = chunk.getResult() != null ? chunk.getResult().getOutput().getText() : null;
+                if (token != null && !token.isEmpty()) {
+                    response.append(token);
+                    onToken.accept(token);
+                }
+            }
+        } catch (Exception e) {
+            if (response.isEmpty()) {
+                String fallback = errorResponse(e, context, userMessage);
+                onToken.accept(fallback);
+                return AIResponse.fallback(fallback);
+            }
+            log.warn("Streaming de respuesta interrumpido tras {} caracteres: {}", response.length(), e.getMessage());
+            return AIResponse.fallback(response.toString());
+        }
+        
+        if (response.isEmpty()) {
+            onToken.accept(EMPTY_RESPONSE);
+            return AIResponse.fallback(EMPTY_RESPONSE);
+        }
+        log.info("Respuesta generada en streaming para mensaje: {}",
+                userMessage.substring(0, Math.min(50, userMessage.length())));
+        return AIResponse.success(response.toString());
+    }
+    
+    /**
+     * Prompt del flujo RAG: mensaje de sistema fijo + mensaje de usuario armado sin motor de plantillas
+     */
+    private Prompt buildPrompt(String userMessage, List<String> context, List<Map<String, String>> conversationHistory) {
+        String enhancedPrompt = RagPromptBuilder.build(userMessage, context, conversationHistory);
+        log.debug("chat: {}", enhancedPrompt);
+        return new Prompt(List.of(SYSTEM_MESSAGE, new UserMessage(enhancedPrompt)));
+    }
+    
+    /**
+     * Registra el uso de tokens informado por la API (en streaming solo lo trae el último fragmento)
+     */
+    private void recordUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() == 0) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            promptTokens.record(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            completionTokens.record(usage.getCompletionTokens());
+        }
+        int cached = 0;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage
+                && nativeUsage.promptTokensDetails() != null
+                && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+            cached = nativeUsage.promptTokensDetails().cachedTokens();
+        }
+        cachedTokens.record(cached);
+        log.debug("Uso de tokens: prompt {} (caché {}), respuesta {}",
+                usage.getPromptTokens(), cached, usage.getCompletionTokens());
+    }
+    
+    /**
+     * Mensaje para el usuario ante un error de la API: respuesta basada en el contexto si está disponible
+     */
+    private String errorResponse(Exception e, List<String> context, String userMessage) {
+        if (e instanceof ResourceAccessException || e instanceof WebClientRequestException) {
             // Error de conexión (timeout, connection reset, etc.)
             Throwable cause = e.getCause();
             if (cause instanceof SocketException || 
@@ -152,23 +283,20 @@ public class OpenAIServiceAdapter implements AIService {
             }
             log.error("Error de acceso a recursos de OpenAI: {}", e.getMessage(), e);
             return "Lo siento, ocurrió un error al procesar tu mensaje. ¿Puedes intentar de nuevo?";
-        } catch (Exception e) {
-            log.error("Error al generar respuesta con IA: {}", e.getMessage(), e);
-            // Si hay contexto disponible, intentar proporcionar una respuesta básica
-            if (context != null && !context.isEmpty()) {
-                log.info("Intentando proporcionar respuesta basada en contexto debido a error general");
-                return generateFallbackResponse(context, userMessage);
-            }
-            return "Lo siento, ocurrió un error al procesar tu mensaje. ¿Puedes intentar de nuevo?";
         }
+        log.error("Error al generar respuesta con IA: {}", e.getMessage(), e);
+        // Si hay contexto disponible, intentar proporcionar una respuesta básica
+        if (context != null && !context.isEmpty()) {
+            log.info("Intentando proporcionar respuesta basada en contexto debido a error general");
+            return generateFallbackResponse(context, userMessage);
+        }
+        return "Lo siento, ocurrió un error al procesar tu mensaje. ¿Puedes intentar de nuevo?";
     }
     
     @Override
     public String generateSimpleResponse(String userMessage) {
         try {
-            ChatClient chatClient = chatClientBuilder.build();
-            
-            String response = chatClient.prompt()
+            String response = simpleClient.prompt()
                     .system("Eres un asistente virtual amigable y útil.")
                     .user(userMessage)
                     .call()
@@ -182,39 +310,6 @@ public class OpenAIServiceAdapter implements AIService {
         }
     }
     
-    /**
-     * Construye una cadena de texto con el contexto relevante
-     */
-    private String buildContextString(List<String> context) {
-        if (context == null || context.isEmpty()) {
-            return "No hay contexto disponible.";
-        }
-        
-        return context.stream()
-                .limit(5) // Limitar a los 5 documentos más relevantes
-                .map(doc -> "- " + doc)
-                .collect(Collectors.joining("\n"));
-    }
-    
-    /**
-     * Construye una cadena de texto con el historial de conversación
-     */
-    private String buildHistoryString(List<Map<String, String>> conversationHistory) {
-        if (conversationHistory == null || conversationHistory.isEmpty()) {
-            return "Esta es una nueva conversación.";
-        }
-        
-        return conversationHistory.stream()
-                .limit(10) // Limitar a los últimos 10 mensajes
-                .map(entry -> {
-                    String role = entry.getOrDefault("role", "UNKNOWN");
-                    String content = entry.getOrDefault("content", "");
-                    String roleLabel = role.equals("IN") ? "Usuario" : "Asistente";
-                    return String.format("%s: %s", roleLabel, content);
-                })
-                .collect(Collectors.joining("\n"));
-    }
-    
     /**
      * Genera una respuesta de fallback basada en el contexto cuando hay problemas de conexión
      * Intenta extraer información relevante del contexto sin usar la IA
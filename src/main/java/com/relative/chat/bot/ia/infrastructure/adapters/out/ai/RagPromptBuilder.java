@@ -0,0 +1,166 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arma el mensaje de usuario del flujo RAG (contexto, historial y pregunta)
+ *
+ * Escribe todas las secciones en un único StringBuilder dimensionado de antemano con la longitud
+ * de las partes: sin String.format, sin strings intermedios por sección y sin motor de plantillas.
+ *
+ * Orden pensado para el caché de prefijos del proveedor:
+ * - Lo estático (prompt de sistema e instrucciones) va en el mensaje de sistema, prefijo común de todas
+ *   las llamadas
+ * - El contexto va primero y en orden determinista (por texto), numerado: la misma selección de chunks
+ *   produce siempre el mismo bloque aunque el score los ordene distinto
+ * - La relevancia no se pierde: la selección ya viene recortada por rank (presupuesto de tokens) y el
+ *   bloque RELEVANCIA, después del contexto, lista los números de los chunks del más al menos relevante
+ * - Relevancia, historial y pregunta, que cambian en cada turno, van al final
+ */
+final class RagPromptBuilder {
+
+    /**
+     * Documentos de contexto incluidos en el prompt (los más relevantes primero)
+     */
+    static final int MAX_CONTEXT_DOCUMENTS = 5;
+
+    /**
+     * Mensajes de historial incluidos en el prompt
+     */
+    static final int MAX_HISTORY_MESSAGES = 10;
+
+    private static final String NO_CONTEXT = "No hay contexto disponible.";
+    private static final String NEW_CONVERSATION = "Esta es una nueva conversación.";
+
+    /**
+     * Instrucciones de respuesta: fijas, se agregan al final del mensaje de sistema
+     */
+    static final String RESPONSE_INSTRUCTIONS = """
+
+            <INSTRUCCIONES_DE_RESPUESTA>
+            - Primero, verifica si la respuesta está explícitamente cubierta por el CONTEXTO.
+            - Segundo, siempre se gentil y amable
+            - Si dos fragmentos del CONTEXTO se contradicen, prioriza el que aparece antes en <RELEVANCIA>.
+            </INSTRUCCIONES_DE_RESPUESTA>
+            """;
+
+    private static final String CONTEXT_OPEN = "<CONTEXT>\n";
+    private static final String CONTEXT_CLOSE = "\n</CONTEXT>\n\n<RELEVANCIA>\n";
+    private static final String RELEVANCE_CLOSE = "\n</RELEVANCIA>\n\n<HISTORIAL>\n";
+    private static final String HISTORY_CLOSE = "\n</HISTORIAL>\n\n<PREGUNTA>\n";
+    private static final String QUESTION_CLOSE = "\n</PREGUNTA>\n";
+
+    private static final int FIXED_LENGTH = CONTEXT_OPEN.length() + CONTEXT_CLOSE.length()
+            + RELEVANCE_CLOSE.length() + HISTORY_CLOSE.length() + QUESTION_CLOSE.length();
+
+    private RagPromptBuilder() {
+    }
+
+    static String build(String userMessage, List<String> context, List<Map<String, String>> conversationHistory) {
+        int contextCount = context == null ? 0 : Math.min(context.size(), MAX_CONTEXT_DOCUMENTS);
+        int historyCount = conversationHistory == null ? 0 : Math.min(conversationHistory.size(), MAX_HISTORY_MESSAGES);
+
+        StringBuilder prompt = new StringBuilder(FIXED_LENGTH
+                + contextLength(context, contextCount)
+                + contextCount * 5 // número de cada chunk en la relevancia
+                + historyLength(conversationHistory, historyCount)
+                + userMessage.length());
+
+        Integer[] layout = layoutOrder(context, contextCount);
+        prompt.append(CONTEXT_OPEN);
+        appendContext(prompt, context, layout);
+        prompt.append(CONTEXT_CLOSE);
+        appendRelevance(prompt, layout);
+        prompt.append(RELEVANCE_CLOSE);
+        appendHistory(prompt, conversationHistory, historyCount);
+        prompt.append(HISTORY_CLOSE);
+        prompt.append(userMessage);
+        prompt.append(QUESTION_CLOSE);
+        return prompt.toString();
+    }
+
+    /**
+     * Ranks de los {@code count} chunks más relevantes ordenados por su texto: layout[n] es el rank del
+     * chunk que se escribe en la posición n (a igual texto se conserva el orden por rank)
+     */
+    private static Integer[] layoutOrder(List<String> context, int count) {
+        Integer[] layout = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            layout[i] = i;
+        }
+        Arrays.sort(layout, Comparator.comparing(context::get));
+        return layout;
+    }
+
+    private static void appendContext(StringBuilder prompt, List<String> context, Integer[] layout) {
+        if (layout.length == 0) {
+            prompt.append(NO_CONTEXT);
+            return;
+        }
+        for (int n = 0; n < layout.length; n++) {
+            if (n > 0) {
+                prompt.append('\n');
+            }
+            prompt.append('[').append(n + 1).append("] ").append(context.get(layout[n]));
+        }
+    }
+
+    /**
+     * Números de los chunks escritos en el contexto, del más al menos relevante
+     */
+    private static void appendRelevance(StringBuilder prompt, Integer[] layout) {
+        int[] positionByRank = new int[layout.length];
+        for (int n = 0; n < layout.length; n++) {
+            positionByRank[layout[n]] = n + 1;
+        }
+        for (int rank = 0; rank < positionByRank.length; rank++) {
+            if (rank > 0) {
+                prompt.append(", ");
+            }
+            prompt.append('[').append(positionByRank[rank]).append(']');
+        }
+    }
+
+    private static void appendHistory(StringBuilder prompt, List<Map<String, String>> history, int count) {
+        if (count == 0) {
+            prompt.append(NEW_CONVERSATION);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                prompt.append('\n');
+            }
+            Map<String, String> entry = history.get(i);
+            prompt.append(roleLabel(entry)).append(": ").append(entry.getOrDefault("content", ""));
+        }
+    }
+
+    private static String roleLabel(Map<String, String> entry) {
+        return "IN".equals(entry.getOrDefault("role", "UNKNOWN")) ? "Usuario" : "Asistente";
+    }
+
+    private static int contextLength(List<String> context, int count) {
+        if (count == 0) {
+            return NO_CONTEXT.length();
+        }
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += context.get(i).length() + 6; // "[n] " + salto de línea
+        }
+        return length;
+    }
+
+    private static int historyLength(List<Map<String, String>> history, int count) {
+        if (count == 0) {
+            return NEW_CONVERSATION.length();
+        }
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += history.get(i).getOrDefault("content", "").length() + 12; // rol + ": " + salto de línea
+        }
+        return length;
+    }
+}
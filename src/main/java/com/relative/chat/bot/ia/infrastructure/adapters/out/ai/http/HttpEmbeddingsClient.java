@@ -5,6 +5,7 @@ import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
@@ -19,6 +20,7 @@ import java.util.List;
  * Útil para servicios de embeddings locales o custom
  */
 @Component 
+@Qualifier("embeddingsProvider")
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "app.ai.embeddings.provider", havingValue = "http", matchIfMissing = false)
 public class HttpEmbeddingsClient implements EmbeddingsPort {
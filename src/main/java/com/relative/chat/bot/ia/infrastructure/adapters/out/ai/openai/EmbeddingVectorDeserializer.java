@@ -0,0 +1,59 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Deserializa el campo "embedding" de OpenAI directamente a float[]
+ *
+ * - encoding_format=base64: decodifica los bytes del token (float32 little-endian) sin pasar por String ni listas
+ * - encoding_format=float: recorre el arreglo JSON token a token sin crear Double intermedios; cada valor se
+ *   lee como double y se reduce a float, porque Float.parseFloat cae en aritmética de BigInteger con los
+ *   ~9 dígitos que envía OpenAI (el valor resultante es el mismo para decimales que representan un float32)
+ */
+public class EmbeddingVectorDeserializer extends StdDeserializer<float[]> {
+
+    private static final int INITIAL_CAPACITY = 1536;
+
+    public EmbeddingVectorDeserializer() {
+        super(float[].class);
+    }
+
+    @Override
+    public float[] deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+
+        if (token == JsonToken.VALUE_STRING) {
+            byte[] bytes = p.getBinaryValue(Base64Variants.MIME_NO_LINEFEEDS);
+            if (bytes.length % Float.BYTES != 0) {
+                return (float[]) ctxt.handleWeirdStringValue(float[].class, "",
+                        "Embedding base64 con longitud inválida: %d bytes", bytes.length);
+            }
+            float[] vector = new float[bytes.length / Float.BYTES];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+            return vector;
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            float[] vector = new float[INITIAL_CAPACITY];
+            int size = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (size == vector.length) {
+                    vector = Arrays.copyOf(vector, vector.length * 2);
+                }
+                vector[size++] = (float) p.getDoubleValue();
+            }
+            return size == vector.length ? vector : Arrays.copyOf(vector, size);
+        }
+
+        return (float[]) ctxt.handleUnexpectedToken(float[].class, p);
+    }
+}
@@ -1,8 +1,12 @@
 package com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai;
 
 import com.relative.chat.bot.ia.application.ports.out.EmbeddingsPort;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
@@ -10,11 +14,13 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.net.SocketException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,18 +37,46 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Component
+@Qualifier("embeddingsProvider")
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "app.ai.embeddings.provider", havingValue = "openai", matchIfMissing = false)
 public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
     
     private final WebClient openAiWebClient;
     
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final OpenAIRateLimitTracker rateLimitTracker = new OpenAIRateLimitTracker();
+    
     @Value("${app.ai.openai.embeddings.model:text-embedding-3-large}")
     private String model;
     
     @Value("${app.ai.openai.embeddings.dimensions:3072}")
     private Integer dimensions;
     
+    /**
+     * Formato de respuesta de embeddings: "base64" (float32 little-endian, sin boxing) o "float"
+     */
+    @Value("${app.ai.openai.embeddings.encoding-format:base64}")
+    private String encodingFormat;
+    
+    /**
+     * Máximo de textos por petición (límite de la API: 2048)
+     */
+    @Value("${app.ai.openai.embeddings.batch.max-items:2048}")
+    private int batchMaxItems;
+    
+    /**
+     * Máximo de tokens estimados por petición (límite de la API: 300000)
+     */
+    @Value("${app.ai.openai.embeddings.batch.max-tokens:250000}")
+    private long batchMaxTokens;
+    
+    /**
+     * Lotes enviados en paralelo como máximo
+     */
+    @Value("${app.ai.openai.embeddings.batch.parallelism:4}")
+    private int batchParallelism;
+    
     @Value("${app.ai.openai.api-key}")
     private String apiKey;
     
@@ -72,13 +106,13 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
         String user                // Opcional
     ) {
         // Constructor para un solo texto
-        static EmbeddingsRequest single(String text, String model, Integer dimensions) {
-            return new EmbeddingsRequest(text, model, dimensions, "float", null);
+        static EmbeddingsRequest single(String text, String model, Integer dimensions, String encodingFormat) {
+            return new EmbeddingsRequest(text, model, dimensions, encodingFormat, null);
         }
         
         // Constructor para múltiples textos
-        static EmbeddingsRequest batch(List<String> texts, String model, Integer dimensions) {
-            return new EmbeddingsRequest(texts, model, dimensions, "float", null);
+        static EmbeddingsRequest batch(List<String> texts, String model, Integer dimensions, String encodingFormat) {
+            return new EmbeddingsRequest(texts, model, dimensions, encodingFormat, null);
         }
     }
     
@@ -94,7 +128,8 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
     
     record EmbeddingData(
         String object,             // "embedding"
-        List<Double> embedding,
+        @JsonDeserialize(using = EmbeddingVectorDeserializer.class)
+        float[] embedding,         // Arreglo JSON o base64 según encoding_format
         int index
     ) {}
     
@@ -122,39 +157,23 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
         return model;
     }
     
+    @Override
+    public Integer dimensions() {
+        return dimensions;
+    }
+    
     @Override
     public float[] embedOne(String text) {
-        log.debug("Generando embedding para texto de {} caracteres con modelo {}", 
-                text.length(), model);
-        
         if (text == null || text.isBlank()) {
             throw new IllegalArgumentException("El texto no puede estar vacío");
         }
         
+        log.debug("Generando embedding para texto de {} caracteres con modelo {}", 
+                text.length(), model);
+        
         try {
-            EmbeddingsRequest request = EmbeddingsRequest.single(text, model, dimensions);
-            
-            EmbeddingsResponse response = openAiWebClient
-                .post()
-                .uri("/v1/embeddings")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .bodyValue(request)
-                .retrieve()
-                .onStatus(
-                    status -> status.is4xxClientError() || status.is5xxServerError(),
-                    clientResponse -> clientResponse.bodyToMono(OpenAIError.class)
-                        .flatMap(error -> {
-                            log.error("Error de OpenAI API: {} - {}", 
-                                    error.error().code(), error.error().message());
-                            return Mono.error(new RuntimeException(
-                                "OpenAI API error: " + error.error().message()
-                            ));
-                        })
-                )
-                .bodyToMono(EmbeddingsResponse.class)
-                .retryWhen(createRetrySpec("embedOne"))
-                .block();
+            EmbeddingsRequest request = EmbeddingsRequest.single(text, model, dimensions, encodingFormat);
+            EmbeddingsResponse response = requestEmbeddings(request, 0, "embedOne").block();
             
             if (response == null || response.data().isEmpty()) {
                 throw new RuntimeException("Respuesta vacía de OpenAI API");
@@ -163,7 +182,7 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
             log.debug("Embedding generado exitosamente. Tokens usados: {}", 
                     response.usage().total_tokens());
             
-            return convertToFloatArray(response.data().get(0).embedding());
+            return response.data().get(0).embedding();
             
         } catch (Exception e) {
             log.error("Error al generar embedding después de {} intentos: {}", 
@@ -172,14 +191,17 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
         }
     }
     
+    /**
+     * Genera embeddings en lotes acotados por número de textos y tokens estimados.
+     * Los lotes se envían en paralelo (hasta {@code parallelism}) respetando los headers
+     * de rate limit, y los resultados se reensamblan en el orden original.
+     */
     @Override
     public List<float[]> embedMany(List<String> texts) {
         if (texts == null || texts.isEmpty()) {
             throw new IllegalArgumentException("La lista de textos no puede estar vacía");
         }
         
-        log.debug("Generando embeddings para {} textos con modelo {}", texts.size(), model);
-        
         // Validar que ningún texto esté vacío
         for (int i = 0; i < texts.size(); i++) {
             if (texts.get(i) == null || texts.get(i).isBlank()) {
@@ -187,50 +209,25 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
             }
         }
         
+        List<Batch> batches = splitIntoBatches(texts);
+        log.debug("Generando embeddings para {} textos con modelo {} en {} lotes (paralelismo {})",
+                texts.size(), model, batches.size(), batchParallelism);
+        
         try {
-            EmbeddingsRequest request = EmbeddingsRequest.batch(texts, model, dimensions);
-            
-            EmbeddingsResponse response = openAiWebClient
-                .post()
-                .uri("/v1/embeddings")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .bodyValue(request)
-                .retrieve()
-                .onStatus(
-                    status -> status.is4xxClientError() || status.is5xxServerError(),
-                    clientResponse -> clientResponse.bodyToMono(OpenAIError.class)
-                        .flatMap(error -> {
-                            log.error("Error de OpenAI API: {} - {}", 
-                                    error.error().code(), error.error().message());
-                            return Mono.error(new RuntimeException(
-                                "OpenAI API error: " + error.error().message()
-                            ));
-                        })
-                )
-                .bodyToMono(EmbeddingsResponse.class)
-                .retryWhen(createRetrySpec("embedMany"))
+            List<float[]> embeddings = Flux.fromIterable(batches)
+                .flatMapSequential(this::embedBatch, Math.max(1, batchParallelism))
+                .flatMapIterable(vectors -> vectors)
+                .collectList()
                 .block();
             
-            if (response == null || response.data().isEmpty()) {
-                throw new RuntimeException("Respuesta vacía de OpenAI API");
-            }
-            
-            if (response.data().size() != texts.size()) {
+            if (embeddings == null || embeddings.size() != texts.size()) {
                 throw new RuntimeException(String.format(
                     "Número de embeddings (%d) no coincide con número de textos (%d)",
-                    response.data().size(), texts.size()
+                    embeddings == null ? 0 : embeddings.size(), texts.size()
                 ));
             }
             
-            log.debug("Embeddings generados exitosamente. Tokens usados: {}", 
-                    response.usage().total_tokens());
-            
-            // Ordenar por índice y convertir a float[]
-            return response.data().stream()
-                .sorted((a, b) -> Integer.compare(a.index(), b.index()))
-                .map(data -> convertToFloatArray(data.embedding()))
-                .collect(Collectors.toList());
+            return embeddings;
             
         } catch (Exception e) {
             log.error("Error al generar embeddings en batch después de {} intentos: {}", 
@@ -239,6 +236,109 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
         }
     }
     
+    /**
+     * Lote de textos contiguos con su estimación de tokens
+     */
+    private record Batch(List<String> texts, long estimatedTokens) {}
+    
+    /**
+     * Divide los textos en lotes contiguos sin superar el máximo de textos ni de tokens por petición
+     */
+    private List<Batch> splitIntoBatches(List<String> texts) {
+        List<Batch> batches = new ArrayList<>();
+        int start = 0;
+        long tokens = 0;
+        
+        for (int i = 0; i < texts.size(); i++) {
+            long textTokens = tokenCountEstimator.estimate(texts.get(i));
+            boolean full = i - start >= batchMaxItems || (i > start && tokens + textTokens > batchMaxTokens);
+            if (full) {
+                batches.add(new Batch(texts.subList(start, i), tokens));
+                start = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        batches.add(new Batch(texts.subList(start, texts.size()), tokens));
+        return batches;
+    }
+    
+    private Mono<List<float[]>> embedBatch(Batch batch) {
+        EmbeddingsRequest request = EmbeddingsRequest.batch(batch.texts(), model, dimensions, encodingFormat);
+        
+        return requestEmbeddings(request, batch.estimatedTokens(), "embedMany")
+            .map(response -> {
+                if (response.data().size() != batch.texts().size()) {
+                    throw new RuntimeException(String.format(
+                        "Número de embeddings (%d) no coincide con número de textos (%d)",
+                        response.data().size(), batch.texts().size()
+                    ));
+                }
+                
+                log.debug("Lote de {} embeddings generado. Tokens usados: {} (estimados {})",
+                        batch.texts().size(), response.usage().total_tokens(), batch.estimatedTokens());
+                
+                // Ordenar por índice (los vectores ya vienen como float[])
+                return response.data().stream()
+                    .sorted((a, b) -> Integer.compare(a.index(), b.index()))
+                    .map(EmbeddingData::embedding)
+                    .collect(Collectors.toList());
+            });
+    }
+    
+    /**
+     * Ejecuta una petición a /v1/embeddings esperando la pausa de rate limit vigente.
+     * Los reintentos vuelven a evaluar la pausa, por lo que un 429 espera el reset indicado por OpenAI.
+     *
+     * @param estimatedTokens Tokens estimados de la petición, para anticipar el agotamiento de cuota
+     */
+    private Mono<EmbeddingsResponse> requestEmbeddings(EmbeddingsRequest request, long estimatedTokens, String operation) {
+        return Mono.defer(() -> Mono.delay(rateLimitTracker.delayBeforeRequest())
+                .then(openAiWebClient
+                    .post()
+                    .uri("/v1/embeddings")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .bodyValue(request)
+                    .retrieve()
+                    .onStatus(
+                        status -> status.value() == 429,
+                        clientResponse -> {
+                            rateLimitTracker.rateLimited(clientResponse.headers().asHttpHeaders());
+                            return clientResponse.bodyToMono(OpenAIError.class)
+                                .map(error -> new RateLimitedException(error.error().message()))
+                                .defaultIfEmpty(new RateLimitedException("Rate limit alcanzado"))
+                                .flatMap(Mono::error);
+                        }
+                    )
+                    .onStatus(
+                        status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(OpenAIError.class)
+                            .flatMap(error -> {
+                                log.error("Error de OpenAI API: {} - {}", 
+                                        error.error().code(), error.error().message());
+                                return Mono.error(new RuntimeException(
+                                    "OpenAI API error: " + error.error().message()
+                                ));
+                            })
+                    )
+                    .toEntity(EmbeddingsResponse.class)))
+            .map(entity -> {
+                rateLimitTracker.update(entity.getHeaders(), Math.max(estimatedTokens, 1));
+                return entity.getBody();
+            })
+            .retryWhen(createRetrySpec(operation));
+    }
+    
+    /**
+     * Respuesta 429 de OpenAI (reintentable tras la pausa indicada en los headers)
+     */
+    private static final class RateLimitedException extends RuntimeException {
+        private RateLimitedException(String message) {
+            super("OpenAI rate limit: " + message);
+        }
+    }
+    
     /**
      * Crea una especificación de retry con backoff exponencial
      * 
@@ -275,6 +375,12 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
      * @return true si se debe reintentar, false en caso contrario
      */
     private boolean isRetryableException(Throwable throwable) {
+        // Rate limit (429): la espera la impone OpenAIRateLimitTracker antes del reintento
+        if (throwable instanceof RateLimitedException) {
+            log.debug("Rate limit detectado, reintentando tras la pausa...");
+            return true;
+        }
+        
         // Connection reset o errores de socket
         if (throwable instanceof WebClientRequestException) {
             WebClientRequestException wcre = (WebClientRequestException) throwable;
@@ -324,16 +430,5 @@ public class OpenAIEmbeddingsAdapter implements EmbeddingsPort {
         log.debug("Error no reintentable: {}", throwable.getClass().getSimpleName());
         return false;
     }
-    
-    /**
-     * Convierte una lista de Double a un array de float
-     */
-    private float[] convertToFloatArray(List<Double> doubleList) {
-        float[] floatArray = new float[doubleList.size()];
-        for (int i = 0; i < doubleList.size(); i++) {
-            floatArray[i] = doubleList.get(i).floatValue();
-        }
-        return floatArray;
-    }
 }
 
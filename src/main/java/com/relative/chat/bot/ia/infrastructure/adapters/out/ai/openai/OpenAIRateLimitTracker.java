@@ -0,0 +1,106 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Seguimiento de los headers de rate limit de OpenAI
+ *
+ * - x-ratelimit-remaining-requests / x-ratelimit-reset-requests
+ * - x-ratelimit-remaining-tokens / x-ratelimit-reset-tokens
+ * - retry-after (respuestas 429)
+ *
+ * Cuando la cuota restante no alcanza para la siguiente petición se fija una pausa
+ * compartida que todas las peticiones respetan antes de salir.
+ */
+@Slf4j
+public final class OpenAIRateLimitTracker {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final AtomicLong pausedUntilNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * Tiempo que debe esperar la próxima petición antes de enviarse
+     */
+    public Duration delayBeforeRequest() {
+        long remaining = pausedUntilNanos.get() - System.nanoTime();
+        return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Actualiza la pausa según los headers de una respuesta exitosa
+     *
+     * @param headers Headers de la respuesta
+     * @param tokensNeeded Tokens estimados de la próxima petición
+     */
+    public void update(HttpHeaders headers, long tokensNeeded) {
+        long remainingRequests = parseLong(headers.getFirst("x-ratelimit-remaining-requests"));
+        if (remainingRequests == 0) {
+            pause(parseDuration(headers.getFirst("x-ratelimit-reset-requests")), "requests");
+        }
+
+        long remainingTokens = parseLong(headers.getFirst("x-ratelimit-remaining-tokens"));
+        if (remainingTokens >= 0 && remainingTokens < tokensNeeded) {
+            pause(parseDuration(headers.getFirst("x-ratelimit-reset-tokens")), "tokens");
+        }
+    }
+
+    /**
+     * Registra una respuesta 429 y pausa hasta retry-after (o el reset de tokens si no viene)
+     */
+    public void rateLimited(HttpHeaders headers) {
+        Duration wait = parseDuration(headers.getFirst(HttpHeaders.RETRY_AFTER) != null
+                ? headers.getFirst(HttpHeaders.RETRY_AFTER) + "s"
+                : headers.getFirst("x-ratelimit-reset-tokens"));
+        pause(wait.isZero() ? Duration.ofSeconds(1) : wait, "429");
+    }
+
+    private void pause(Duration duration, String reason) {
+        if (duration.isZero()) {
+            return;
+        }
+        long until = System.nanoTime() + duration.toNanos();
+        long previous = pausedUntilNanos.getAndAccumulate(until, Math::max);
+        if (until > previous) {
+            log.warn("⏳ Cuota de OpenAI agotada ({}), pausando embeddings {} ms", reason, duration.toMillis());
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Interpreta duraciones de OpenAI como "20ms", "1s", "6m0s" o "1h2m3.5s"
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return Duration.ZERO;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return Duration.ofMillis((long) Math.ceil(millis));
+    }
+}
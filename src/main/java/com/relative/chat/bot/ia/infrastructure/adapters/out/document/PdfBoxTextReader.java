@@ -0,0 +1,86 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.document;
+
+import com.relative.chat.bot.ia.application.ports.out.PdfTextReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+/**
+ * Lector de PDF página a página sobre PDFBox (incluido por spring-ai-pdf-document-reader)
+ *
+ * Los readers de Spring AI ({@code PagePdfDocumentReader}) devuelven todas las páginas en una lista;
+ * aquí se usa el mismo motor pero extrayendo una sola página por vez, con caché de streams en
+ * archivo temporal para que la memoria no crezca con el tamaño del PDF.
+ */
+@Slf4j
+@Component
+public class PdfBoxTextReader implements PdfTextReader {
+
+    @Override
+    public Reader open(Path pdf, PageListener listener) throws IOException {
+        PDDocument document = Loader.loadPDF(pdf.toFile(), IOUtils.createTempFileOnlyStreamCache());
+        log.debug("PDF abierto: {} ({} páginas)", pdf.getFileName(), document.getNumberOfPages());
+        return new PageReader(document, listener);
+    }
+
+    /**
+     * Reader que extrae la siguiente página cuando se agota el texto de la actual
+     */
+    private static final class PageReader extends Reader {
+
+        private static final String PAGE_SEPARATOR = "\n\n";
+
+        private final PDDocument document;
+        private final PDFTextStripper stripper;
+        private final PageListener listener;
+        private final int totalPages;
+        private int nextPage = 1;
+        private String current = "";
+        private int position;
+
+        private PageReader(PDDocument document, PageListener listener) throws IOException {
+            this.document = document;
+            this.stripper = new PDFTextStripper();
+            this.listener = listener;
+            this.totalPages = document.getNumberOfPages();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position >= current.length()) {
+                if (nextPage > totalPages) {
+                    return -1;
+                }
+                current = extractPage(nextPage) + PAGE_SEPARATOR;
+                position = 0;
+                listener.onPage(nextPage, totalPages);
+                nextPage++;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        private String extractPage(int page) throws IOException {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            return stripper.getText(document);
+        }
+
+        @Override
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+}
@@ -24,7 +24,11 @@ public class MigrationRunner implements CommandLineRunner {
 
         int batch       = Integer.getInteger("batch.size", 500);
 
-        long total = migrate.handle(nsSource, nsDest, dim, batch);
+        int parallelism = Integer.getInteger("migration.parallelism", 4);
+
+        boolean resume  = Boolean.parseBoolean(System.getProperty("migration.resume", "true"));
+
+        long total = migrate.handle(nsSource, nsDest, dim, batch, parallelism, resume);
 
         System.out.println("[migration] done, total=" + total);
 
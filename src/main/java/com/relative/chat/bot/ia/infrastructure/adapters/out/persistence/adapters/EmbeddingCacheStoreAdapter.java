@@ -0,0 +1,42 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.adapters;
+
+import com.relative.chat.bot.ia.application.ports.out.EmbeddingCacheStore;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.EmbeddingCacheJpa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+
+/**
+ * Caché persistente de embeddings en Postgres (vectores float32 little-endian en BYTEA)
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmbeddingCacheStoreAdapter implements EmbeddingCacheStore {
+    
+    private final EmbeddingCacheJpa repo;
+    
+    @Override
+    public Optional<float[]> find(String cacheKey) {
+        return repo.findById(cacheKey).map(e -> fromBytes(e.getEmbedding()));
+    }
+    
+    @Override
+    public void save(String cacheKey, String model, int dimensions, float[] embedding) {
+        repo.insertIfAbsent(cacheKey, model, dimensions, toBytes(embedding));
+    }
+    
+    private static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+    
+    private static float[] fromBytes(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
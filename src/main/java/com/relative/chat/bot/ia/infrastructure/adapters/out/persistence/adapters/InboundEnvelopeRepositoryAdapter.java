@@ -0,0 +1,105 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.adapters;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.messaging.InboundEnvelope;
+import com.relative.chat.bot.ia.domain.ports.messaging.InboundEnvelopeRepository;
+import com.relative.chat.bot.ia.domain.types.Channel;
+import com.relative.chat.bot.ia.domain.types.InboundStatus;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.InboundEnvelopeEntity;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.InboundEnvelopeJpa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class InboundEnvelopeRepositoryAdapter implements InboundEnvelopeRepository {
+    
+    private final InboundEnvelopeJpa repo;
+    
+    private static InboundEnvelope toDomain(InboundEnvelopeEntity e) {
+        return InboundEnvelope.existing(
+                UuidId.of(e.getId()),
+                e.getClientCode(),
+                e.getPhoneNumber(),
+                e.getContactPhone(),
+                e.getContactName(),
+                Channel.valueOf(e.getChannel()),
+                e.getContent(),
+                e.getExternalId(),
+                e.getRawPayload(),
+                e.getReceivedAt() != null ? e.getReceivedAt().toInstant() : null,
+                InboundStatus.valueOf(e.getStatus()),
+                e.getAttempts() != null ? e.getAttempts() : 0,
+                e.getLastError(),
+                e.getProcessedAt() != null ? e.getProcessedAt().toInstant() : null
+        );
+    }
+    
+    private static InboundEnvelopeEntity toEntity(InboundEnvelope d) {
+        InboundEnvelopeEntity e = new InboundEnvelopeEntity();
+        e.setId(d.id().value());
+        e.setClientCode(d.clientCode());
+        e.setPhoneNumber(d.phoneNumber());
+        e.setContactPhone(d.contactPhone());
+        e.setContactName(d.contactName());
+        e.setChannel(d.channel().name());
+        e.setContent(d.content());
+        e.setExternalId(d.externalId().orElse(null));
+        e.setRawPayload(new HashMap<>(d.rawPayload()));
+        e.setStatus(d.status().name());
+        e.setAttempts(d.attempts());
+        e.setLastError(d.lastError().orElse(null));
+        e.setReceivedAt(d.receivedAt().atOffset(ZoneOffset.UTC));
+        e.setProcessedAt(d.processedAt().map(at -> at.atOffset(ZoneOffset.UTC)).orElse(null));
+        e.setCreatedAt(d.receivedAt().atOffset(ZoneOffset.UTC));
+        e.setUpdatedAt(OffsetDateTime.now());
+        return e;
+    }
+    
+    @Override
+    public void save(InboundEnvelope envelope) {
+        repo.save(toEntity(envelope));
+    }
+    
+    @Override
+    public Optional<InboundEnvelope> findById(UuidId<InboundEnvelope> id) {
+        return repo.findById(id.value()).map(InboundEnvelopeRepositoryAdapter::toDomain);
+    }
+    
+    @Override
+    public boolean claim(UuidId<InboundEnvelope> id) {
+        return repo.claim(id.value()) > 0;
+    }
+    
+    @Override
+    public List<InboundEnvelope> findByStatusUpdatedBefore(InboundStatus status, Instant before, int limit) {
+        return repo.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAsc(
+                        status.name(),
+                        OffsetDateTime.ofInstant(before, ZoneOffset.UTC),
+                        PageRequest.of(0, limit))
+                .stream()
+                .map(InboundEnvelopeRepositoryAdapter::toDomain)
+                .toList();
+    }
+    
+    @Override
+    public List<InboundEnvelope> findUnfinishedBefore(String clientCode, String contactPhone, Instant receivedBefore) {
+        return repo.findUnfinishedBefore(clientCode, contactPhone, OffsetDateTime.ofInstant(receivedBefore, ZoneOffset.UTC))
+                .stream()
+                .map(InboundEnvelopeRepositoryAdapter::toDomain)
+                .toList();
+    }
+    
+    @Override
+    public int releaseStuck(Instant before) {
+        return repo.releaseStuck(OffsetDateTime.ofInstant(before, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,163 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.adapters;
+
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJob;
+import com.relative.chat.bot.ia.domain.knowledge.IngestJobItem;
+import com.relative.chat.bot.ia.domain.knowledge.KbDocument;
+import com.relative.chat.bot.ia.domain.ports.knowledge.IngestJobRepository;
+import com.relative.chat.bot.ia.domain.types.IngestJobStatus;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.KbIngestJobEntity;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.KbIngestJobItemEntity;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.KbIngestJobItemJpa;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.KbIngestJobJpa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class IngestJobRepositoryAdapter implements IngestJobRepository {
+    
+    private final KbIngestJobJpa jobRepo;
+    private final KbIngestJobItemJpa itemRepo;
+    
+    private static IngestJob toDomain(KbIngestJobEntity e) {
+        return new IngestJob(
+                UuidId.of(e.getId()),
+                UuidId.of(e.getKbId()),
+                e.getLabel(),
+                IngestJobStatus.valueOf(e.getStatus()),
+                e.getTotalItems(),
+                e.getItemsDone(),
+                e.getPagesTotal(),
+                e.getPagesProcessed(),
+                e.getChunksProcessed(),
+                e.getAttempts(),
+                e.getLastError(),
+                toInstant(e.getCreatedAt()),
+                toInstant(e.getStartedAt()),
+                toInstant(e.getFinishedAt())
+        );
+    }
+    
+    private static IngestJobItem toDomain(KbIngestJobItemEntity e) {
+        return new IngestJobItem(
+                UuidId.of(e.getId()),
+                UuidId.of(e.getJobId()),
+                e.getItemIndex(),
+                e.getSourceId(),
+                e.getContent(),
+                e.getFilePath(),
+                e.getMetadata() != null ? e.getMetadata() : new HashMap<>(),
+                "DONE".equals(e.getStatus()),
+                e.getDocumentId() != null ? UuidId.of(e.getDocumentId()) : null,
+                e.getChunksStored() != null ? e.getChunksStored() : 0
+        );
+    }
+    
+    private static Instant toInstant(OffsetDateTime value) {
+        return value != null ? value.toInstant() : null;
+    }
+    
+    @Override
+    @Transactional
+    public void create(IngestJob job, List<IngestJobItem> items) {
+        OffsetDateTime now = OffsetDateTime.now();
+        
+        KbIngestJobEntity e = new KbIngestJobEntity();
+        e.setId(job.id().value());
+        e.setKbId(job.kbId().value());
+        e.setLabel(job.label());
+        e.setStatus(job.status().name());
+        e.setTotalItems(job.totalItems());
+        e.setItemsDone(0);
+        e.setPagesTotal(0);
+        e.setPagesProcessed(0);
+        e.setChunksProcessed(0);
+        e.setAttempts(0);
+        e.setNextAttemptAt(now);
+        e.setCreatedAt(job.createdAt().atOffset(ZoneOffset.UTC));
+        e.setUpdatedAt(now);
+        jobRepo.save(e);
+        
+        for (IngestJobItem item : items) {
+            KbIngestJobItemEntity ie = new KbIngestJobItemEntity();
+            ie.setId(item.id().value());
+            ie.setJobId(job.id().value());
+            ie.setItemIndex(item.index());
+            ie.setSourceId(item.sourceId());
+            ie.setContent(item.content());
+            ie.setFilePath(item.filePath());
+            ie.setMetadata(new HashMap<>(item.metadata()));
+            ie.setStatus("PENDING");
+            ie.setChunksStored(0);
+            ie.setUpdatedAt(now);
+            itemRepo.save(ie);
+        }
+    }
+    
+    @Override
+    public Optional<IngestJob> findById(UuidId<IngestJob> id) {
+        return jobRepo.findById(id.value()).map(IngestJobRepositoryAdapter::toDomain);
+    }
+    
+    @Override
+    public List<IngestJobItem> itemsOf(UuidId<IngestJob> jobId) {
+        return itemRepo.findByJobIdOrderByItemIndexAsc(jobId.value())
+                .stream()
+                .map(IngestJobRepositoryAdapter::toDomain)
+                .toList();
+    }
+    
+    @Override
+    public Optional<UuidId<IngestJob>> claimNext() {
+        return jobRepo.claimNext().stream().findFirst().map(UuidId::of);
+    }
+    
+    @Override
+    @Transactional
+    public void checkpoint(UuidId<IngestJobItem> itemId, UuidId<KbDocument> documentId, int chunksStored) {
+        itemRepo.checkpoint(itemId.value(), documentId.value(), chunksStored);
+        itemRepo.findById(itemId.value()).ifPresent(item -> jobRepo.refreshProgress(item.getJobId()));
+    }
+    
+    @Override
+    @Transactional
+    public void markItemDone(UuidId<IngestJobItem> itemId) {
+        itemRepo.markDone(itemId.value());
+        itemRepo.findById(itemId.value()).ifPresent(item -> jobRepo.refreshProgress(item.getJobId()));
+    }
+    
+    @Override
+    public void updatePages(UuidId<IngestJob> jobId, int pagesProcessed, int pagesTotal) {
+        jobRepo.updatePages(jobId.value(), pagesProcessed, pagesTotal);
+    }
+    
+    @Override
+    public void complete(UuidId<IngestJob> jobId) {
+        jobRepo.updateStatus(jobId.value(), IngestJobStatus.COMPLETED.name(), null, OffsetDateTime.now());
+    }
+    
+    @Override
+    public void retryLater(UuidId<IngestJob> jobId, String error, Instant nextAttemptAt) {
+        jobRepo.updateStatus(jobId.value(), IngestJobStatus.QUEUED.name(), error,
+                OffsetDateTime.ofInstant(nextAttemptAt, ZoneOffset.UTC));
+    }
+    
+    @Override
+    public void fail(UuidId<IngestJob> jobId, String error) {
+        jobRepo.updateStatus(jobId.value(), IngestJobStatus.FAILED.name(), error, OffsetDateTime.now());
+    }
+    
+    @Override
+    public int releaseStale(Instant before) {
+        return jobRepo.releaseStale(OffsetDateTime.ofInstant(before, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,33 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.adapters;
+
+import com.relative.chat.bot.ia.application.ports.out.IntentRuleStore;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.IntentRuleJpa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reglas del enrutador de intenciones en Postgres (tabla intent_rule)
+ */
+@Repository
+@RequiredArgsConstructor
+public class IntentRuleStoreAdapter implements IntentRuleStore {
+    
+    private final IntentRuleJpa repo;
+    
+    @Override
+    public List<IntentRule> findActive(UUID clientId) {
+        return repo.findActiveForClient(clientId).stream()
+                .map(e -> new IntentRule(
+                        e.getClientId(),
+                        e.getIntent(),
+                        List.of(e.getKeywords()),
+                        e.getResponse(),
+                        e.getMaxWords(),
+                        e.getPriority() != null ? e.getPriority() : 0
+                ))
+                .toList();
+    }
+}
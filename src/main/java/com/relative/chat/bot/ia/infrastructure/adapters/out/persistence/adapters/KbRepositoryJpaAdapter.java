@@ -11,8 +11,11 @@ import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 @RequiredArgsConstructor
@@ -40,7 +43,7 @@ public class KbRepositoryJpaAdapter implements KbRepository {
             UuidId.of(e.getId()),
             UuidId.of(e.getKbEntity().getId()),
             e.getSourceUri(),
-            e.getSourceUri(),
+            e.getSourceId(),
             e.getSourceUri(),
             e.getMimeType(),
             null,
@@ -55,7 +58,8 @@ public class KbRepositoryJpaAdapter implements KbRepository {
             UuidId.of(e.getDocument().getId()),
             e.getChunkIndex(),
             e.getContent(),
-            null
+            e.getTokens(),
+            e.getContentHash()
         );
     }
     
@@ -98,6 +102,7 @@ public class KbRepositoryJpaAdapter implements KbRepository {
         e.setId(doc.id().value());
         e.setKbEntity(em.getReference(KbEntity.class, doc.kbId().value()));
         e.setSourceUri(doc.source());
+        e.setSourceId(doc.sourceId());
         e.setMimeType(doc.mimeType());
         e.setLanguage(doc.language());
         e.setStatus("READY");
@@ -115,6 +120,8 @@ public class KbRepositoryJpaAdapter implements KbRepository {
         e.setDocument(em.getReference(KbDocumentEntity.class, chunk.documentId().value()));
         e.setChunkIndex(chunk.index());
         e.setContent(chunk.content());
+        e.setTokens(chunk.tokens());
+        e.setContentHash(chunk.contentHash());
         e.setMetadata(new java.util.HashMap<>());
         e.setCreatedAt(java.time.OffsetDateTime.now());
         chunkRepo.save(e);
@@ -132,10 +139,47 @@ public class KbRepositoryJpaAdapter implements KbRepository {
     public List<KbChunk> chunksOf(UuidId<KbDocument> docId) {
         return chunkRepo.findByDocumentIdOrderByChunkIndexAsc(docId.value())
             .stream()
+            .filter(e -> e.getChunkIndex() >= 0) // índices negativos: chunks retirados por una re-ingesta en curso
             .map(KbRepositoryJpaAdapter::toDomain)
             .toList();
     }
     
+    @Override
+    public Optional<KbDocument> findDocumentBySourceId(UuidId<Kb> kbId, String sourceId) {
+        return docRepo.findFirstByKbEntityIdAndSourceId(kbId.value(), sourceId)
+            .map(KbRepositoryJpaAdapter::toDomain);
+    }
+    
+    @Override
+    public Map<UuidId<KbChunk>, String> chunkHashesOf(UuidId<KbDocument> docId) {
+        Map<UuidId<KbChunk>, String> hashes = new HashMap<>();
+        for (KbChunkJpa.ChunkHashRow row : chunkRepo.findHashesByDocumentId(docId.value())) {
+            hashes.put(UuidId.of(row.getId()), row.getContentHash());
+        }
+        return hashes;
+    }
+    
+    @Override
+    public void releaseChunkIndexes(UuidId<KbDocument> docId) {
+        chunkRepo.releaseIndexes(docId.value());
+    }
+    
+    @Override
+    public void reindexChunks(Map<UuidId<KbChunk>, Integer> indexes) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        UUID[] ids = new UUID[indexes.size()];
+        Integer[] values = new Integer[indexes.size()];
+        int i = 0;
+        for (Map.Entry<UuidId<KbChunk>, Integer> entry : indexes.entrySet()) {
+            ids[i] = entry.getKey().value();
+            values[i] = entry.getValue();
+            i++;
+        }
+        chunkRepo.updateIndexes(ids, values);
+    }
+    
     @Override
     public void saveVectorRef(VectorRef ref) {
         KbVectorRefEntity e = new KbVectorRefEntity();
@@ -24,9 +24,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 
+import java.time.Instant;
 import java.time.ZoneOffset;
 
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
@@ -94,7 +96,7 @@ public class MessageRepositoryAdapter implements MessageRepository {
 
     //d.readAt().ifPresent(ts -> e.setReadAt(ts.atOffset(ZoneOffset.UTC)));
 
-    //d.externalId().ifPresent(e::setExternalId);
+    d.externalId().ifPresent(e::setExternalId);
 
     //d.error().ifPresent(e::setError);
 
@@ -102,6 +104,22 @@ public class MessageRepositoryAdapter implements MessageRepository {
 
   }
 
+  @Override
+  public boolean existsInboundByExternalId(String externalId) {
+    return repo.existsByExternalIdAndDirection(externalId, Direction.IN.name());
+  }
+
+  @Override
+  public Optional<Message> findInboundByExternalId(String externalId) {
+    return repo.findFirstByExternalIdAndDirection(externalId, Direction.IN.name())
+               .map(MessageRepositoryAdapter::toDomain);
+  }
+
+  @Override
+  public boolean existsReplySince(UuidId<Conversation> conversationId, Instant since) {
+    return repo.existsReplySince(conversationId.value(), since.atOffset(ZoneOffset.UTC));
+  }
+
   @Override
   public List<Message> findByConversation(UuidId<Conversation> conversationId, int limit) {
     return repo.findTop100ByConversationEntityIdOrderByCreatedAtDesc(conversationId.value())
@@ -0,0 +1,44 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.adapters;
+
+import com.relative.chat.bot.ia.application.ports.out.MigrationCheckpointStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Checkpoints de migración de vectores en Postgres (tabla vector_migration_checkpoint)
+ */
+@Repository
+@RequiredArgsConstructor
+public class MigrationCheckpointStoreAdapter implements MigrationCheckpointStore {
+    
+    private static final String UPSERT_SQL = """
+        INSERT INTO chatbotia.vector_migration_checkpoint (migration_key, last_id, migrated, updated_at)
+        VALUES (?, ?, ?, NOW())
+        ON CONFLICT (migration_key)
+        DO UPDATE SET last_id = EXCLUDED.last_id, migrated = EXCLUDED.migrated, updated_at = NOW()
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public Optional<Checkpoint> find(String migrationKey) {
+        return jdbcTemplate.query(
+                "SELECT last_id, migrated FROM chatbotia.vector_migration_checkpoint WHERE migration_key = ?",
+                (rs, rowNum) -> new Checkpoint(rs.getString("last_id"), rs.getLong("migrated")),
+                migrationKey
+        ).stream().findFirst();
+    }
+    
+    @Override
+    public void save(String migrationKey, String lastId, long migrated) {
+        jdbcTemplate.update(UPSERT_SQL, migrationKey, lastId, migrated);
+    }
+    
+    @Override
+    public void clear(String migrationKey) {
+        jdbcTemplate.update("DELETE FROM chatbotia.vector_migration_checkpoint WHERE migration_key = ?", migrationKey);
+    }
+}
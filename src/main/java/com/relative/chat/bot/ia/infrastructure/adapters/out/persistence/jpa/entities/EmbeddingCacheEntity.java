@@ -0,0 +1,32 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "embedding_cache", schema = "chatbotia")
+public class EmbeddingCacheEntity {
+    
+    @Id
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey;
+    
+    @Column(name = "model", nullable = false, length = 100)
+    private String model;
+    
+    @Column(name = "dimensions", nullable = false)
+    private Integer dimensions;
+    
+    @Column(name = "embedding", nullable = false)
+    private byte[] embedding;
+    
+    @ColumnDefault("now()")
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
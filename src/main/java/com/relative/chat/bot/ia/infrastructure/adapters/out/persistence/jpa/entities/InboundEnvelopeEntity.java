@@ -0,0 +1,76 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "inbound_envelope", schema = "chatbotia")
+public class InboundEnvelopeEntity {
+    
+    @Id
+    @Column(name = "id", nullable = false)
+    private UUID id;
+    
+    @Column(name = "client_code", nullable = false, length = 100)
+    private String clientCode;
+    
+    @Column(name = "phone_number", nullable = false, length = 50)
+    private String phoneNumber;
+    
+    @Column(name = "contact_phone", nullable = false, length = 50)
+    private String contactPhone;
+    
+    @Column(name = "contact_name", length = 255)
+    private String contactName;
+    
+    @ColumnDefault("'WHATSAPP'")
+    @Column(name = "channel", nullable = false, length = 20)
+    private String channel;
+    
+    @Column(name = "content", nullable = false, length = Integer.MAX_VALUE)
+    private String content;
+    
+    @Column(name = "external_id", length = 255)
+    private String externalId;
+    
+    @ColumnDefault("'{}'::jsonb")
+    @Column(name = "raw_payload", nullable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Object> rawPayload;
+    
+    @ColumnDefault("'PENDING'")
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+    
+    @ColumnDefault("0")
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    @Column(name = "last_error", length = Integer.MAX_VALUE)
+    private String lastError;
+    
+    @ColumnDefault("now()")
+    @Column(name = "received_at", nullable = false)
+    private OffsetDateTime receivedAt;
+    
+    @Column(name = "processed_at")
+    private OffsetDateTime processedAt;
+    
+    @ColumnDefault("now()")
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+    
+    @ColumnDefault("now()")
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
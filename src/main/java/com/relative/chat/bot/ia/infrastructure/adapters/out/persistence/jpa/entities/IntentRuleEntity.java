@@ -0,0 +1,55 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "intent_rule", schema = "chatbotia")
+public class IntentRuleEntity {
+    
+    @Id
+    @ColumnDefault("gen_random_uuid()")
+    @Column(name = "id", nullable = false)
+    private UUID id;
+    
+    @Column(name = "client_id")
+    private UUID clientId;
+    
+    @Column(name = "intent", nullable = false, length = 60)
+    private String intent;
+    
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "keywords", nullable = false, columnDefinition = "text[]")
+    private String[] keywords;
+    
+    @Column(name = "response", nullable = false, columnDefinition = "text")
+    private String response;
+    
+    @Column(name = "max_words")
+    private Integer maxWords;
+    
+    @ColumnDefault("0")
+    @Column(name = "priority", nullable = false)
+    private Integer priority;
+    
+    @ColumnDefault("true")
+    @Column(name = "is_active", nullable = false)
+    private Boolean isActive;
+    
+    @ColumnDefault("now()")
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+    
+    @ColumnDefault("now()")
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -49,6 +49,14 @@ public class KbChunkEntity {
     private String content;
 
 
+    @Column(name = "tokens")
+    private Integer tokens;
+
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+
     @ColumnDefault("'{}'::jsonb")
     @Column(name = "metadata", nullable = false)
     @JdbcTypeCode(SqlTypes.JSON)
@@ -45,6 +45,10 @@ public class KbDocumentEntity {
     private String sourceUri;
 
 
+    @Column(name = "source_id", length = Integer.MAX_VALUE)
+    private String sourceId;
+
+
     @Column(name = "mime_type", length = 100)
     private String mimeType;
 
@@ -40,9 +40,9 @@ public class KbEmbeddingPgvectorEntity {
     private UUID clientId;
     
     /**
-     * ID del Knowledge Base (para filtros)
+     * ID del Knowledge Base (clave de partición de la tabla)
      */
-    @Column(name = "kb_id")
+    @Column(name = "kb_id", nullable = false)
     private UUID kbId;
     
     /**
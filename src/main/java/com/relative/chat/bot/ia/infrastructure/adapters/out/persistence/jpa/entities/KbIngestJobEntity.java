@@ -0,0 +1,69 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "kb_ingest_job", schema = "chatbotia")
+public class KbIngestJobEntity {
+    
+    @Id
+    @Column(name = "id", nullable = false)
+    private UUID id;
+    
+    @Column(name = "kb_id", nullable = false)
+    private UUID kbId;
+    
+    @Column(name = "label", length = 500)
+    private String label;
+    
+    @ColumnDefault("'QUEUED'")
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+    
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems;
+    
+    @Column(name = "items_done", nullable = false)
+    private Integer itemsDone;
+    
+    @Column(name = "pages_total", nullable = false)
+    private Integer pagesTotal;
+    
+    @Column(name = "pages_processed", nullable = false)
+    private Integer pagesProcessed;
+    
+    @Column(name = "chunks_processed", nullable = false)
+    private Integer chunksProcessed;
+    
+    @ColumnDefault("0")
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    @Column(name = "last_error", length = Integer.MAX_VALUE)
+    private String lastError;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+    
+    @Column(name = "started_at")
+    private OffsetDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+    
+    @ColumnDefault("now()")
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+    
+    @ColumnDefault("now()")
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
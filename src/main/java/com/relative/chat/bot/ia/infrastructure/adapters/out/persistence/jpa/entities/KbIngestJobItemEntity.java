@@ -0,0 +1,58 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "kb_ingest_job_item", schema = "chatbotia")
+public class KbIngestJobItemEntity {
+    
+    @Id
+    @Column(name = "id", nullable = false)
+    private UUID id;
+    
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+    
+    @Column(name = "item_index", nullable = false)
+    private Integer itemIndex;
+    
+    @Column(name = "source_id", length = 255)
+    private String sourceId;
+    
+    @Column(name = "content", length = Integer.MAX_VALUE)
+    private String content;
+    
+    @Column(name = "file_path", length = Integer.MAX_VALUE)
+    private String filePath;
+    
+    @ColumnDefault("'{}'::jsonb")
+    @Column(name = "metadata", nullable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Object> metadata;
+    
+    @ColumnDefault("'PENDING'")
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+    
+    @Column(name = "document_id")
+    private UUID documentId;
+    
+    @ColumnDefault("0")
+    @Column(name = "chunks_stored", nullable = false)
+    private Integer chunksStored;
+    
+    @ColumnDefault("now()")
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
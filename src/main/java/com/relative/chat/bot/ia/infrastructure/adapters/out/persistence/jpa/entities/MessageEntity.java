@@ -71,6 +71,10 @@ public class MessageEntity {
     private String provider;
 
 
+    @Column(name = "external_id", length = 255)
+    private String externalId;
+
+
     @ColumnDefault("'TEXT'")
     @Column(name = "message_type", nullable = false, length = 20)
     private String messageType;
@@ -39,7 +39,7 @@ public final class KbMapper {
             MappingHelpers.toUuidId(e.getId()),
             e.getKbEntity() != null ? MappingHelpers.toUuidId(e.getKbEntity().getId()) : null,
             e.getSourceUri(),
-            null,
+            e.getSourceId(),
             null,
             e.getMimeType(),
             null,
@@ -56,7 +56,8 @@ public final class KbMapper {
             e.getDocument() != null ? MappingHelpers.toUuidId(e.getDocument().getId()) : null,
             e.getChunkIndex(),
             e.getContent(),
-            null
+            e.getTokens(),
+            e.getContentHash()
         );
     }
     
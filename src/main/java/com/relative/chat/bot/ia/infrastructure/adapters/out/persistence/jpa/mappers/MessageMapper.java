@@ -65,7 +65,7 @@ public final class MessageMapper {
 
     d.readAt().ifPresent(ts -> e.setReadAt(ts.atOffset(ZoneOffset.UTC)));
 
-    d.externalId().ifPresent(e::setProvider);
+    d.externalId().ifPresent(e::setExternalId);
 
     d.error().ifPresent(e::setErrorCode);
 
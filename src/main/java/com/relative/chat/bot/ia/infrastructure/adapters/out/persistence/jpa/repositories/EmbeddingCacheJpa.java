@@ -0,0 +1,30 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories;
+
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.EmbeddingCacheEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface EmbeddingCacheJpa extends JpaRepository<EmbeddingCacheEntity, String> {
+    
+    /**
+     * Inserta una entrada ignorando conflictos (otra instancia pudo guardarla antes)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO chatbotia.embedding_cache (cache_key, model, dimensions, embedding, created_at)
+        VALUES (:cacheKey, :model, :dimensions, :embedding, NOW())
+        ON CONFLICT (cache_key) DO NOTHING
+        """, nativeQuery = true)
+    void insertIfAbsent(
+            @Param("cacheKey") String cacheKey,
+            @Param("model") String model,
+            @Param("dimensions") int dimensions,
+            @Param("embedding") byte[] embedding
+    );
+}
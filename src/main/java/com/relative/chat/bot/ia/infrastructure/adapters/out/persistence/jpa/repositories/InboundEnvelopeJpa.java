@@ -0,0 +1,64 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories;
+
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.InboundEnvelopeEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface InboundEnvelopeJpa extends JpaRepository<InboundEnvelopeEntity, UUID> {
+    
+    /**
+     * Pasa un sobre de PENDING a PROCESSING de forma atómica.
+     * Retorna 0 si el sobre ya fue reclamado por otro worker.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.inbound_envelope
+        SET status = 'PROCESSING', attempts = attempts + 1, updated_at = NOW()
+        WHERE id = :id AND status = 'PENDING'
+        """, nativeQuery = true)
+    int claim(@Param("id") UUID id);
+    
+    /**
+     * Devuelve a PENDING los sobres que quedaron en PROCESSING antes de la fecha dada
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.inbound_envelope
+        SET status = 'PENDING', updated_at = NOW()
+        WHERE status = 'PROCESSING' AND updated_at < :before
+        """, nativeQuery = true)
+    int releaseStuck(@Param("before") OffsetDateTime before);
+    
+    /**
+     * Busca sobres por estado actualizados antes de la fecha dada (los más antiguos primero)
+     */
+    List<InboundEnvelopeEntity> findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAsc(
+            String status, OffsetDateTime before, Pageable pageable);
+    
+    /**
+     * Sobres PENDING o PROCESSING de un cliente y contacto recibidos antes de la fecha dada
+     * (los más antiguos primero)
+     */
+    @Query(value = """
+        SELECT * FROM chatbotia.inbound_envelope
+        WHERE client_code = :clientCode AND contact_phone = :contactPhone
+          AND status IN ('PENDING', 'PROCESSING') AND received_at < :before
+        ORDER BY received_at
+        """, nativeQuery = true)
+    List<InboundEnvelopeEntity> findUnfinishedBefore(
+            @Param("clientCode") String clientCode,
+            @Param("contactPhone") String contactPhone,
+            @Param("before") OffsetDateTime before);
+}
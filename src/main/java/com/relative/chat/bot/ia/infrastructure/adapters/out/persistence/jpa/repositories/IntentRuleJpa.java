@@ -0,0 +1,23 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories;
+
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.IntentRuleEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface IntentRuleJpa extends JpaRepository<IntentRuleEntity, UUID> {
+    
+    /**
+     * Reglas activas globales y, si se indica, las del cliente
+     */
+    @Query("""
+        SELECT r FROM IntentRuleEntity r
+        WHERE r.isActive = true AND (r.clientId IS NULL OR r.clientId = :clientId)
+        """)
+    List<IntentRuleEntity> findActiveForClient(@Param("clientId") UUID clientId);
+}
@@ -2,7 +2,12 @@ package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.rep
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 import java.util.UUID;
@@ -13,4 +18,44 @@ import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.enti
 public interface KbChunkJpa extends JpaRepository<KbChunkEntity, UUID> {
   List<KbChunkEntity> findByDocumentIdOrderByChunkIndexAsc(UUID documentId);
 
+  /**
+   * Retorna cuáles de los IDs indicados existen, en una sola consulta
+   */
+  @Query("SELECT c.id FROM KbChunkEntity c WHERE c.id IN :ids")
+  List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+  @Query("SELECT c.id AS id, c.contentHash AS contentHash FROM KbChunkEntity c WHERE c.document.id = :documentId")
+  List<ChunkHashRow> findHashesByDocumentId(@Param("documentId") UUID documentId);
+
+  /**
+   * Mueve los chunks con índice >= 0 por debajo del menor índice negativo existente.
+   * Es inyectiva y nunca colisiona con índices ocupados, incluso si una re-ingesta anterior quedó a medias.
+   */
+  @Transactional
+  @Modifying
+  @Query(value = """
+      UPDATE chatbotia.kb_chunk
+      SET chunk_index = -chunk_index - 1 + (
+          SELECT COALESCE(MIN(chunk_index), 0) FROM chatbotia.kb_chunk
+          WHERE document_id = :documentId AND chunk_index < 0
+      )
+      WHERE document_id = :documentId AND chunk_index >= 0
+      """, nativeQuery = true)
+  int releaseIndexes(@Param("documentId") UUID documentId);
+
+  @Transactional
+  @Modifying
+  @Query(value = """
+      UPDATE chatbotia.kb_chunk c
+      SET chunk_index = v.chunk_index
+      FROM unnest(:ids, :indexes) AS v(id, chunk_index)
+      WHERE c.id = v.id
+      """, nativeQuery = true)
+  int updateIndexes(@Param("ids") UUID[] ids, @Param("indexes") Integer[] indexes);
+
+  interface ChunkHashRow {
+    UUID getId();
+    String getContentHash();
+  }
+
 }
@@ -5,6 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 
+import java.util.Optional;
+
 import java.util.UUID;
 
 import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.KbDocumentEntity;
@@ -13,4 +15,6 @@ import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.enti
 public interface KbDocumentJpa extends JpaRepository<KbDocumentEntity, UUID> {
   List<KbDocumentEntity> findByKbEntityId(UUID kbId);
 
+  Optional<KbDocumentEntity> findFirstByKbEntityIdAndSourceId(UUID kbId, String sourceId);
+
 }
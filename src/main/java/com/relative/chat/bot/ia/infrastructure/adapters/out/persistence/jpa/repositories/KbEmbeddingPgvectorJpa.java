@@ -22,11 +22,10 @@ public interface KbEmbeddingPgvectorJpa extends JpaRepository<KbEmbeddingPgvecto
     @Query(value = """
         INSERT INTO chatbotia.kb_embedding_pgvector (chunk_id, embedding, client_id, kb_id, created_at)
         VALUES (:chunkId, CAST(:embedding AS vector), :clientId, :kbId, NOW())
-        ON CONFLICT (chunk_id) 
+        ON CONFLICT (kb_id, chunk_id) 
         DO UPDATE SET 
             embedding = CAST(:embedding AS vector),
-            client_id = :clientId,
-            kb_id = :kbId
+            client_id = :clientId
         """, nativeQuery = true)
     void upsertEmbedding(
         @Param("chunkId") UUID chunkId,
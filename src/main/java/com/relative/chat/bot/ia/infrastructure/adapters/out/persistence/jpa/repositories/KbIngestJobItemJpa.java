@@ -0,0 +1,36 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories;
+
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.KbIngestJobItemEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface KbIngestJobItemJpa extends JpaRepository<KbIngestJobItemEntity, UUID> {
+    
+    List<KbIngestJobItemEntity> findByJobIdOrderByItemIndexAsc(UUID jobId);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job_item
+        SET document_id = :documentId, chunks_stored = :chunksStored, updated_at = NOW()
+        WHERE id = :id
+        """, nativeQuery = true)
+    int checkpoint(@Param("id") UUID id, @Param("documentId") UUID documentId, @Param("chunksStored") int chunksStored);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job_item
+        SET status = 'DONE', updated_at = NOW()
+        WHERE id = :id
+        """, nativeQuery = true)
+    int markDone(@Param("id") UUID id);
+}
@@ -0,0 +1,88 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories;
+
+import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.KbIngestJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface KbIngestJobJpa extends JpaRepository<KbIngestJobEntity, UUID> {
+    
+    /**
+     * Toma el siguiente job disponible sin bloquear a otros workers (FOR UPDATE SKIP LOCKED)
+     * y lo pasa a RUNNING. Retorna una lista vacía si no hay jobs pendientes.
+     */
+    @Transactional
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job
+        SET status = 'RUNNING', attempts = attempts + 1,
+            started_at = COALESCE(started_at, NOW()), updated_at = NOW()
+        WHERE id = (
+            SELECT id FROM chatbotia.kb_ingest_job
+            WHERE status = 'QUEUED' AND next_attempt_at <= NOW()
+            ORDER BY next_attempt_at
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING id
+        """, nativeQuery = true)
+    List<UUID> claimNext();
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job
+        SET pages_processed = :pagesProcessed, pages_total = :pagesTotal, updated_at = NOW()
+        WHERE id = :id
+        """, nativeQuery = true)
+    int updatePages(@Param("id") UUID id, @Param("pagesProcessed") int pagesProcessed, @Param("pagesTotal") int pagesTotal);
+    
+    /**
+     * Recalcula los totales del job a partir de los checkpoints de sus items
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job j
+        SET chunks_processed = (SELECT COALESCE(SUM(i.chunks_stored), 0) FROM chatbotia.kb_ingest_job_item i WHERE i.job_id = j.id),
+            items_done = (SELECT COUNT(*) FROM chatbotia.kb_ingest_job_item i WHERE i.job_id = j.id AND i.status = 'DONE'),
+            updated_at = NOW()
+        WHERE j.id = :id
+        """, nativeQuery = true)
+    int refreshProgress(@Param("id") UUID id);
+    
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job
+        SET status = :status, last_error = :error, next_attempt_at = :nextAttemptAt,
+            finished_at = CASE WHEN :status IN ('COMPLETED', 'FAILED') THEN NOW() ELSE NULL END,
+            updated_at = NOW()
+        WHERE id = :id
+        """, nativeQuery = true)
+    int updateStatus(
+        @Param("id") UUID id,
+        @Param("status") String status,
+        @Param("error") String error,
+        @Param("nextAttemptAt") OffsetDateTime nextAttemptAt
+    );
+    
+    /**
+     * Devuelve a QUEUED los jobs RUNNING sin actividad desde la fecha dada
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE chatbotia.kb_ingest_job
+        SET status = 'QUEUED', next_attempt_at = NOW(), updated_at = NOW()
+        WHERE status = 'RUNNING' AND updated_at < :before
+        """, nativeQuery = true)
+    int releaseStale(@Param("before") OffsetDateTime before);
+}
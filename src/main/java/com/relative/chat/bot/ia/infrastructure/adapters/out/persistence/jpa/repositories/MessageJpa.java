@@ -16,6 +16,25 @@ import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.enti
 public interface MessageJpa extends JpaRepository<MessageEntity, UUID> {
   List<MessageEntity> findTop100ByConversationEntityIdOrderByCreatedAtDesc(UUID conversationId);
   
+  /**
+   * Verifica si ya existe un mensaje con el ID externo del proveedor en la dirección dada
+   */
+  boolean existsByExternalIdAndDirection(String externalId, String direction);
+  
+  Optional<MessageEntity> findFirstByExternalIdAndDirection(String externalId, String direction);
+  
+  /**
+   * Verifica si hay mensajes salientes no fallidos en la conversación desde la fecha dada
+   */
+  @Query("""
+      SELECT COUNT(m) > 0 FROM MessageEntity m
+      WHERE m.conversationEntity.id = :conversationId
+        AND m.direction = 'OUT'
+        AND m.status <> 'FAILED'
+        AND m.createdAt >= :since
+      """)
+  boolean existsReplySince(@Param("conversationId") UUID conversationId, @Param("since") java.time.OffsetDateTime since);
+  
   /**
    * Obtiene el último mensaje de un contacto (el más reciente de todas sus conversaciones)
    */
@@ -0,0 +1,427 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.vector;
+
+import com.relative.chat.bot.ia.application.ports.out.VectorIndexManager;
+import com.relative.chat.bot.ia.application.services.LruTtlCache;
+import com.relative.chat.bot.ia.domain.types.VectorIndexType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gestión del índice ANN de kb_embedding_pgvector y de los parámetros de búsqueda por KB
+ *
+ * - La tabla está particionada por KB: el índice ANN es un índice particionado con un índice hijo
+ *   por partición, y cada búsqueda de un KB recorre solo el de su partición
+ * - Reconstrucción con CREATE INDEX CONCURRENTLY partición a partición: las búsquedas y la ingesta
+ *   siguen funcionando con el índice anterior hasta que el nuevo está listo
+ * - IVFFlat: lists = filas / 1000 hasta 1M filas y sqrt(filas) por encima (recomendación de pgvector),
+ *   calculado con las filas de cada partición
+ * - ivfflat.probes / hnsw.ef_search se aplican con set_config(..., true) (equivalente a SET LOCAL)
+ *   dentro de la transacción de cada búsqueda, con override por KB en kb_search_config
+ * - kb_search_config también activa por KB la búsqueda híbrida (léxica + vectorial) y su k de RRF
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.vector-store.provider", havingValue = "pgvector", matchIfMissing = false)
+public class PgVectorIndexManager implements VectorIndexManager {
+
+    private static final String INDEX_NAME = "idx_kbemb_pgvector_ann";
+    private static final String BUILD_INDEX_NAME = "idx_kbemb_pgvector_ann_build";
+
+    private static final String FIND_ANN_INDEXES_SQL = """
+        SELECT indexname, indexdef FROM pg_indexes
+        WHERE schemaname = 'chatbotia' AND tablename = 'kb_embedding_pgvector'
+          AND (indexdef ILIKE '%USING ivfflat%' OR indexdef ILIKE '%USING hnsw%')
+        ORDER BY indexname
+        """;
+
+    /**
+     * Particiones que aún no tienen índice hijo adjunto al índice de construcción
+     */
+    private static final String PARTITIONS_TO_INDEX_SQL = """
+        SELECT c.relname, GREATEST(c.reltuples, 0)::bigint AS estimated_rows
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'chatbotia.kb_embedding_pgvector'::regclass
+          AND NOT EXISTS (
+              SELECT 1 FROM pg_inherits ii
+              JOIN pg_index x ON x.indexrelid = ii.inhrelid
+              WHERE ii.inhparent = 'chatbotia.idx_kbemb_pgvector_ann_build'::regclass
+                AND x.indrelid = c.oid)
+        ORDER BY c.relname
+        """;
+
+    /**
+     * Índices hijos de una reconstrucción interrumpida que nunca se adjuntaron a un índice padre
+     */
+    private static final String ORPHAN_CHILD_INDEXES_SQL = """
+        SELECT ic.relname FROM pg_index x
+        JOIN pg_class ic ON ic.oid = x.indexrelid
+        JOIN pg_namespace n ON n.oid = ic.relnamespace
+        WHERE n.nspname = 'chatbotia' AND ic.relname LIKE 'kbemb\\_%'
+          AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = x.indexrelid)
+        """;
+
+    private static final String ESTIMATED_ROWS_SQL = """
+        SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)::bigint AS estimated_rows,
+               BOOL_OR(c.reltuples < 0) AS never_analyzed
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'chatbotia.kb_embedding_pgvector'::regclass
+        """;
+
+    private static final String UPSERT_SEARCH_CONFIG_SQL = """
+        INSERT INTO chatbotia.kb_search_config (kb_id, ivfflat_probes, hnsw_ef_search, hybrid_enabled, rrf_k, updated_at)
+        VALUES (?, ?, ?, ?, ?, NOW())
+        ON CONFLICT (kb_id)
+        DO UPDATE SET ivfflat_probes = EXCLUDED.ivfflat_probes,
+                      hnsw_ef_search = EXCLUDED.hnsw_ef_search,
+                      hybrid_enabled = EXCLUDED.hybrid_enabled,
+                      rrf_k = EXCLUDED.rrf_k,
+                      updated_at = NOW()
+        """;
+
+    private static final String KNN_SQL = """
+        SELECT chunk_id FROM chatbotia.kb_embedding_pgvector
+        WHERE kb_id = ?
+        ORDER BY embedding <=> CAST(? AS vector)
+        LIMIT ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchParams defaults;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final String maintenanceWorkMem;
+    private final LruTtlCache<UUID, SearchParams> searchParamsCache;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("vector-index-rebuild").factory());
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile String lastRebuildError;
+
+    public PgVectorIndexManager(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.vector.pgvector.search.probes:10}") int probes,
+            @Value("${app.vector.pgvector.search.ef-search:40}") int efSearch,
+            @Value("${app.vector.pgvector.search.hybrid:false}") boolean hybrid,
+            @Value("${app.vector.pgvector.search.rrf-k:60}") int rrfK,
+            @Value("${app.vector.pgvector.search.config-cache-seconds:300}") long configCacheSeconds,
+            @Value("${app.vector.pgvector.index.hnsw.m:16}") int hnswM,
+            @Value("${app.vector.pgvector.index.hnsw.ef-construction:64}") int hnswEfConstruction,
+            @Value("${app.vector.pgvector.index.maintenance-work-mem:1GB}") String maintenanceWorkMem
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.defaults = new SearchParams(probes, efSearch, hybrid, rrfK);
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+        this.maintenanceWorkMem = maintenanceWorkMem;
+        this.searchParamsCache = new LruTtlCache<>(10_000, Duration.ofSeconds(configCacheSeconds));
+
+        log.info("Búsqueda pgvector: probes={}, ef_search={}, híbrida={} (k RRF {}) por defecto (override por KB en kb_search_config)",
+                probes, efSearch, hybrid, rrfK);
+    }
+
+    /**
+     * Aplica los parámetros de búsqueda del KB a la transacción actual. Debe llamarse dentro de la
+     * transacción de la búsqueda: set_config(..., true) solo dura hasta el fin de la transacción.
+     *
+     * @param kbId KB de la búsqueda, o null para usar los valores por defecto
+     */
+    public void applySearchParams(UUID kbId) {
+        SearchParams params = kbId != null ? searchParams(kbId) : defaults;
+        jdbcTemplate.queryForList(
+                "SELECT set_config('ivfflat.probes', ?, true), set_config('hnsw.ef_search', ?, true)",
+                String.valueOf(params.probes()), String.valueOf(params.efSearch())
+        );
+    }
+
+    @Override
+    public SearchParams searchParams(UUID kbId) {
+        return searchParamsCache.computeIfAbsent(kbId, this::loadSearchParams);
+    }
+
+    private SearchParams loadSearchParams(UUID kbId) {
+        return jdbcTemplate.query(
+                "SELECT ivfflat_probes, hnsw_ef_search, hybrid_enabled, rrf_k FROM chatbotia.kb_search_config WHERE kb_id = ?",
+                (rs, rowNum) -> new SearchParams(
+                        Objects.requireNonNullElse(rs.getObject("ivfflat_probes", Integer.class), defaults.probes()),
+                        Objects.requireNonNullElse(rs.getObject("hnsw_ef_search", Integer.class), defaults.efSearch()),
+                        Objects.requireNonNullElse(rs.getObject("hybrid_enabled", Boolean.class), defaults.hybrid()),
+                        Objects.requireNonNullElse(rs.getObject("rrf_k", Integer.class), defaults.rrfK())
+                ),
+                kbId
+        ).stream().findFirst().orElse(defaults);
+    }
+
+    @Override
+    public void updateSearchParams(UUID kbId, SearchParams params) {
+        jdbcTemplate.update(UPSERT_SEARCH_CONFIG_SQL,
+                kbId, params.probes(), params.efSearch(), params.hybrid(), params.rrfK());
+        searchParamsCache.remove(kbId);
+        log.info("Parámetros de búsqueda del KB {} actualizados: probes={}, ef_search={}, híbrida={}, k RRF={}",
+                kbId, params.probes(), params.efSearch(), params.hybrid(), params.rrfK());
+    }
+
+    @Override
+    public IndexStatus status() {
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(FIND_ANN_INDEXES_SQL);
+        Map<String, Object> current = indexes.stream()
+                .filter(i -> !BUILD_INDEX_NAME.equals(i.get("indexname")))
+                .findFirst()
+                .orElse(null);
+
+        String definition = current != null ? (String) current.get("indexdef") : null;
+        return new IndexStatus(
+                current != null ? (String) current.get("indexname") : null,
+                typeOf(definition),
+                definition,
+                estimatedRows(),
+                rebuilding.get(),
+                lastRebuildError
+        );
+    }
+
+    @Override
+    public boolean rebuild(VectorIndexType type) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.execute(() -> {
+            try {
+                doRebuild(type);
+                lastRebuildError = null;
+            } catch (Exception e) {
+                lastRebuildError = e.getMessage();
+                log.error("❌ Error reconstruyendo el índice vectorial: {}", e.getMessage(), e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * CREATE INDEX CONCURRENTLY no puede ejecutarse en una transacción ni sobre la tabla padre
+     * particionada: se crea el índice padre con ON ONLY (inválido hasta tener todos sus hijos) y
+     * se construye y adjunta un índice por partición. Todo corre en una misma conexión en
+     * autocommit, para que maintenance_work_mem aplique a cada construcción.
+     * Las particiones creadas durante la reconstrucción reciben el hijo automáticamente.
+     */
+    private void doRebuild(VectorIndexType type) {
+        long rows = estimatedRows();
+        long partitions = Math.max(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhparent = 'chatbotia.kb_embedding_pgvector'::regclass",
+                Long.class), 1);
+        List<String> previous = jdbcTemplate.queryForList(FIND_ANN_INDEXES_SQL).stream()
+                .map(i -> (String) i.get("indexname"))
+                .filter(name -> !BUILD_INDEX_NAME.equals(name))
+                .toList();
+        String suffix = Long.toString(System.currentTimeMillis(), 36);
+
+        log.info("Construyendo índice {} sobre ~{} vectores en {} particiones", type, rows, partitions);
+        long startNanos = System.nanoTime();
+
+        int built = jdbcTemplate.execute((Connection connection) -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            int count = 0;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET maintenance_work_mem = '" + maintenanceWorkMem.replace("'", "") + "'");
+
+                // Un intento anterior interrumpido deja el índice padre de construcción (al eliminarlo
+                // caen sus hijos adjuntos) e hijos INVALID sin adjuntar
+                statement.execute("DROP INDEX IF EXISTS chatbotia." + BUILD_INDEX_NAME);
+                for (String orphan : queryNames(statement, ORPHAN_CHILD_INDEXES_SQL)) {
+                    statement.execute("DROP INDEX CONCURRENTLY IF EXISTS chatbotia." + orphan);
+                }
+
+                statement.execute("CREATE INDEX " + BUILD_INDEX_NAME
+                        + " ON ONLY chatbotia.kb_embedding_pgvector USING " + method(type, rows / partitions));
+
+                if (type == VectorIndexType.IVFFLAT) {
+                    // lists depende de las filas de cada partición: estimaciones actualizadas
+                    statement.execute("ANALYZE chatbotia.kb_embedding_pgvector");
+                }
+                Map<String, Long> pending = new LinkedHashMap<>();
+                try (ResultSet rs = statement.executeQuery(PARTITIONS_TO_INDEX_SQL)) {
+                    while (rs.next()) {
+                        pending.put(rs.getString("relname"), rs.getLong("estimated_rows"));
+                    }
+                }
+                for (Map.Entry<String, Long> partition : pending.entrySet()) {
+                    String child = childIndexName(partition.getKey(), suffix);
+                    statement.execute("CREATE INDEX CONCURRENTLY " + child + " ON chatbotia." + partition.getKey()
+                            + " USING " + method(type, partition.getValue()));
+                    statement.execute("ALTER INDEX chatbotia." + BUILD_INDEX_NAME
+                            + " ATTACH PARTITION chatbotia." + child);
+                    count++;
+                }
+
+                // Un índice particionado no admite DROP INDEX CONCURRENTLY: el bloqueo es breve
+                // (solo elimina los ficheros de cada hijo)
+                for (String name : previous) {
+                    statement.execute("DROP INDEX IF EXISTS chatbotia." + name);
+                }
+                statement.execute("ALTER INDEX chatbotia." + BUILD_INDEX_NAME + " RENAME TO " + INDEX_NAME);
+                statement.execute("RESET maintenance_work_mem");
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return count;
+        });
+
+        log.info("✅ Índice {} construido en {} particiones en {} s (reemplaza a {})",
+                type, built, Duration.ofNanos(System.nanoTime() - startNanos).toSeconds(), previous);
+    }
+
+    private String method(VectorIndexType type, long rows) {
+        return switch (type) {
+            case HNSW -> "hnsw (embedding vector_cosine_ops) WITH (m = %d, ef_construction = %d)"
+                    .formatted(hnswM, hnswEfConstruction);
+            case IVFFLAT -> "ivfflat (embedding vector_cosine_ops) WITH (lists = %d)".formatted(ivfflatLists(rows));
+        };
+    }
+
+    /**
+     * kbemb_&lt;uuid sin guiones | default&gt;_&lt;marca de tiempo base 36&gt;: único entre reconstrucciones
+     * y dentro del límite de 63 caracteres de Postgres
+     */
+    static String childIndexName(String partition, String suffix) {
+        return "kbemb_" + partition.substring(partition.lastIndexOf('_') + 1) + "_" + suffix;
+    }
+
+    private static List<String> queryNames(Statement statement, String sql) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public RecallReport measureRecall(UUID kbId, int k, int samples) {
+        SearchParams params = searchParams(kbId);
+        List<float[]> queries = jdbcTemplate.query(
+                "SELECT CAST(embedding AS real[]) AS embedding FROM chatbotia.kb_embedding_pgvector "
+                        + "WHERE kb_id = ? ORDER BY random() LIMIT ?",
+                (rs, rowNum) -> PgVectorStoreAdapter.readVector(rs.getArray("embedding")),
+                kbId, samples
+        );
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("El KB " + kbId + " no tiene vectores");
+        }
+
+        double[] annMs = new double[queries.size()];
+        double[] exactMs = new double[queries.size()];
+        double recallSum = 0;
+
+        for (int i = 0; i < queries.size(); i++) {
+            float[] query = queries.get(i);
+
+            long start = System.nanoTime();
+            List<UUID> ann = transactionTemplate.execute(status -> {
+                applySearchParams(kbId);
+                return knn(kbId, query, k);
+            });
+            annMs[i] = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            List<UUID> exact = transactionTemplate.execute(status -> {
+                // Sin índices: recorrido secuencial con distancia exacta
+                jdbcTemplate.queryForList("SELECT set_config('enable_indexscan', 'off', true), "
+                        + "set_config('enable_bitmapscan', 'off', true)");
+                return knn(kbId, query, k);
+            });
+            exactMs[i] = (System.nanoTime() - start) / 1_000_000.0;
+
+            if (!exact.isEmpty()) {
+                Set<UUID> expected = new HashSet<>(exact);
+                recallSum += ann.stream().filter(expected::contains).count() / (double) exact.size();
+            } else {
+                recallSum += 1.0;
+            }
+        }
+
+        Arrays.sort(annMs);
+        Arrays.sort(exactMs);
+        RecallReport report = new RecallReport(
+                kbId, k, queries.size(), recallSum / queries.size(),
+                percentile(annMs, 0.50), percentile(annMs, 0.95),
+                percentile(exactMs, 0.50), percentile(exactMs, 0.95),
+                params
+        );
+        log.info("Recall@{} del KB {}: {} (ANN p50 {} ms / p95 {} ms, exacta p50 {} ms / p95 {} ms, probes={}, ef_search={})",
+                k, kbId, String.format("%.3f", report.recall()),
+                String.format("%.1f", report.annP50Ms()), String.format("%.1f", report.annP95Ms()),
+                String.format("%.1f", report.exactP50Ms()), String.format("%.1f", report.exactP95Ms()),
+                params.probes(), params.efSearch());
+        return report;
+    }
+
+    private List<UUID> knn(UUID kbId, float[] vector, int k) {
+        return jdbcTemplate.query(KNN_SQL, ps -> {
+            ps.setObject(1, kbId);
+            PgVectorStoreAdapter.bindVector(ps, 2, vector);
+            ps.setInt(3, k);
+        }, (rs, rowNum) -> rs.getObject("chunk_id", UUID.class));
+    }
+
+    /**
+     * Filas estimadas por el planner (suma de pg_class.reltuples de las particiones); si alguna
+     * partición nunca fue analizada se cuentan
+     */
+    private long estimatedRows() {
+        Map<String, Object> totals = jdbcTemplate.queryForMap(ESTIMATED_ROWS_SQL);
+        if (Boolean.TRUE.equals(totals.get("never_analyzed"))) {
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM chatbotia.kb_embedding_pgvector", Long.class);
+            return count != null ? count : 0;
+        }
+        return ((Number) totals.get("estimated_rows")).longValue();
+    }
+
+    static int ivfflatLists(long rows) {
+        long lists = rows <= 1_000_000 ? rows / 1000 : (long) Math.sqrt(rows);
+        return (int) Math.max(lists, 10);
+    }
+
+    private static VectorIndexType typeOf(String definition) {
+        if (definition == null) {
+            return null;
+        }
+        String lower = definition.toLowerCase(Locale.ROOT);
+        if (lower.contains("using hnsw")) {
+            return VectorIndexType.HNSW;
+        }
+        return lower.contains("using ivfflat") ? VectorIndexType.IVFFLAT : null;
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Un CREATE INDEX CONCURRENTLY interrumpido deja un índice INVALID que se elimina en la siguiente reconstrucción
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,134 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.vector;
+
+import com.relative.chat.bot.ia.application.services.LruTtlCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Particiones por Knowledge Base de kb_embedding_pgvector (PARTITION BY LIST (kb_id))
+ *
+ * - Cada KB tiene su partición kb_embedding_pgvector_p_&lt;uuid sin guiones&gt;, con sus propios
+ *   índices creados a partir de los índices particionados del padre (incluido el ANN)
+ * - Los vectores de un KB sin partición caen en kb_embedding_pgvector_default; al crear la
+ *   partición se trasladan desde la DEFAULT
+ * - La DDL corre en su propia transacción, serializada entre instancias con un advisory lock
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.vector-store.provider", havingValue = "pgvector", matchIfMissing = false)
+public class PgVectorPartitionManager {
+
+    static final String SCHEMA = "chatbotia";
+    static final String PARENT_TABLE = "kb_embedding_pgvector";
+    static final String DEFAULT_PARTITION = "kb_embedding_pgvector_default";
+    private static final String PARTITION_PREFIX = "kb_embedding_pgvector_p_";
+
+    private static final String PARTITION_LOCK_KEY = "chatbotia.kb_embedding_pgvector.partitions";
+
+    private static final String LIST_PARTITIONS_SQL = """
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'chatbotia.kb_embedding_pgvector'::regclass
+        ORDER BY c.relname
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate ddlTransaction;
+    private final LruTtlCache<UUID, Boolean> existing;
+
+    public PgVectorPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.vector.pgvector.partitions.cache-seconds:60}") long cacheSeconds
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ddlTransaction = new TransactionTemplate(transactionManager);
+        this.ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.existing = new LruTtlCache<>(10_000, Duration.ofSeconds(cacheSeconds));
+    }
+
+    /**
+     * Nombre de la partición del KB (56 caracteres, dentro del límite de 63 de Postgres)
+     */
+    public static String partitionName(UUID kbId) {
+        return PARTITION_PREFIX + kbId.toString().replace("-", "");
+    }
+
+    /**
+     * Tabla a consultar para un KB: su partición si existe. Si no, vacío y la consulta debe ir
+     * a la tabla padre filtrando por kb_id (los vectores están en la partición DEFAULT).
+     */
+    public Optional<String> tableFor(UUID kbId) {
+        return exists(kbId)
+                ? Optional.of(SCHEMA + "." + partitionName(kbId))
+                : Optional.empty();
+    }
+
+    public boolean exists(UUID kbId) {
+        return existing.computeIfAbsent(kbId, id -> jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, SCHEMA + "." + partitionName(id)));
+    }
+
+    /**
+     * Crea la partición del KB si no existe. No debe llamarse dentro de una transacción que ya
+     * haya escrito en kb_embedding_pgvector: la DDL espera a los bloqueos de esa transacción.
+     */
+    public void ensurePartition(UUID kbId) {
+        if (exists(kbId)) {
+            return;
+        }
+
+        String partition = partitionName(kbId);
+        String qualified = SCHEMA + "." + partition;
+        String bounds = "FOR VALUES IN ('" + kbId + "')";
+
+        Integer moved = ddlTransaction.execute(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", PARTITION_LOCK_KEY);
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, qualified))) {
+                return 0;
+            }
+
+            Boolean pending = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM chatbotia." + DEFAULT_PARTITION + " WHERE kb_id = ?)",
+                    Boolean.class, kbId);
+            if (!Boolean.TRUE.equals(pending)) {
+                jdbcTemplate.execute("CREATE TABLE " + qualified
+                        + " PARTITION OF chatbotia." + PARENT_TABLE + " " + bounds);
+                return 0;
+            }
+
+            // Con filas del KB en la DEFAULT, PARTITION OF fallaría: se crea la tabla suelta,
+            // se trasladan las filas y se adjunta (los índices se construyen al adjuntar)
+            jdbcTemplate.execute("CREATE TABLE " + qualified + " (LIKE chatbotia." + PARENT_TABLE
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM chatbotia." + DEFAULT_PARTITION
+                    + " WHERE kb_id = ? RETURNING *) INSERT INTO " + qualified + " SELECT * FROM moved", kbId);
+            jdbcTemplate.execute("ALTER TABLE chatbotia." + PARENT_TABLE
+                    + " ATTACH PARTITION " + qualified + " " + bounds);
+            return rows;
+        });
+
+        existing.put(kbId, true);
+        log.info("Partición {} creada para el KB {} ({} vectores trasladados desde la DEFAULT)",
+                partition, kbId, moved);
+    }
+
+    /**
+     * Particiones actuales de kb_embedding_pgvector (incluida la DEFAULT)
+     */
+    public List<String> partitions() {
+        return jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+    }
+}
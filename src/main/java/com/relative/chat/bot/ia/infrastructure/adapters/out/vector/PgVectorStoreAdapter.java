@@ -1,23 +1,49 @@
 package com.relative.chat.bot.ia.infrastructure.adapters.out.vector;
 
+import com.relative.chat.bot.ia.application.dto.KnowledgeBaseChangedEvent;
+import com.relative.chat.bot.ia.application.ports.out.VectorIndexManager;
 import com.relative.chat.bot.ia.application.ports.out.VectorStore;
 import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.entities.*;
 import com.relative.chat.bot.ia.infrastructure.adapters.out.persistence.jpa.repositories.*;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.exception.SQLGrammarException;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 /**
  * Implementación de VectorStore usando pgvector de PostgreSQL
  * Persiste embeddings y metadatos en la base de datos
+ *
+ * Búsqueda híbrida (por KB, ver kb_search_config): la búsqueda por trigramas sobre kb_chunk.content
+ * (idx_kbchunk_content_trgm) corre en paralelo con la vectorial y ambas listas se combinan con
+ * reciprocal rank fusion. Recupera consultas cortas (códigos, nombres propios) que el embedding no acierta.
  */
 @Slf4j
 @Service
@@ -25,57 +51,258 @@ import java.util.stream.Stream;
 @ConditionalOnProperty(name = "app.vector-store.provider", havingValue = "pgvector", matchIfMissing = false)
 public class PgVectorStoreAdapter implements VectorStore {
     
-    private final KbEmbeddingPgvectorJpa embeddingRepository;
     private final KbChunkJpa chunkRepository;
-    private final KbVectorRefJpa vectorRefRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final PgVectorIndexManager indexManager;
+    private final PgVectorPartitionManager partitionManager;
+    private final TransactionTemplate transactionTemplate;
     
+    /**
+     * Hilos virtuales para la búsqueda léxica, que usa su propia conexión mientras corre la vectorial
+     */
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    /**
+     * Filas por sentencia INSERT multi-fila (5 parámetros por fila, muy por debajo del límite de
+     * 32767 parámetros del protocolo de PostgreSQL)
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    
+    /**
+     * kb_id es la clave de partición: si el payload no lo trae se toma del documento del chunk
+     */
+    private static final String UPSERT_EMBEDDING_INSERT =
+        "INSERT INTO chatbotia.kb_embedding_pgvector (chunk_id, embedding, client_id, kb_id, created_at) VALUES ";
+    private static final String UPSERT_EMBEDDING_ROW = """
+        (?, CAST(? AS vector), ?, COALESCE(?, (
+            SELECT d.kb_id FROM chatbotia.kb_chunk c
+            JOIN chatbotia.kb_document d ON d.id = c.document_id
+            WHERE c.id = ?)), NOW())""";
+    private static final String UPSERT_EMBEDDING_CONFLICT = """
+        
+        ON CONFLICT (kb_id, chunk_id)
+        DO UPDATE SET
+            embedding = EXCLUDED.embedding,
+            client_id = EXCLUDED.client_id
+        """;
+    
+    private static final String UPSERT_VECTOR_REF_INSERT =
+        "INSERT INTO chatbotia.kb_vector_ref (chunk_id, backend, index_name, vector_id, created_at) VALUES ";
+    private static final String UPSERT_VECTOR_REF_ROW = "(?, 'pgvector', 'kb_embedding_pgvector', ?, NOW())";
+    private static final String UPSERT_VECTOR_REF_CONFLICT = """
+        
+        ON CONFLICT (chunk_id)
+        DO UPDATE SET
+            backend = EXCLUDED.backend,
+            index_name = EXCLUDED.index_name,
+            vector_id = EXCLUDED.vector_id
+        """;
+    
+    private static final String SEARCH_SQL_TEMPLATE = """
+        SELECT nn.chunk_id, nn.distance, c.content, CAST(c.metadata AS text) AS metadata,
+               c.chunk_index, c.document_id
+        FROM (
+            SELECT chunk_id, embedding <=> CAST(? AS vector) AS distance
+            FROM %s
+            %s
+            ORDER BY distance
+            LIMIT ?
+        ) nn
+        JOIN chatbotia.kb_chunk c ON c.id = nn.chunk_id
+        ORDER BY nn.distance
+        """;
+    
+    /**
+     * Página de vectores por keyset sobre chunk_id: cada página es una consulta corta e
+     * independiente, sin cursor abierto ni OFFSET que crezca con el avance
+     */
+    private static final String STREAM_SQL_TEMPLATE = """
+        SELECT e.chunk_id, CAST(e.embedding AS real[]) AS embedding, e.kb_id, e.client_id,
+               c.document_id, c.chunk_index, c.content, c.tokens, CAST(c.metadata AS text) AS metadata
+        FROM chatbotia.kb_embedding_pgvector e
+        JOIN chatbotia.kb_chunk c ON c.id = e.chunk_id
+        WHERE e.chunk_id > ? %s
+        ORDER BY e.chunk_id
+        LIMIT ?
+        """;
+    
+    private static final String STREAM_BY_KB_SQL = STREAM_SQL_TEMPLATE.formatted("AND e.kb_id = ?");
+    private static final String STREAM_ALL_SQL = STREAM_SQL_TEMPLATE.formatted("");
+    
+    /**
+     * Menor UUID posible: punto de partida del keyset cuando no se reanuda
+     */
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+    
+    /**
+     * Búsqueda léxica: word_similarity con el operador &lt;% (soportado por el índice GIN de trigramas).
+     * Los chunks con índice negativo están siendo reemplazados por una re-ingesta.
+     */
+    private static final String LEXICAL_SEARCH_SQL = """
+        SELECT c.id AS chunk_id, word_similarity(?, c.content) AS similarity, c.content,
+               CAST(c.metadata AS text) AS metadata, c.chunk_index, c.document_id
+        FROM chatbotia.kb_chunk c
+        JOIN chatbotia.kb_document d ON d.id = c.document_id
+        WHERE d.kb_id = ? AND c.chunk_index >= 0 AND ? <% c.content
+        ORDER BY similarity DESC
+        LIMIT ?
+        """;
+    
+    /**
+     * Los trigramas necesitan al menos 3 caracteres
+     */
+    private static final int MIN_LEXICAL_QUERY_LENGTH = 3;
+    
+    private static final String EMBEDDING_TABLE = "chatbotia.kb_embedding_pgvector";
+    
+    /**
+     * Búsqueda por KB sobre la tabla padre: solo para KBs sin partición (vectores en la DEFAULT)
+     */
+    private static final String SEARCH_BY_KB_SQL = SEARCH_SQL_TEMPLATE.formatted(EMBEDDING_TABLE, "WHERE kb_id = ?");
+    private static final String SEARCH_BY_CLIENT_SQL = SEARCH_SQL_TEMPLATE.formatted(EMBEDDING_TABLE, "WHERE client_id = ?");
+    private static final String SEARCH_ALL_SQL = SEARCH_SQL_TEMPLATE.formatted(EMBEDDING_TABLE, "");
+    
+    /**
+     * Tamaño de lote para el upsert masivo de embeddings
+     */
+    @Value("${app.vector.pgvector.upsert-batch-size:500}")
+    private int batchSize;
+    
+    /**
+     * Candidatos de cada búsqueda (léxica y vectorial) que entran a la fusión
+     */
+    @Value("${app.vector.pgvector.search.hybrid-candidates:20}")
+    private int hybridCandidates;
+    
+    /**
+     * Umbral de pg_trgm.word_similarity_threshold para la búsqueda léxica
+     */
+    @Value("${app.vector.pgvector.search.word-similarity-threshold:0.4}")
+    private double wordSimilarityThreshold;
+    
+    private Timer upsertTimer;
+    private Counter upsertedCounter;
+    private Timer lexicalTimer;
+    private Counter lexicalOnlyCounter;
+    
+    @PostConstruct
+    public void initMetrics() {
+        upsertTimer = Timer.builder("vector.upsert")
+                .description("Duración del upsert de un conjunto de vectores en pgvector")
+                .register(meterRegistry);
+        upsertedCounter = meterRegistry.counter("vector.upsert.vectors", "backend", "pgvector");
+        lexicalTimer = Timer.builder("vector.search.lexical")
+                .description("Duración de la búsqueda por trigramas de la búsqueda híbrida")
+                .register(meterRegistry);
+        lexicalOnlyCounter = meterRegistry.counter("vector.search.hybrid.lexical_only");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.close();
+    }
+    
+    /**
+     * Un namespace kb_&lt;uuid&gt; corresponde a una partición de kb_embedding_pgvector: se crea si no existe.
+     * Debe llamarse fuera de transacciones que escriban embeddings (la DDL espera a sus bloqueos).
+     */
     @Override
     public void ensureNamespace(String ns, int dim) {
+        UUID kbId = extractKbIdFromNamespace(ns);
+        if (kbId != null) {
+            partitionManager.ensurePartition(kbId);
+        }
         log.info("Namespace '{}' configurado para dimensión {} con pgvector", ns, dim);
-        // En pgvector, no necesitamos crear namespaces explícitamente
-        // Los datos se organizan por kb_id
     }
     
     @Override
     @Transactional
     public void upsert(String ns, List<VectorRecord> records) {
-        log.info("Insertando {} vectores en namespace '{}' usando pgvector", records.size(), ns);
+        log.info("Insertando {} vectores en namespace '{}' usando pgvector (lotes de {})", records.size(), ns, batchSize);
+        long startNanos = System.nanoTime();
+        int written = 0;
         
-        for (VectorRecord record : records) {
-            try {
-                UUID chunkId = UUID.fromString(record.id());
-                
-                // 1. Verificar que el chunk existe
-                if (!chunkRepository.existsById(chunkId)) {
-                    log.warn("Chunk {} no encontrado, saltando embedding", chunkId);
-                    continue;
-                }
-                
-                // 2. Convertir float[] a formato pgvector string: "[0.1, 0.2, 0.3]"
-                String embeddingStr = vectorToString(record.vector());
-                
-                // 3. Upsert del embedding usando query nativa (INSERT ... ON CONFLICT)
-                UUID clientId = extractClientId(record.payload());
-                UUID kbId = extractKbId(record.payload());
-                embeddingRepository.upsertEmbedding(chunkId, embeddingStr, clientId, kbId);
-                
-                // 4. Upsert de la referencia vectorial
-                vectorRefRepository.upsertVectorRef(
-                    chunkId, 
-                    "pgvector", 
-                    "kb_embedding_pgvector", 
-                    chunkId.toString()
-                );
-                
-                log.debug("Embedding persistido para chunk {}", chunkId);
-                
-            } catch (Exception e) {
-                log.error("Error al persistir vector {}: {}", record.id(), e.getMessage(), e);
-                throw new RuntimeException("Error al guardar embedding: " + e.getMessage(), e);
+        try {
+            for (int from = 0; from < records.size(); from += batchSize) {
+                List<VectorRecord> batch = records.subList(from, Math.min(from + batchSize, records.size()));
+                written += upsertBatch(batch);
             }
+        } catch (DataAccessException e) {
+            log.error("Error al persistir lote de vectores en namespace '{}': {}", ns, e.getMessage(), e);
+            throw new RuntimeException("Error al guardar embeddings: " + e.getMessage(), e);
         }
         
-        log.info("✅ {} embeddings guardados exitosamente en pgvector", records.size());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        upsertTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        upsertedCounter.increment(written);
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        log.info("✅ {} embeddings guardados en pgvector en {} ms ({} vectores/s)",
+                written, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                seconds > 0 ? Math.round(written / seconds) : written);
+    }
+    
+    /**
+     * Persiste un lote: valida existencia de chunks con una sola consulta y escribe embeddings y
+     * referencias con sentencias INSERT ... VALUES (...), (...) ON CONFLICT multi-fila armadas
+     * explícitamente: una ida y vuelta por cada {@link #MAX_ROWS_PER_STATEMENT} filas, sin depender de
+     * reWriteBatchedInserts en la URL del driver
+     *
+     * @return número de vectores escritos
+     */
+    private int upsertBatch(List<VectorRecord> batch) {
+        // 1. Validar existencia de los chunks del lote en una sola consulta
+        List<UUID> ids = batch.stream().map(r -> UUID.fromString(r.id())).toList();
+        Set<UUID> existing = new HashSet<>(chunkRepository.findExistingIds(ids));
+        
+        // Un mismo chunk no puede aparecer dos veces en un INSERT ... ON CONFLICT DO UPDATE: gana el último
+        Map<UUID, VectorRecord> unique = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (existing.contains(ids.get(i))) {
+                unique.put(ids.get(i), batch.get(i));
+            } else {
+                log.warn("Chunk {} no encontrado, saltando embedding", ids.get(i));
+            }
+        }
+        if (unique.isEmpty()) {
+            return 0;
+        }
+        List<VectorRecord> valid = new ArrayList<>(unique.values());
+        
+        for (int from = 0; from < valid.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<VectorRecord> rows = valid.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, valid.size()));
+            
+            // 2. Upsert de embeddings
+            jdbcTemplate.update(
+                    multiRowSql(UPSERT_EMBEDDING_INSERT, UPSERT_EMBEDDING_ROW, UPSERT_EMBEDDING_CONFLICT, rows.size()),
+                    ps -> {
+                        int index = 1;
+                        for (VectorRecord record : rows) {
+                            UUID chunkId = UUID.fromString(record.id());
+                            ps.setObject(index++, chunkId);
+                            bindVector(ps, index++, record.vector());
+                            ps.setObject(index++, extractClientId(record.payload()));
+                            ps.setObject(index++, extractKbId(record.payload()));
+                            ps.setObject(index++, chunkId);
+                        }
+                    });
+            
+            // 3. Upsert de referencias vectoriales
+            jdbcTemplate.update(
+                    multiRowSql(UPSERT_VECTOR_REF_INSERT, UPSERT_VECTOR_REF_ROW, UPSERT_VECTOR_REF_CONFLICT, rows.size()),
+                    ps -> {
+                        int index = 1;
+                        for (VectorRecord record : rows) {
+                            ps.setObject(index++, UUID.fromString(record.id()));
+                            ps.setString(index++, record.id());
+                        }
+                    });
+        }
+        
+        log.debug("Lote de {} embeddings persistido", valid.size());
+        return valid.size();
     }
     
     @Override
@@ -84,55 +311,29 @@ public class PgVectorStoreAdapter implements VectorStore {
         log.info("Búsqueda en namespace '{}' con topK={}", ns, topK);
         
         try {
-            // Convertir vector a string format pgvector
-            String embeddingStr = vectorToString(vector);
-            
             // Extraer kb_id del namespace (formato: "kb_<uuid>")
             UUID kbIdFromNamespace = extractKbIdFromNamespace(ns);
             
-            // Ejecutar búsqueda por similitud
-            List<Object[]> results;
+            // Ejecutar búsqueda por similitud (una sola consulta con el contenido del chunk)
+            List<QueryResult> queryResults;
             
             // Prioridad: 1) namespace, 2) filtro kb_id, 3) filtro client_id, 4) sin filtro
             if (kbIdFromNamespace != null) {
                 log.info("Filtrando por KB ID del namespace: {}", kbIdFromNamespace);
-                results = embeddingRepository.findNearestNeighborsByKb(embeddingStr, kbIdFromNamespace, topK);
+                queryResults = searchKb(kbIdFromNamespace, vector, topK);
             } else if (filter != null && filter.containsKey("kb_id")) {
                 UUID kbId = UUID.fromString(filter.get("kb_id").toString());
                 log.info("Filtrando por KB ID del filtro: {}", kbId);
-                results = embeddingRepository.findNearestNeighborsByKb(embeddingStr, kbId, topK);
+                queryResults = searchKb(kbId, vector, topK);
             } else if (filter != null && filter.containsKey("client_id")) {
                 UUID clientId = UUID.fromString(filter.get("client_id").toString());
                 log.info("Filtrando por Client ID: {}", clientId);
-                results = embeddingRepository.findNearestNeighborsByClient(embeddingStr, clientId, topK);
+                indexManager.applySearchParams(null);
+                queryResults = searchChunks(SEARCH_BY_CLIENT_SQL, vector, clientId, topK);
             } else {
                 log.warn("Búsqueda sin filtros - buscando en todos los embeddings");
-                results = embeddingRepository.findNearestNeighbors(embeddingStr, topK);
-            }
-            
-            // Convertir resultados a QueryResult
-            List<QueryResult> queryResults = new ArrayList<>();
-            
-            for (Object[] row : results) {
-                UUID chunkId = (UUID) row[0];
-                double distance = ((Number) row[1]).doubleValue();
-                double score = 1.0 - distance; // Convertir distancia a score
-                
-                // Cargar chunk para obtener contenido y metadata
-                Optional<KbChunkEntity> chunkOpt = chunkRepository.findById(chunkId);
-                if (chunkOpt.isEmpty()) {
-                    continue;
-                }
-                
-                KbChunkEntity chunk = chunkOpt.get();
-                
-                Map<String, Object> payload = new HashMap<>(chunk.getMetadata() != null ? chunk.getMetadata() : Map.of());
-                payload.put("text", chunk.getContent());
-                payload.put("chunk_id", chunkId.toString());
-                payload.put("chunk_index", chunk.getChunkIndex());
-                payload.put("document_id", chunk.getDocument().getId().toString());
-                
-                queryResults.add(new QueryResult(chunkId.toString(), score, payload));
+                indexManager.applySearchParams(null);
+                queryResults = searchChunks(SEARCH_ALL_SQL, vector, null, topK);
             }
             
             log.info("Encontrados {} resultados", queryResults.size());
@@ -169,42 +370,273 @@ public class PgVectorStoreAdapter implements VectorStore {
         }
     }
     
+    /**
+     * Búsqueda híbrida si el KB la tiene activa (o si el filtro search_mode la fuerza) y la consulta
+     * tiene texto suficiente; si no, la búsqueda vectorial de siempre
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW, noRollbackFor = {SQLGrammarException.class})
+    public List<QueryResult> query(String ns, String text, float[] vector, int topK, Map<String, Object> filter) {
+        UUID kbId = extractKbIdFromNamespace(ns);
+        if (kbId == null && filter != null && filter.containsKey("kb_id")) {
+            kbId = UUID.fromString(filter.get("kb_id").toString());
+        }
+        if (kbId == null || text == null || text.strip().length() < MIN_LEXICAL_QUERY_LENGTH) {
+            return query(ns, vector, topK, filter);
+        }
+        
+        VectorIndexManager.SearchParams params = indexManager.searchParams(kbId);
+        Object mode = filter != null ? filter.get(SEARCH_MODE_FILTER) : null;
+        boolean hybrid = mode != null ? "hybrid".equalsIgnoreCase(mode.toString()) : Boolean.TRUE.equals(params.hybrid());
+        if (!hybrid) {
+            return query(ns, vector, topK, filter);
+        }
+        
+        int candidates = Math.max(topK, hybridCandidates);
+        UUID lexicalKbId = kbId;
+        CompletableFuture<List<QueryResult>> lexical = CompletableFuture.supplyAsync(
+                () -> lexicalTimer.record(() -> lexicalSearch(lexicalKbId, text.strip(), candidates)), searchExecutor);
+        
+        List<QueryResult> semantic = query(ns, vector, candidates, filter);
+        
+        List<QueryResult> lexicalResults;
+        try {
+            lexicalResults = lexical.join();
+        } catch (CompletionException e) {
+            log.warn("Búsqueda léxica fallida, se usan solo resultados vectoriales: {}", e.getCause().getMessage());
+            lexicalResults = List.of();
+        }
+        
+        List<QueryResult> fused = fuse(semantic, lexicalResults, params.rrfK(), topK);
+        Set<String> semanticIds = new HashSet<>();
+        semantic.forEach(r -> semanticIds.add(r.id()));
+        lexicalOnlyCounter.increment(fused.stream().filter(r -> !semanticIds.contains(r.id())).count());
+        
+        log.info("Búsqueda híbrida en KB {}: {} vectoriales + {} léxicos -> {} resultados",
+                kbId, semantic.size(), lexicalResults.size(), fused.size());
+        return fused;
+    }
+    
+    private List<QueryResult> lexicalSearch(UUID kbId, String text, int limit) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                    String.valueOf(wordSimilarityThreshold));
+            return jdbcTemplate.query(LEXICAL_SEARCH_SQL, ps -> {
+                ps.setString(1, text);
+                ps.setObject(2, kbId);
+                ps.setString(3, text);
+                ps.setInt(4, limit);
+            }, (rs, rowNum) -> {
+                String chunkId = rs.getObject("chunk_id", UUID.class).toString();
+                Map<String, Object> payload = parseMetadata(rs.getString("metadata"));
+                payload.put("text", rs.getString("content"));
+                payload.put("chunk_id", chunkId);
+                payload.put("chunk_index", rs.getInt("chunk_index"));
+                payload.put("document_id", rs.getObject("document_id", UUID.class).toString());
+                return new QueryResult(chunkId, rs.getDouble("similarity"), payload);
+            });
+        });
+    }
+    
+    /**
+     * Reciprocal rank fusion: score = suma de 1 / (k + rank) sobre las listas donde aparece el chunk.
+     * Solo usa posiciones, por lo que no hay que normalizar distancias coseno frente a similitudes de trigramas.
+     * El payload conserva el score de cada búsqueda (vector_score, lexical_score).
+     */
+    static List<QueryResult> fuse(List<QueryResult> semantic, List<QueryResult> lexical, int k, int topK) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> payloads = new HashMap<>();
+        
+        for (int rank = 0; rank < semantic.size(); rank++) {
+            QueryResult result = semantic.get(rank);
+            scores.merge(result.id(), 1.0 / (k + rank + 1), Double::sum);
+            payloads.computeIfAbsent(result.id(), id -> new HashMap<>(result.payload()))
+                    .put("vector_score", result.score());
+        }
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            QueryResult result = lexical.get(rank);
+            scores.merge(result.id(), 1.0 / (k + rank + 1), Double::sum);
+            payloads.computeIfAbsent(result.id(), id -> new HashMap<>(result.payload()))
+                    .put("lexical_score", result.score());
+        }
+        
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(topK)
+                .map(entry -> {
+                    Map<String, Object> payload = payloads.get(entry.getKey());
+                    payload.put("rrf_score", entry.getValue());
+                    return new QueryResult(entry.getKey(), entry.getValue(), payload);
+                })
+                .toList();
+    }
+    
     @Override
     @Transactional
     public void delete(String ns, List<String> ids) {
-        log.info("Eliminando {} documentos del namespace '{}'", ids.size(), ns);
+        log.info("Eliminando {} chunks del namespace '{}'", ids.size(), ns);
+        if (ids.isEmpty()) {
+            return;
+        }
         
+        List<UUID> chunkIds = new ArrayList<>(ids.size());
         for (String id : ids) {
             try {
-                UUID chunkId = UUID.fromString(id);
-                
-                // Las eliminaciones en cascada se encargarán de los embeddings y referencias
-                chunkRepository.deleteById(chunkId);
-                
-            } catch (Exception e) {
-                log.error("Error al eliminar chunk {}: {}", id, e.getMessage());
+                chunkIds.add(UUID.fromString(id));
+            } catch (IllegalArgumentException e) {
+                log.error("ID de chunk inválido {}: {}", id, e.getMessage());
             }
         }
+        
+        // Una sola sentencia DELETE; las eliminaciones en cascada se encargan de los embeddings y referencias
+        chunkRepository.deleteAllByIdInBatch(chunkIds);
+        
+        eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(ns, "delete"));
     }
     
+    /**
+     * Recorre los vectores por keyset (chunk_id &gt; último ID, ORDER BY chunk_id LIMIT n).
+     * Las páginas se consultan de forma perezosa a medida que se consume el stream.
+     * Un namespace kb_&lt;uuid&gt; se limita a ese KB; cualquier otro recorre todos los vectores.
+     */
     @Override
-    public Stream<List<VectorRecord>> streamAll(String ns, int batchSize) {
-        log.warn("streamAll aún no implementado para pgvector");
-        return Stream.empty();
+    public Stream<List<VectorRecord>> streamAll(String ns, int batchSize, String afterId) {
+        UUID kbId = extractKbIdFromNamespace(ns);
+        UUID start = afterId != null ? UUID.fromString(afterId) : MIN_UUID;
+        log.info("Recorriendo vectores del namespace '{}' en lotes de {} (desde {})", ns, batchSize, start);
+        
+        return Stream.iterate(
+                fetchPage(kbId, start, batchSize),
+                page -> !page.isEmpty(),
+                page -> page.size() < batchSize
+                        ? List.of()
+                        : fetchPage(kbId, UUID.fromString(page.get(page.size() - 1).id()), batchSize)
+        );
+    }
+    
+    private List<VectorRecord> fetchPage(UUID kbId, UUID afterId, int limit) {
+        return jdbcTemplate.query(kbId != null ? STREAM_BY_KB_SQL : STREAM_ALL_SQL, ps -> {
+            int index = 1;
+            ps.setObject(index++, afterId);
+            if (kbId != null) {
+                ps.setObject(index++, kbId);
+            }
+            ps.setInt(index, limit);
+        }, (rs, rowNum) -> {
+            String chunkId = rs.getObject("chunk_id", UUID.class).toString();
+            
+            Map<String, Object> payload = parseMetadata(rs.getString("metadata"));
+            payload.put("chunk_id", chunkId);
+            payload.put("document_id", rs.getObject("document_id", UUID.class).toString());
+            UUID kb = rs.getObject("kb_id", UUID.class);
+            UUID client = rs.getObject("client_id", UUID.class);
+            if (kb != null) {
+                payload.put("kb_id", kb.toString());
+            }
+            if (client != null) {
+                payload.put("client_id", client.toString());
+            }
+            payload.put("text", rs.getString("content"));
+            payload.put("chunk_index", rs.getInt("chunk_index"));
+            payload.put("tokens", rs.getObject("tokens", Integer.class));
+            
+            return new VectorRecord(chunkId, readVector(rs.getArray("embedding")), payload);
+        });
+    }
+    
+    /**
+     * Convierte el real[] devuelto por el driver a float[]
+     */
+    static float[] readVector(Array array) throws SQLException {
+        try {
+            Float[] boxed = (Float[]) array.getArray();
+            float[] vector = new float[boxed.length];
+            for (int i = 0; i < boxed.length; i++) {
+                vector[i] = boxed[i];
+            }
+            return vector;
+        } finally {
+            array.free();
+        }
+    }
+    
+    /**
+     * Búsqueda en un KB: directamente sobre su partición (solo su índice ANN, sin filtro por kb_id);
+     * si el KB aún no tiene partición, sobre la tabla padre filtrando por kb_id
+     */
+    private List<QueryResult> searchKb(UUID kbId, float[] vector, int topK) {
+        indexManager.applySearchParams(kbId);
+        return partitionManager.tableFor(kbId)
+                .map(table -> searchChunks(SEARCH_SQL_TEMPLATE.formatted(table, ""), vector, null, topK))
+                .orElseGet(() -> searchChunks(SEARCH_BY_KB_SQL, vector, kbId, topK));
+    }
+    
+    /**
+     * Ejecuta la búsqueda top-K: el KNN se resuelve sobre kb_embedding_pgvector (usa el índice vectorial)
+     * y solo esas filas se unen con kb_chunk para obtener contenido y metadata
+     *
+     * @param filterValue Valor del filtro (kb_id o client_id), o null para la búsqueda sin filtro
+     */
+    private List<QueryResult> searchChunks(String sql, float[] vector, UUID filterValue, int topK) {
+        return jdbcTemplate.query(sql, ps -> {
+            int index = 1;
+            bindVector(ps, index++, vector);
+            if (filterValue != null) {
+                ps.setObject(index++, filterValue);
+            }
+            ps.setInt(index, topK);
+        }, (rs, rowNum) -> {
+            String chunkId = rs.getObject("chunk_id", UUID.class).toString();
+            double score = 1.0 - rs.getDouble("distance"); // Convertir distancia a score
+            
+            Map<String, Object> payload = parseMetadata(rs.getString("metadata"));
+            payload.put("text", rs.getString("content"));
+            payload.put("chunk_id", chunkId);
+            payload.put("chunk_index", rs.getInt("chunk_index"));
+            payload.put("document_id", rs.getObject("document_id", UUID.class).toString());
+            
+            return new QueryResult(chunkId, score, payload);
+        });
     }
     
     /**
-     * Convierte un array de floats a formato string de pgvector
-     * Ejemplo: [0.1, 0.2, 0.3] -> "[0.1,0.2,0.3]"
+     * INSERT con {@code rows} tuplas en VALUES seguido de la cláusula ON CONFLICT
      */
-    private String vectorToString(float[] vector) {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < vector.length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(vector[i]);
+    static String multiRowSql(String insert, String row, String conflict, int rows) {
+        StringBuilder sql = new StringBuilder(insert.length() + conflict.length() + rows * (row.length() + 2));
+        sql.append(insert);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.append(conflict).toString();
+    }
+    
+    /**
+     * Vincula el embedding como arreglo float4 (real[]) sin pasar por un literal de texto.
+     * El driver lo serializa directamente desde el float[] (en binario si binaryTransfer está activo)
+     * y Postgres lo convierte con el cast nativo real[] -> vector de pgvector.
+     */
+    static void bindVector(PreparedStatement ps, int index, float[] vector) throws SQLException {
+        Array array = ps.getConnection().unwrap(PGConnection.class).createArrayOf("float4", vector);
+        ps.setArray(index, array);
+    }
+    
+    /**
+     * Convierte la metadata JSONB (serializada como texto) del chunk a un Map mutable
+     */
+    private Map<String, Object> parseMetadata(String json) {
+        if (json == null || json.isBlank()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<HashMap<String, Object>>() {});
+        } catch (Exception e) {
+            log.warn("Metadata de chunk inválida, se ignora: {}", e.getMessage());
+            return new HashMap<>();
         }
-        sb.append("]");
-        return sb.toString();
     }
     
     /**
@@ -45,7 +45,7 @@ public class SimplePgVectorStoreAdapter implements VectorStore {
     }
     
     @Override
-    public Stream<List<VectorRecord>> streamAll(String ns, int batchSize) {
+    public Stream<List<VectorRecord>> streamAll(String ns, int batchSize, String afterId) {
         log.warn("streamAll no implementado");
         return Stream.empty();
     }
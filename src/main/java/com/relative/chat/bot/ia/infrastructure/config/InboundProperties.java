@@ -0,0 +1,55 @@
+package com.relative.chat.bot.ia.infrastructure.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propiedades de configuración para el procesamiento asíncrono de mensajes entrantes
+ */
+@Slf4j
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.inbound")
+public class InboundProperties {
+    
+    private int shards = 64;                     // Shards del ejecutor (un consumidor virtual por shard)
+    private int shardQueueCapacity = 32;         // Capacidad de la cola de cada shard
+    private int maxAttempts = 3;                 // Intentos antes de marcar el sobre como FAILED
+    private Recovery recovery = new Recovery();
+    private Dedup dedup = new Dedup();
+    private int shutdownTimeoutSeconds = 30;     // Espera para drenar la cola al apagar
+    
+    @PostConstruct
+    public void logConfiguration() {
+        log.info("Configuración de procesamiento de mensajes entrantes cargada:");
+        log.info("  - Shards: {}, capacidad por shard: {}, intentos máximos: {}", 
+                shards, shardQueueCapacity, maxAttempts);
+        log.info("  - Recuperación: cada {} ms (pendientes > {} s, atascados > {} s, lote {})", 
+                recovery.getIntervalMs(), recovery.getPendingAfterSeconds(), 
+                recovery.getStuckAfterSeconds(), recovery.getBatchSize());
+        log.info("  - Deduplicación: {} (capacidad {}, TTL {} s)", 
+                dedup.isEnabled(), dedup.getCapacity(), dedup.getTtlSeconds());
+    }
+    
+    @Getter
+    @Setter
+    public static class Recovery {
+        private long intervalMs = 15000;         // Frecuencia del job de recuperación
+        private int pendingAfterSeconds = 10;    // Antigüedad mínima de un PENDING para reencolarlo
+        private int stuckAfterSeconds = 300;     // Antigüedad de un PROCESSING para considerarlo atascado
+        private int batchSize = 100;             // Máximo de sobres reencolados por ejecución
+    }
+    
+    @Getter
+    @Setter
+    public static class Dedup {
+        private boolean enabled = true;
+        private int capacity = 100_000;          // IDs de proveedor recordados en memoria
+        private long ttlSeconds = 86_400;        // Ventana de reintentos del proveedor a cubrir en memoria
+    }
+}
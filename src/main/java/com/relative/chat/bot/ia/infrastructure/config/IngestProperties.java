@@ -0,0 +1,42 @@
+package com.relative.chat.bot.ia.infrastructure.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propiedades de configuración para los jobs de ingesta de documentos en segundo plano
+ */
+@Slf4j
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.kb.ingest.jobs")
+public class IngestProperties {
+    
+    private int workers = 2;                     // Jobs procesados en paralelo por instancia
+    private int maxAttempts = 5;                 // Intentos antes de marcar el job como FAILED
+    private long pollIntervalMs = 2000;          // Frecuencia con la que se buscan jobs pendientes
+    private int staleAfterSeconds = 600;         // Sin actividad durante este tiempo, un RUNNING se reencola
+    private String spoolDir = System.getProperty("java.io.tmpdir") + "/kb-ingest"; // Archivos subidos pendientes
+    private Backoff backoff = new Backoff();
+    
+    @PostConstruct
+    public void logConfiguration() {
+        log.info("Configuración de jobs de ingesta cargada:");
+        log.info("  - Workers: {}, intentos máximos: {}, sondeo cada {} ms", workers, maxAttempts, pollIntervalMs);
+        log.info("  - Backoff: {} s inicial, {} s máximo; jobs inactivos > {} s se reencolan",
+                backoff.getInitialSeconds(), backoff.getMaxSeconds(), staleAfterSeconds);
+        log.info("  - Directorio de spool: {}", spoolDir);
+    }
+    
+    @Getter
+    @Setter
+    public static class Backoff {
+        private long initialSeconds = 10;        // Espera antes del primer reintento
+        private long maxSeconds = 600;           // Tope del backoff exponencial
+    }
+}
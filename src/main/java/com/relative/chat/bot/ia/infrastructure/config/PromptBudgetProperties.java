@@ -0,0 +1,41 @@
+package com.relative.chat.bot.ia.infrastructure.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Propiedades del presupuesto de tokens del prompt (prompt de sistema + contexto + historial + pregunta)
+ */
+@Slf4j
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.ai.prompt")
+public class PromptBudgetProperties {
+
+    private int maxTokens = 4000;                // Tamaño máximo del prompt por defecto
+    private double historyShare = 0.25;          // Fracción del presupuesto libre reservada al historial
+    private int minChunkTokens = 64;             // Un chunk recortado por debajo de esto se descarta
+    private int maxHistoryMessageTokens = 200;   // Los mensajes de historial más largos se recortan
+    private Map<String, Integer> tenantMaxTokens = new HashMap<>(); // Override por cliente (UUID -> máx. tokens)
+
+    @PostConstruct
+    public void logConfiguration() {
+        log.info("Presupuesto de tokens del prompt: {} por defecto ({} clientes con override), historial {}%",
+                maxTokens, tenantMaxTokens.size(), Math.round(historyShare * 100));
+    }
+
+    /**
+     * Tamaño máximo del prompt para el cliente (override o valor por defecto)
+     */
+    public int maxTokensFor(String clientId) {
+        return clientId != null ? tenantMaxTokens.getOrDefault(clientId, maxTokens) : maxTokens;
+    }
+}
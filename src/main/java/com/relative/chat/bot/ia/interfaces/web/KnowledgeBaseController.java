@@ -1,9 +1,11 @@
 package com.relative.chat.bot.ia.interfaces.web;
 
+import com.relative.chat.bot.ia.application.dto.IngestJobView;
 import com.relative.chat.bot.ia.application.usecases.CreateKnowledgeBase;
 import com.relative.chat.bot.ia.application.usecases.GetKnowledgeBase;
 import com.relative.chat.bot.ia.application.usecases.IngestDocuments;
 import com.relative.chat.bot.ia.application.usecases.SearchDocuments;
+import com.relative.chat.bot.ia.application.usecases.SubmitIngestJob;
 import com.relative.chat.bot.ia.domain.common.UuidId;
 import com.relative.chat.bot.ia.domain.identity.Client;
 import com.relative.chat.bot.ia.domain.knowledge.Kb;
@@ -21,7 +23,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -40,6 +45,7 @@ public class KnowledgeBaseController {
     private final GetKnowledgeBase getKnowledgeBase;
     private final IngestDocuments ingestDocuments;
     private final SearchDocuments searchDocuments;
+    private final SubmitIngestJob submitIngestJob;
     
     /**
      * Crea un Knowledge Base
@@ -133,9 +139,24 @@ public class KnowledgeBaseController {
      */
     @Operation(
         summary = "Ingestar documentos en el Knowledge Base",
-        description = "Agrega documentos al Knowledge Base para que el chatbot pueda usar esa información en sus respuestas (RAG). Los documentos se convierten en embeddings y se almacenan en el vector store."
+        description = "Agrega documentos al Knowledge Base para que el chatbot pueda usar esa información en sus respuestas (RAG). Por defecto la ingesta se encola como job en segundo plano (202) y el progreso se consulta en /{kbId}/jobs/{jobId}; con async=false se procesa en la misma petición (200)."
     )
     @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Job de ingesta encolado",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "status": "accepted",
+                      "jobId": "8d0f7a52-3c4e-4b7a-9f1e-2a6c5d4e3f21",
+                      "statusUrl": "/api/knowledge-base/550e8400-e29b-41d4-a716-446655440000/jobs/8d0f7a52-3c4e-4b7a-9f1e-2a6c5d4e3f21",
+                      "count": 3
+                    }
+                    """)
+            )
+        ),
         @ApiResponse(
             responseCode = "200",
             description = "Documentos ingestados exitosamente",
@@ -177,11 +198,13 @@ public class KnowledgeBaseController {
                         {
                           "documents": [
                             {
+                              "id": "faq-horarios",
                               "content": "Nuestro horario de atención es de Lunes a Viernes de 9am a 6pm",
                               "source": "FAQ",
                               "category": "horarios"
                             },
                             {
+                              "id": "politica-envios",
                               "content": "Ofrecemos envíos gratuitos en compras mayores a $50",
                               "source": "Políticas",
                               "category": "envios"
@@ -191,7 +214,9 @@ public class KnowledgeBaseController {
                         """)
                 )
             )
-            @RequestBody Map<String, Object> request
+            @RequestBody Map<String, Object> request,
+            @Parameter(description = "Encolar la ingesta en segundo plano (false: procesar en la petición)", example = "true")
+            @RequestParam(value = "async", defaultValue = "true") boolean async
     ) {
         try {
             @SuppressWarnings("unchecked")
@@ -203,14 +228,17 @@ public class KnowledgeBaseController {
                 ));
             }
             
-            // Convertir a Documents del dominio
+            // Convertir a Documents del dominio. Con un "id" estable, volver a ingestar el documento
+            // solo re-embebe los chunks que cambiaron
             List<Document> documents = docs.stream()
                     .map(doc -> {
                         String content = doc.get("content");
+                        String id = doc.get("id");
                         Map<String, Object> metadata = new HashMap<>(doc);
                         metadata.remove("content");
+                        metadata.remove("id");
                         return new Document(
-                                UUID.randomUUID().toString(),
+                                id != null && !id.isBlank() ? id : UUID.randomUUID().toString(),
                                 content,
                                 metadata
                         );
@@ -221,6 +249,17 @@ public class KnowledgeBaseController {
             
             // Usar namespace del KB
             String namespace = "kb_" + kbId;
+            
+            if (async) {
+                IngestJobView job = submitIngestJob.submitDocuments(namespace, documents);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                        "status", "accepted",
+                        "jobId", job.jobId().toString(),
+                        "statusUrl", "/api/knowledge-base/" + kbId + "/jobs/" + job.jobId(),
+                        "count", documents.size()
+                ));
+            }
+            
             ingestDocuments.handle(namespace, documents);
             
             return ResponseEntity.ok(Map.of(
@@ -238,6 +277,170 @@ public class KnowledgeBaseController {
         }
     }
     
+    /**
+     * Ingesta un PDF al Knowledge Base en segundo plano
+     * POST /api/knowledge-base/{kbId}/ingest/pdf
+     */
+    @Operation(
+        summary = "Ingestar un PDF en el Knowledge Base",
+        description = "Recibe un PDF como multipart/form-data y lo procesa en segundo plano: se lee página a página, se divide en chunks, se generan embeddings por lotes y se persisten de forma incremental. El progreso se consulta en /{kbId}/jobs/{jobId}."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "PDF recibido y job de ingesta encolado",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "status": "accepted",
+                      "jobId": "8d0f7a52-3c4e-4b7a-9f1e-2a6c5d4e3f21",
+                      "statusUrl": "/api/knowledge-base/550e8400-e29b-41d4-a716-446655440000/jobs/8d0f7a52-3c4e-4b7a-9f1e-2a6c5d4e3f21"
+                    }
+                    """)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Archivo vacío, no PDF o KB inexistente",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "status": "error",
+                      "message": "Se requiere un archivo PDF"
+                    }
+                    """)
+            )
+        )
+    })
+    @PostMapping(value = "/{kbId}/ingest/pdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> ingestPdf(
+            @Parameter(description = "UUID del Knowledge Base", required = true, example = "550e8400-e29b-41d4-a716-446655440000")
+            @PathVariable String kbId,
+            @Parameter(description = "Archivo PDF", required = true)
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "Origen del documento (opcional)", example = "Manual de usuario")
+            @RequestParam(value = "source", required = false) String source,
+            @Parameter(description = "Idioma del documento", example = "es")
+            @RequestParam(value = "language", defaultValue = "es") String language,
+            @Parameter(description = "ID externo del documento (si se omite se genera uno nuevo y el PDF se ingesta como documento nuevo). Subir de nuevo un PDF con el mismo ID solo re-embebe los chunks que cambiaron", example = "manual-usuario")
+            @RequestParam(value = "sourceId", required = false) String sourceId
+    ) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", "Se requiere un archivo PDF"
+            ));
+        }
+        
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "document.pdf";
+        if (!filename.toLowerCase(Locale.ROOT).endsWith(".pdf")
+                && !MediaType.APPLICATION_PDF_VALUE.equals(file.getContentType())) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", "Solo se admiten archivos PDF"
+            ));
+        }
+        
+        try {
+            // El archivo se pasa a disco; el job lo mueve al spool, lo lee página a página y lo elimina al terminar
+            Path tempFile = Files.createTempFile("kb-ingest-", ".pdf");
+            file.transferTo(tempFile);
+            
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("language", language);
+            if (source != null && !source.isBlank()) {
+                metadata.put("source", source);
+            }
+            
+            IngestJobView job = submitIngestJob.submitPdf("kb_" + kbId, tempFile, filename,
+                    sourceId != null && !sourceId.isBlank() ? sourceId : UUID.randomUUID().toString(), metadata);
+            
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "status", "accepted",
+                    "jobId", job.jobId().toString(),
+                    "statusUrl", "/api/knowledge-base/" + kbId + "/jobs/" + job.jobId()
+            ));
+            
+        } catch (Exception e) {
+            log.error("Error al recibir PDF para ingesta: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * Consulta el estado de un job de ingesta
+     * GET /api/knowledge-base/{kbId}/jobs/{jobId}
+     */
+    @Operation(
+        summary = "Estado de un job de ingesta",
+        description = "Retorna el progreso de un job de ingesta: páginas leídas, chunks persistidos y estado final"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Estado del job",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "jobId": "8d0f7a52-3c4e-4b7a-9f1e-2a6c5d4e3f21",
+                      "kbId": "550e8400-e29b-41d4-a716-446655440000",
+                      "filename": "manual.pdf",
+                      "status": "RUNNING",
+                      "itemsTotal": 1,
+                      "itemsDone": 0,
+                      "pagesTotal": 480,
+                      "pagesProcessed": 212,
+                      "chunksProcessed": 768,
+                      "attempts": 1
+                    }
+                    """)
+            )
+        ),
+        @ApiResponse(responseCode = "400", description = "ID inválido"),
+        @ApiResponse(responseCode = "404", description = "Job no encontrado")
+    })
+    @GetMapping("/{kbId}/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getIngestJob(
+            @Parameter(description = "UUID del Knowledge Base", required = true)
+            @PathVariable String kbId,
+            @Parameter(description = "UUID del job de ingesta", required = true)
+            @PathVariable String jobId
+    ) {
+        try {
+            Optional<IngestJobView> job = submitIngestJob.status(UUID.fromString(kbId), UUID.fromString(jobId));
+            if (job.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            IngestJobView j = job.get();
+            Map<String, Object> result = new HashMap<>();
+            result.put("jobId", j.jobId().toString());
+            result.put("kbId", j.kbId().toString());
+            result.put("filename", j.filename());
+            result.put("status", j.status().name());
+            result.put("itemsTotal", j.itemsTotal());
+            result.put("itemsDone", j.itemsDone());
+            result.put("pagesTotal", j.pagesTotal());
+            result.put("pagesProcessed", j.pagesProcessed());
+            result.put("chunksProcessed", j.chunksProcessed());
+            result.put("attempts", j.attempts());
+            result.put("error", j.error());
+            result.put("createdAt", j.createdAt());
+            result.put("startedAt", j.startedAt());
+            result.put("finishedAt", j.finishedAt());
+            return ResponseEntity.ok(result);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * Busca en el Knowledge Base
      * POST /api/knowledge-base/{kbId}/search
@@ -0,0 +1,297 @@
+package com.relative.chat.bot.ia.interfaces.web;
+
+import com.relative.chat.bot.ia.application.ports.out.VectorIndexManager;
+import com.relative.chat.bot.ia.application.usecases.BenchmarkHybridSearch;
+import com.relative.chat.bot.ia.application.usecases.ManageVectorIndex;
+import com.relative.chat.bot.ia.domain.types.VectorIndexType;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * API REST para administrar el índice vectorial (pgvector) y los parámetros de búsqueda por Knowledge Base
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/vector-index")
+@RequiredArgsConstructor
+@Tag(name = "Vector Index", description = "Administración del índice ANN y de la calidad de búsqueda del Knowledge Base")
+public class VectorIndexController {
+    
+    private final ManageVectorIndex manageVectorIndex;
+    private final BenchmarkHybridSearch benchmarkHybridSearch;
+    
+    /**
+     * Estado del índice vectorial
+     * GET /api/vector-index
+     */
+    @Operation(
+        summary = "Estado del índice vectorial",
+        description = "Retorna el índice ANN actual (HNSW o IVFFlat), su definición, las filas estimadas y si hay una reconstrucción en curso"
+    )
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> status() {
+        try {
+            VectorIndexManager.IndexStatus status = manageVectorIndex.status();
+            Map<String, Object> result = new HashMap<>();
+            result.put("name", status.name());
+            result.put("type", status.type() != null ? status.type().name() : null);
+            result.put("definition", status.definition());
+            result.put("estimatedRows", status.estimatedRows());
+            result.put("rebuildInProgress", status.rebuildInProgress());
+            result.put("lastRebuildError", status.lastRebuildError());
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Reconstruye el índice vectorial sin bloquear búsquedas ni escrituras
+     * POST /api/vector-index/rebuild?type=HNSW
+     */
+    @Operation(
+        summary = "Reconstruir el índice vectorial",
+        description = "Construye un índice HNSW o IVFFlat con CREATE INDEX CONCURRENTLY y reemplaza al actual. Para IVFFlat, lists se calcula a partir del número de filas. La construcción corre en segundo plano."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Reconstrucción iniciada"),
+        @ApiResponse(responseCode = "409", description = "Ya hay una reconstrucción en curso")
+    })
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild(
+            @Parameter(description = "Tipo de índice: HNSW o IVFFLAT", example = "HNSW")
+            @RequestParam(value = "type", defaultValue = "HNSW") String type
+    ) {
+        try {
+            VectorIndexType indexType = VectorIndexType.valueOf(type.toUpperCase(Locale.ROOT));
+            if (!manageVectorIndex.rebuild(indexType)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                        "status", "error",
+                        "message", "Ya hay una reconstrucción del índice en curso"
+                ));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "status", "accepted",
+                    "type", indexType.name(),
+                    "statusUrl", "/api/vector-index"
+            ));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Parámetros de búsqueda ANN del KB
+     * GET /api/vector-index/kb/{kbId}/search-config
+     */
+    @Operation(
+        summary = "Parámetros de búsqueda del Knowledge Base",
+        description = "Retorna ivfflat.probes, hnsw.ef_search y la configuración de búsqueda híbrida efectivos para las búsquedas del KB"
+    )
+    @GetMapping("/kb/{kbId}/search-config")
+    public ResponseEntity<Map<String, Object>> getSearchConfig(
+            @Parameter(description = "UUID del Knowledge Base", required = true)
+            @PathVariable String kbId
+    ) {
+        try {
+            return ResponseEntity.ok(toMap(manageVectorIndex.searchParams(UUID.fromString(kbId))));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Actualiza los parámetros de búsqueda ANN del KB
+     * PUT /api/vector-index/kb/{kbId}/search-config
+     */
+    @Operation(
+        summary = "Actualizar parámetros de búsqueda del Knowledge Base",
+        description = "Más probes / ef_search aumentan el recall a cambio de latencia. hybrid combina la búsqueda por trigramas con la vectorial (RRF con constante rrfK). Un valor nulo vuelve al valor por defecto de la aplicación."
+    )
+    @PutMapping("/kb/{kbId}/search-config")
+    public ResponseEntity<Map<String, Object>> updateSearchConfig(
+            @Parameter(description = "UUID del Knowledge Base", required = true)
+            @PathVariable String kbId,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                description = "Parámetros de búsqueda",
+                required = true,
+                content = @Content(
+                    mediaType = "application/json",
+                    examples = @ExampleObject(value = """
+                        {
+                          "probes": 20,
+                          "efSearch": 100,
+                          "hybrid": true,
+                          "rrfK": 60
+                        }
+                        """)
+                )
+            )
+            @RequestBody Map<String, Object> request
+    ) {
+        try {
+            VectorIndexManager.SearchParams params = manageVectorIndex.updateSearchParams(
+                    UUID.fromString(kbId),
+                    intOrNull(request.get("probes")),
+                    intOrNull(request.get("efSearch")),
+                    request.get("hybrid") != null ? Boolean.valueOf(request.get("hybrid").toString()) : null,
+                    intOrNull(request.get("rrfK")));
+            return ResponseEntity.ok(toMap(params));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Mide recall@k de la búsqueda ANN frente a la búsqueda exacta
+     * GET /api/vector-index/kb/{kbId}/recall?k=10&samples=50
+     */
+    @Operation(
+        summary = "Benchmark de recall y latencia",
+        description = "Usa vectores del propio KB como consultas y compara los top-k de la búsqueda ANN (con los parámetros actuales del KB) contra la búsqueda exacta. Retorna recall@k y latencias p50/p95 de ambas."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Resultado del benchmark",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "k": 10,
+                      "samples": 50,
+                      "recall": 0.962,
+                      "annP50Ms": 3.1,
+                      "annP95Ms": 5.8,
+                      "exactP50Ms": 41.7,
+                      "exactP95Ms": 55.2,
+                      "probes": 10,
+                      "efSearch": 40
+                    }
+                    """)
+            )
+        )
+    })
+    @GetMapping("/kb/{kbId}/recall")
+    public ResponseEntity<Map<String, Object>> measureRecall(
+            @Parameter(description = "UUID del Knowledge Base", required = true)
+            @PathVariable String kbId,
+            @Parameter(description = "Resultados por consulta", example = "10")
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            @Parameter(description = "Consultas de muestra", example = "50")
+            @RequestParam(value = "samples", defaultValue = "50") int samples
+    ) {
+        try {
+            VectorIndexManager.RecallReport report = manageVectorIndex.measureRecall(UUID.fromString(kbId), k, samples);
+            Map<String, Object> result = new HashMap<>();
+            result.put("kbId", report.kbId().toString());
+            result.put("k", report.k());
+            result.put("samples", report.samples());
+            result.put("recall", report.recall());
+            result.put("annP50Ms", report.annP50Ms());
+            result.put("annP95Ms", report.annP95Ms());
+            result.put("exactP50Ms", report.exactP50Ms());
+            result.put("exactP95Ms", report.exactP95Ms());
+            result.put("probes", report.params().probes());
+            result.put("efSearch", report.params().efSearch());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Compara la búsqueda híbrida (trigramas + vector) con la solo vectorial
+     * GET /api/vector-index/kb/{kbId}/hybrid-benchmark?k=10&samples=50&queryWords=3
+     */
+    @Operation(
+        summary = "Benchmark de búsqueda híbrida",
+        description = "Usa fragmentos cortos de chunks del propio KB como consultas y mide si el chunk de origen aparece en los top-k con búsqueda solo vectorial y con búsqueda híbrida. Retorna recall@k y latencias p50/p95 de ambas."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Resultado del benchmark",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = """
+                    {
+                      "k": 10,
+                      "samples": 50,
+                      "queryWords": 3,
+                      "vectorRecall": 0.64,
+                      "hybridRecall": 0.9,
+                      "vectorP50Ms": 4.2,
+                      "vectorP95Ms": 7.9,
+                      "hybridP50Ms": 6.8,
+                      "hybridP95Ms": 12.4
+                    }
+                    """)
+            )
+        )
+    })
+    @GetMapping("/kb/{kbId}/hybrid-benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkHybrid(
+            @Parameter(description = "UUID del Knowledge Base", required = true)
+            @PathVariable String kbId,
+            @Parameter(description = "Resultados por consulta", example = "10")
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            @Parameter(description = "Consultas de muestra", example = "50")
+            @RequestParam(value = "samples", defaultValue = "50") int samples,
+            @Parameter(description = "Palabras por consulta", example = "3")
+            @RequestParam(value = "queryWords", defaultValue = "3") int queryWords
+    ) {
+        try {
+            BenchmarkHybridSearch.Report report = benchmarkHybridSearch.handle(UUID.fromString(kbId), k, samples, queryWords);
+            Map<String, Object> result = new HashMap<>();
+            result.put("kbId", report.kbId().toString());
+            result.put("k", report.k());
+            result.put("samples", report.samples());
+            result.put("queryWords", report.queryWords());
+            result.put("vectorRecall", report.vectorRecall());
+            result.put("hybridRecall", report.hybridRecall());
+            result.put("vectorP50Ms", report.vectorP50Ms());
+            result.put("vectorP95Ms", report.vectorP95Ms());
+            result.put("hybridP50Ms", report.hybridP50Ms());
+            result.put("hybridP95Ms", report.hybridP95Ms());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+    
+    private static Map<String, Object> toMap(VectorIndexManager.SearchParams params) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("probes", params.probes());
+        result.put("efSearch", params.efSearch());
+        result.put("hybrid", params.hybrid());
+        result.put("rrfK", params.rrfK());
+        return result;
+    }
+    
+    private static Integer intOrNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value instanceof Number number ? number.intValue() : Integer.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor numérico inválido: " + value);
+        }
+    }
+}
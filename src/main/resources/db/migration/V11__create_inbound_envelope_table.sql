@@ -0,0 +1,33 @@
+-- Sobre (envelope) de mensajes entrantes recibidos por webhook
+-- El webhook persiste el sobre y responde 200 de inmediato; un pool de workers lo procesa después
+CREATE TABLE IF NOT EXISTS chatbotia.inbound_envelope (
+    id UUID PRIMARY KEY,
+    client_code VARCHAR(100) NOT NULL,
+    phone_number VARCHAR(50) NOT NULL,
+    contact_phone VARCHAR(50) NOT NULL,
+    contact_name VARCHAR(255),
+    channel VARCHAR(20) NOT NULL DEFAULT 'WHATSAPP',
+    content TEXT NOT NULL,
+    external_id VARCHAR(255),
+    raw_payload JSONB NOT NULL DEFAULT '{}'::jsonb,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    received_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    processed_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT chk_inbound_envelope_status CHECK (status IN ('PENDING', 'PROCESSING', 'DONE', 'FAILED'))
+);
+
+-- Índices para la recuperación de sobres pendientes o atascados
+CREATE INDEX IF NOT EXISTS idx_inbound_envelope_status_updated ON chatbotia.inbound_envelope(status, updated_at);
+CREATE INDEX IF NOT EXISTS idx_inbound_envelope_external_id ON chatbotia.inbound_envelope(external_id);
+
+-- Comentarios
+COMMENT ON TABLE chatbotia.inbound_envelope IS 'Mensajes entrantes aceptados por el webhook pendientes de procesamiento asíncrono';
+COMMENT ON COLUMN chatbotia.inbound_envelope.raw_payload IS 'Payload original del mensaje tal como llegó del proveedor';
+COMMENT ON COLUMN chatbotia.inbound_envelope.status IS 'Estado: PENDING, PROCESSING, DONE, FAILED';
+COMMENT ON COLUMN chatbotia.inbound_envelope.attempts IS 'Número de intentos de procesamiento';
+COMMENT ON COLUMN chatbotia.inbound_envelope.last_error IS 'Último error registrado al procesar el sobre';
@@ -0,0 +1,15 @@
+-- Identificador del mensaje en el proveedor (wamid en Meta) para deduplicar reintentos de webhook
+ALTER TABLE chatbotia.message ADD COLUMN IF NOT EXISTS external_id VARCHAR(255);
+
+-- Un mismo mensaje entrante del proveedor solo puede registrarse una vez
+CREATE UNIQUE INDEX IF NOT EXISTS uq_message_inbound_external_id
+    ON chatbotia.message(external_id)
+    WHERE external_id IS NOT NULL AND direction = 'IN';
+
+-- El sobre de entrada también debe ser único por mensaje del proveedor
+DROP INDEX IF EXISTS chatbotia.idx_inbound_envelope_external_id;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_inbound_envelope_external_id
+    ON chatbotia.inbound_envelope(external_id)
+    WHERE external_id IS NOT NULL;
+
+COMMENT ON COLUMN chatbotia.message.external_id IS 'ID del mensaje en el proveedor (wamid en Meta WhatsApp)';
@@ -0,0 +1,15 @@
+-- Segundo nivel (persistente) de la caché de embeddings de consultas
+-- La clave es el SHA-256 de modelo + dimensiones + texto normalizado
+CREATE TABLE IF NOT EXISTS chatbotia.embedding_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    model VARCHAR(100) NOT NULL,
+    dimensions INT NOT NULL,
+    embedding BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_embedding_cache_created_at ON chatbotia.embedding_cache(created_at);
+
+COMMENT ON TABLE chatbotia.embedding_cache IS 'Caché persistente de embeddings de consultas de usuarios';
+COMMENT ON COLUMN chatbotia.embedding_cache.cache_key IS 'SHA-256 (hex) de modelo, dimensiones y texto normalizado';
+COMMENT ON COLUMN chatbotia.embedding_cache.embedding IS 'Vector float32 little-endian';
@@ -0,0 +1,4 @@
+-- Tokens estimados de cada chunk (calculados por el chunker durante la ingesta)
+ALTER TABLE chatbotia.kb_chunk ADD COLUMN IF NOT EXISTS tokens INT;
+
+COMMENT ON COLUMN chatbotia.kb_chunk.tokens IS 'Tokens estimados del contenido del chunk (cl100k_base)';
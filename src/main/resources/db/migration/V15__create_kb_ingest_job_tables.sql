@@ -0,0 +1,52 @@
+-- Jobs de ingesta de documentos en segundo plano
+-- Un job agrupa uno o más items (documentos); cada item guarda su checkpoint de chunks persistidos
+CREATE TABLE IF NOT EXISTS chatbotia.kb_ingest_job (
+    id UUID PRIMARY KEY,
+    kb_id UUID NOT NULL REFERENCES chatbotia.kb(id) ON DELETE CASCADE,
+    label VARCHAR(500),
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    total_items INT NOT NULL DEFAULT 0,
+    items_done INT NOT NULL DEFAULT 0,
+    pages_total INT NOT NULL DEFAULT 0,
+    pages_processed INT NOT NULL DEFAULT 0,
+    chunks_processed INT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT chk_kb_ingest_job_status CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED'))
+);
+
+CREATE TABLE IF NOT EXISTS chatbotia.kb_ingest_job_item (
+    id UUID PRIMARY KEY,
+    job_id UUID NOT NULL REFERENCES chatbotia.kb_ingest_job(id) ON DELETE CASCADE,
+    item_index INT NOT NULL,
+    source_id VARCHAR(255),
+    content TEXT,
+    file_path TEXT,
+    metadata JSONB NOT NULL DEFAULT '{}'::jsonb,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    document_id UUID REFERENCES chatbotia.kb_document(id) ON DELETE SET NULL,
+    chunks_stored INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT uq_kb_ingest_job_item UNIQUE (job_id, item_index),
+    CONSTRAINT chk_kb_ingest_job_item_status CHECK (status IN ('PENDING', 'DONE')),
+    CONSTRAINT chk_kb_ingest_job_item_source CHECK (content IS NOT NULL OR file_path IS NOT NULL)
+);
+
+-- Cola: los workers toman jobs QUEUED cuyo próximo intento ya venció
+CREATE INDEX IF NOT EXISTS idx_kb_ingest_job_queue ON chatbotia.kb_ingest_job(status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_kb_ingest_job_kb ON chatbotia.kb_ingest_job(kb_id);
+
+-- Comentarios
+COMMENT ON TABLE chatbotia.kb_ingest_job IS 'Jobs de ingesta de documentos procesados en segundo plano';
+COMMENT ON COLUMN chatbotia.kb_ingest_job.next_attempt_at IS 'Fecha a partir de la cual el job puede reintentarse (backoff)';
+COMMENT ON TABLE chatbotia.kb_ingest_job_item IS 'Documentos de un job de ingesta con su checkpoint';
+COMMENT ON COLUMN chatbotia.kb_ingest_job_item.content IS 'Texto del documento (ingesta JSON)';
+COMMENT ON COLUMN chatbotia.kb_ingest_job_item.file_path IS 'Archivo en el directorio de spool (ingesta de PDF)';
+COMMENT ON COLUMN chatbotia.kb_ingest_job_item.chunks_stored IS 'Chunks con embedding ya persistidos; al reintentar se omiten';
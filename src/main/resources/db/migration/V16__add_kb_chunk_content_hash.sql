@@ -0,0 +1,18 @@
+-- Re-ingesta incremental: los chunks se comparan por hash de contenido y los documentos
+-- se identifican por su ID externo dentro del KB
+
+ALTER TABLE chatbotia.kb_chunk ADD COLUMN IF NOT EXISTS content_hash CHAR(64);
+
+UPDATE chatbotia.kb_chunk
+SET content_hash = encode(sha256(convert_to(content, 'UTF8')), 'hex')
+WHERE content_hash IS NULL;
+
+COMMENT ON COLUMN chatbotia.kb_chunk.content_hash IS 'SHA-256 (hex) del contenido del chunk';
+
+ALTER TABLE chatbotia.kb_document ADD COLUMN IF NOT EXISTS source_id TEXT;
+
+COMMENT ON COLUMN chatbotia.kb_document.source_id IS 'ID externo del documento; una nueva ingesta con el mismo ID actualiza el documento';
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_kbd_kb_source_id
+    ON chatbotia.kb_document(kb_id, source_id)
+    WHERE source_id IS NOT NULL;
@@ -0,0 +1,9 @@
+-- Checkpoint de migraciones de vectores (MigrateVectors): último chunk_id migrado por par origen/destino
+CREATE TABLE IF NOT EXISTS chatbotia.vector_migration_checkpoint (
+    migration_key VARCHAR(255) PRIMARY KEY,
+    last_id       VARCHAR(64) NOT NULL,
+    migrated      BIGINT NOT NULL DEFAULT 0,
+    updated_at    TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE chatbotia.vector_migration_checkpoint IS 'Progreso de migraciones de vectores para reanudarlas por último ID';
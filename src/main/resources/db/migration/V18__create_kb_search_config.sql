@@ -0,0 +1,9 @@
+-- Parámetros de búsqueda ANN por Knowledge Base (override de los valores por defecto de la aplicación)
+CREATE TABLE IF NOT EXISTS chatbotia.kb_search_config (
+    kb_id          UUID PRIMARY KEY REFERENCES chatbotia.kb(id) ON DELETE CASCADE,
+    ivfflat_probes INT CHECK (ivfflat_probes IS NULL OR ivfflat_probes > 0),
+    hnsw_ef_search INT CHECK (hnsw_ef_search IS NULL OR hnsw_ef_search > 0),
+    updated_at     TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE chatbotia.kb_search_config IS 'Parámetros ivfflat.probes / hnsw.ef_search aplicados con SET LOCAL en cada búsqueda del KB';
@@ -0,0 +1,97 @@
+-- =========================================================
+-- V19: kb_embedding_pgvector particionada por LIST (kb_id)
+-- - Una partición por Knowledge Base, cada una con su propio índice ANN: la búsqueda de un KB
+--   recorre solo su grafo/listas en lugar de filtrar el vecindario de todos los tenants
+-- - Partición DEFAULT para KBs cuya partición aún no existe (la app la crea al crear el KB)
+-- - La PK pasa a (kb_id, chunk_id): la clave de partición debe formar parte de los índices únicos
+-- - Rollback en db.changelog-master.yaml: vuelve a la tabla simple con los datos de las particiones
+-- =========================================================
+
+SET search_path TO chatbotia, public;
+
+-- 1. kb_id es la clave de partición: completar los nulos desde el documento del chunk
+UPDATE kb_embedding_pgvector e
+SET kb_id = d.kb_id
+FROM kb_chunk c
+JOIN kb_document d ON d.id = c.document_id
+WHERE e.chunk_id = c.id AND e.kb_id IS NULL;
+
+-- Los embeddings que no se pudieron mapear a un KB no caben en ninguna partición: se conservan en
+-- kb_embedding_pgvector_unmapped (revisar y reingestar o descartar a mano) en lugar de borrarlos
+CREATE TABLE kb_embedding_pgvector_unmapped AS
+SELECT chunk_id, embedding, client_id, kb_id, created_at
+FROM kb_embedding_pgvector
+WHERE kb_id IS NULL;
+
+COMMENT ON TABLE kb_embedding_pgvector_unmapped IS
+  'Embeddings sin kb_id apartados por V19 al particionar kb_embedding_pgvector; el rollback los restaura.';
+
+DO $$
+DECLARE
+    unmapped BIGINT;
+BEGIN
+    SELECT count(*) INTO unmapped FROM kb_embedding_pgvector_unmapped;
+    IF unmapped > 0 THEN
+        RAISE WARNING 'V19: % embeddings sin kb_id movidos a kb_embedding_pgvector_unmapped', unmapped;
+    END IF;
+END$$;
+
+DELETE FROM kb_embedding_pgvector WHERE kb_id IS NULL;
+
+-- 2. Tabla particionada
+CREATE TABLE kb_embedding_pgvector_partitioned (
+    chunk_id   UUID NOT NULL REFERENCES kb_chunk(id) ON DELETE CASCADE,
+    embedding  vector(1536) NOT NULL,
+    client_id  UUID,
+    kb_id      UUID NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_kb_embedding_pgvector PRIMARY KEY (kb_id, chunk_id)
+) PARTITION BY LIST (kb_id);
+
+CREATE TABLE kb_embedding_pgvector_default
+    PARTITION OF kb_embedding_pgvector_partitioned DEFAULT;
+
+-- 3. Una partición por KB existente (nombre: kb_embedding_pgvector_p_<uuid sin guiones>)
+DO $$
+DECLARE
+    kb_row RECORD;
+BEGIN
+    FOR kb_row IN SELECT id FROM kb LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF kb_embedding_pgvector_partitioned FOR VALUES IN (%L)',
+            'kb_embedding_pgvector_p_' || replace(kb_row.id::text, '-', ''),
+            kb_row.id
+        );
+    END LOOP;
+END$$;
+
+-- 4. Copiar datos y reemplazar la tabla original
+INSERT INTO kb_embedding_pgvector_partitioned (chunk_id, embedding, client_id, kb_id, created_at)
+SELECT chunk_id, embedding, client_id, kb_id, created_at FROM kb_embedding_pgvector;
+
+DROP TABLE kb_embedding_pgvector CASCADE;
+
+ALTER TABLE kb_embedding_pgvector_partitioned RENAME TO kb_embedding_pgvector;
+
+-- 5. Índices particionados: se crean automáticamente en cada partición nueva
+CREATE INDEX idx_kbemb_pgvector_client ON kb_embedding_pgvector (client_id);
+
+-- Recorrido por chunk_id entre KBs (VectorStore.streamAll sin filtro de KB)
+CREATE INDEX idx_kbemb_pgvector_chunk ON kb_embedding_pgvector (chunk_id);
+
+-- HNSW no depende del tamaño de cada partición (IVFFlat usaría el mismo lists para todas);
+-- requiere pgvector >= 0.5.0
+DO $$
+BEGIN
+    IF (SELECT string_to_array(extversion, '.')::int[] >= ARRAY[0, 5]
+        FROM pg_extension WHERE extname = 'vector') THEN
+        CREATE INDEX idx_kbemb_pgvector_ann
+            ON kb_embedding_pgvector USING hnsw (embedding vector_cosine_ops);
+    ELSE
+        CREATE INDEX idx_kbemb_pgvector_ann
+            ON kb_embedding_pgvector USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
+    END IF;
+END$$;
+
+COMMENT ON TABLE kb_embedding_pgvector IS
+  'Embeddings pgvector particionados por kb_id (una partición e índice ANN por Knowledge Base).';
@@ -0,0 +1,8 @@
+-- Búsqueda híbrida (trigramas sobre kb_chunk.content + pgvector) por Knowledge Base
+-- NULL = usar el valor por defecto de la aplicación
+ALTER TABLE chatbotia.kb_search_config
+    ADD COLUMN IF NOT EXISTS hybrid_enabled BOOLEAN,
+    ADD COLUMN IF NOT EXISTS rrf_k INT CHECK (rrf_k IS NULL OR rrf_k > 0);
+
+COMMENT ON COLUMN chatbotia.kb_search_config.hybrid_enabled IS 'Combinar búsqueda léxica (idx_kbchunk_content_trgm) y vectorial con reciprocal rank fusion';
+COMMENT ON COLUMN chatbotia.kb_search_config.rrf_k IS 'Constante k de RRF: score = suma de 1 / (k + rank)';
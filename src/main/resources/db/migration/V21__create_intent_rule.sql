@@ -0,0 +1,32 @@
+-- Reglas del enrutador de intenciones local: mensajes que se responden sin pasar por el LLM
+-- client_id NULL = regla global (aplica a todos los clientes); las reglas del cliente tienen prioridad
+CREATE TABLE IF NOT EXISTS chatbotia.intent_rule (
+    id         UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    client_id  UUID REFERENCES chatbotia.client(id) ON DELETE CASCADE,
+    intent     VARCHAR(60) NOT NULL,
+    keywords   TEXT[] NOT NULL CHECK (cardinality(keywords) > 0),
+    response   TEXT NOT NULL,
+    max_words  INT CHECK (max_words IS NULL OR max_words > 0),
+    priority   INT NOT NULL DEFAULT 0,
+    is_active  BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_intent_rule_client ON chatbotia.intent_rule(client_id) WHERE is_active;
+
+COMMENT ON TABLE chatbotia.intent_rule IS 'Reglas por palabras clave (Aho-Corasick) respondidas localmente antes del flujo RAG';
+COMMENT ON COLUMN chatbotia.intent_rule.keywords IS 'Frases clave; se comparan sin mayúsculas, tildes ni puntuación y por palabras completas';
+COMMENT ON COLUMN chatbotia.intent_rule.max_words IS 'La regla solo aplica a mensajes de hasta N palabras (NULL = sin límite)';
+COMMENT ON COLUMN chatbotia.intent_rule.priority IS 'Ante varias coincidencias gana la de mayor prioridad';
+
+-- Reglas globales equivalentes a la detección de saludos que hacía el adaptador de OpenAI
+INSERT INTO chatbotia.intent_rule (client_id, intent, keywords, response, max_words, priority)
+VALUES
+    (NULL, 'saludo',
+     ARRAY['hola', 'hey', 'buen dia', 'buenos dias', 'buenas', 'buena tarde', 'buenas tardes',
+           'buena noche', 'buenas noches', 'que tal', 'como estas', 'me ayudas', 'tengo una pregunta', 'ayuda'],
+     '¡Hola! Claro, dime tu consulta.', 6, 0),
+    (NULL, 'agradecimiento',
+     ARRAY['gracias', 'ok', 'listo', 'de acuerdo', 'entendido'],
+     '¡Con gusto! Si tienes otra consulta, aquí estoy.', 4, 0);
@@ -0,0 +1,5 @@
+-- Sobres sin terminar por conversación (cliente + contacto) en orden de recepción:
+-- el dispatcher procesa primero los anteriores antes de atender uno más nuevo
+CREATE INDEX IF NOT EXISTS idx_inbound_envelope_key_unfinished
+    ON chatbotia.inbound_envelope(client_code, contact_phone, received_at)
+    WHERE status IN ('PENDING', 'PROCESSING');
@@ -0,0 +1,130 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.ports.out.IntentRuleStore;
+import com.relative.chat.bot.ia.application.ports.out.IntentRuleStore.IntentRule;
+import com.relative.chat.bot.ia.application.services.IntentRouter.Route;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntentRouterTest {
+
+    private static final UUID CLIENT_ID = UUID.randomUUID();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void answersMatchingMessageLocally() {
+        IntentRouter router = router(clientId -> List.of(
+                rule(null, "greeting", List.of("hola", "buenas"), "¡Hola! ¿En qué te ayudo?", 4, 0)));
+
+        assertEquals(Optional.of(new Route("greeting", "¡Hola! ¿En qué te ayudo?")), router.route(CLIENT_ID, "¡Hola!"));
+        assertEquals(1.0, meterRegistry.counter("ai.intent.router", "result", "hit", "intent", "greeting").count());
+    }
+
+    @Test
+    void missesWhenNoKeywordMatches() {
+        IntentRouter router = router(clientId -> List.of(rule(null, "greeting", List.of("hola"), "¡Hola!", null, 0)));
+
+        assertTrue(router.route(CLIENT_ID, "¿Cuánto cuesta el envío?").isEmpty());
+        assertTrue(router.route(CLIENT_ID, "   ").isEmpty());
+        assertEquals(1.0, meterRegistry.counter("ai.intent.router", "result", "miss", "intent", "none").count());
+    }
+
+    @Test
+    void maxWordsKeepsShortRulesAwayFromRealQuestions() {
+        IntentRouter router = router(clientId -> List.of(rule(null, "greeting", List.of("hola"), "¡Hola!", 3, 0)));
+
+        assertEquals("greeting", router.route(CLIENT_ID, "Hola, buen día").orElseThrow().intent());
+        assertTrue(router.route(CLIENT_ID, "Hola, ¿a qué hora abren el sábado?").isEmpty());
+    }
+
+    @Test
+    void higherPriorityWinsAmongOverlappingRules() {
+        IntentRouter router = router(clientId -> List.of(
+                rule(null, "greeting", List.of("buenos dias"), "¡Buen día!", null, 0),
+                rule(null, "hours", List.of("horario", "dias de atencion"), "Lunes a viernes de 9 a 18 h.", null, 10)));
+
+        assertEquals("hours", router.route(CLIENT_ID, "Buenos días de atención?").orElseThrow().intent());
+    }
+
+    @Test
+    void clientRuleBeatsGlobalRuleOnSamePriority() {
+        IntentRouter router = router(clientId -> List.of(
+                rule(null, "thanks", List.of("gracias"), "¡De nada!", null, 5),
+                rule(CLIENT_ID, "thanks_client", List.of("gracias"), "¡Gracias a vos por elegirnos!", null, 5)));
+
+        assertEquals("thanks_client", router.route(CLIENT_ID, "gracias").orElseThrow().intent());
+    }
+
+    @Test
+    void compiledRulesAreCachedPerClientUntilEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+        List<IntentRule> rules = new ArrayList<>(List.of(rule(null, "greeting", List.of("hola"), "¡Hola!", null, 0)));
+        IntentRouter router = router(clientId -> {
+            loads.incrementAndGet();
+            return List.copyOf(rules);
+        });
+
+        router.route(CLIENT_ID, "hola");
+        router.route(CLIENT_ID, "hola");
+        assertEquals(1, loads.get());
+
+        rules.add(rule(CLIENT_ID, "bye", List.of("chau"), "¡Hasta luego!", null, 0));
+        assertTrue(router.route(CLIENT_ID, "chau").isEmpty());
+
+        router.evict(CLIENT_ID);
+        assertEquals("bye", router.route(CLIENT_ID, "chau").orElseThrow().intent());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void storeFailureIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        IntentRouter router = router(clientId -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("base de datos no disponible");
+            }
+            return List.of(rule(null, "greeting", List.of("hola"), "¡Hola!", null, 0));
+        });
+
+        assertTrue(router.route(CLIENT_ID, "hola").isEmpty());
+        assertEquals("greeting", router.route(CLIENT_ID, "hola").orElseThrow().intent());
+    }
+
+    @Test
+    void disabledRouterNeverAnswers() {
+        IntentRouter router = new IntentRouter(
+                clientId -> List.of(rule(null, "greeting", List.of("hola"), "¡Hola!", null, 0)), meterRegistry);
+        configure(router, false);
+
+        assertTrue(router.route(CLIENT_ID, "hola").isEmpty());
+    }
+
+    private IntentRouter router(IntentRuleStore store) {
+        IntentRouter router = new IntentRouter(store, meterRegistry);
+        configure(router, true);
+        return router;
+    }
+
+    private static void configure(IntentRouter router, boolean enabled) {
+        ReflectionTestUtils.setField(router, "enabled", enabled);
+        ReflectionTestUtils.setField(router, "cacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(router, "cacheSize", 10);
+        router.init();
+    }
+
+    private static IntentRule rule(UUID clientId, String intent, List<String> keywords, String response,
+                                   Integer maxWords, int priority) {
+        return new IntentRule(clientId, intent, keywords, response, maxWords, priority);
+    }
+}
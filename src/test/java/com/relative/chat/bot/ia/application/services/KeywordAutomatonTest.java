@@ -0,0 +1,77 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.services.KeywordAutomaton.Keyword;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordAutomatonTest {
+
+    @Test
+    void normalizeLowercasesStripsAccentsAndPunctuation() {
+        assertEquals("hola", KeywordAutomaton.normalize("¡Hola!"));
+        assertEquals("buenos dias que tal", KeywordAutomaton.normalize("  Buenos Días, ¿qué tal?  "));
+        assertEquals("pinguino nandu", KeywordAutomaton.normalize("Pingüino ÑANDÚ"));
+        assertEquals("", KeywordAutomaton.normalize(null));
+    }
+
+    @Test
+    void matchesOnlyWholeWords() {
+        KeywordAutomaton<String> automaton = automaton("ok", "hola");
+
+        assertTrue(automaton.findAll(KeywordAutomaton.normalize("poker holanda")).isEmpty());
+        assertEquals(List.of("ok"), automaton.findAll(KeywordAutomaton.normalize("Ok, gracias")));
+        assertEquals(List.of("hola"), automaton.findAll(KeywordAutomaton.normalize("eh hola")));
+    }
+
+    @Test
+    void keywordsAreNormalizedLikeTheText() {
+        KeywordAutomaton<String> automaton = automaton("Buenos Días");
+
+        assertEquals(List.of("Buenos Días"), automaton.findAll(KeywordAutomaton.normalize("buenos dias, ¿qué tal?")));
+    }
+
+    @Test
+    void findsOverlappingAndNestedKeywords() {
+        KeywordAutomaton<String> automaton = automaton("de acuerdo", "acuerdo total", "acuerdo");
+
+        List<String> matches = automaton.findAll(KeywordAutomaton.normalize("De acuerdo total"));
+
+        assertEquals(3, matches.size());
+        assertTrue(matches.containsAll(List.of("de acuerdo", "acuerdo total", "acuerdo")));
+    }
+
+    @Test
+    void findsKeywordsSharingASuffixThroughFailureLinks() {
+        KeywordAutomaton<String> automaton = automaton("gracias", "muchas gracias", "mil gracias");
+
+        List<String> matches = automaton.findAll(KeywordAutomaton.normalize("mil gracias y muchas gracias"));
+
+        assertEquals(List.of("mil gracias", "gracias", "muchas gracias", "gracias"), matches);
+    }
+
+    @Test
+    void reportsEveryOccurrenceInPositionOrder() {
+        KeywordAutomaton<String> automaton = automaton("hola", "chau");
+
+        assertEquals(List.of("hola", "chau", "hola"),
+                automaton.findAll(KeywordAutomaton.normalize("hola, chau y hola")));
+    }
+
+    @Test
+    void skipsBlankKeywords() {
+        KeywordAutomaton<String> automaton = automaton("hola", "  ", "¡!");
+
+        assertEquals(1, automaton.size());
+        assertTrue(automaton.findAll("").isEmpty());
+    }
+
+    private static KeywordAutomaton<String> automaton(String... keywords) {
+        return new KeywordAutomaton<>(List.of(keywords).stream()
+                .map(keyword -> new Keyword<>(keyword, keyword))
+                .toList());
+    }
+}
@@ -0,0 +1,107 @@
+package com.relative.chat.bot.ia.application.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LruTtlCacheTest {
+
+    private static final Duration ONE_HOUR = Duration.ofHours(1);
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenFull() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(2, ONE_HOUR);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void expiredEntriesAreDiscardedOnRead() throws InterruptedException {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, Duration.ofMillis(20));
+        cache.put("a", 1);
+
+        Thread.sleep(60);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void zeroOrNullTtlNeverExpires() throws InterruptedException {
+        LruTtlCache<String, Integer> noTtl = new LruTtlCache<>(10, null);
+        LruTtlCache<String, Integer> zeroTtl = new LruTtlCache<>(10, Duration.ZERO);
+        noTtl.put("a", 1);
+        zeroTtl.put("a", 1);
+
+        Thread.sleep(20);
+
+        assertEquals(1, noTtl.get("a"));
+        assertEquals(1, zeroTtl.get("a"));
+    }
+
+    @Test
+    void putIfAbsentKeepsTheCurrentValue() throws InterruptedException {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, Duration.ofMillis(20));
+
+        assertNull(cache.putIfAbsent("a", 1));
+        assertEquals(1, cache.putIfAbsent("a", 2));
+        assertEquals(1, cache.get("a"));
+
+        Thread.sleep(60);
+
+        assertNull(cache.putIfAbsent("a", 3));
+        assertEquals(3, cache.get("a"));
+    }
+
+    @Test
+    void computeIfAbsentLoadsOnceAndDoesNotCacheNull() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, ONE_HOUR);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(7, cache.computeIfAbsent("a", key -> {
+            loads.incrementAndGet();
+            return 7;
+        }));
+        assertEquals(7, cache.computeIfAbsent("a", key -> {
+            loads.incrementAndGet();
+            return 8;
+        }));
+        assertEquals(1, loads.get());
+
+        assertNull(cache.computeIfAbsent("b", key -> null));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void removeAndClear() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, ONE_HOUR);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        assertEquals(1, cache.remove("a"));
+        assertNull(cache.remove("a"));
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(10, cache.maxSize());
+    }
+
+    @Test
+    void rejectsNonPositiveMaxSize() {
+        assertThrows(IllegalArgumentException.class, () -> new LruTtlCache<>(0, ONE_HOUR));
+    }
+}
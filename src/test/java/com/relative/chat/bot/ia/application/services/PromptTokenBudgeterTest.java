@@ -0,0 +1,167 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.services.PromptTokenBudgeter.Budgeted;
+import com.relative.chat.bot.ia.infrastructure.config.PromptBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptTokenBudgeterTest {
+
+    private static final String QUESTION = "¿Cuánto tarda el envío a Córdoba?";
+
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PromptBudgetProperties properties = new PromptBudgetProperties();
+    private PromptTokenBudgeter budgeter;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxTokens(4000);
+        properties.setHistoryShare(0.25);
+        properties.setMinChunkTokens(20);
+        properties.setMaxHistoryMessageTokens(200);
+        budgeter = new PromptTokenBudgeter(properties, meterRegistry);
+        budgeter.initMetrics();
+    }
+
+    @Test
+    void keepsEverythingWhenItFits() {
+        List<String> context = List.of(text("envíos", 30), text("pagos", 30));
+        List<Map<String, String>> history = List.of(message("user", "Hola"), message("assistant", "¡Hola!"));
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, context, history, 100);
+
+        assertEquals(context, budgeted.context());
+        assertEquals(history, budgeted.history());
+        assertEquals(100 + tokens(QUESTION) + tokens(context.get(0)) + tokens(context.get(1))
+                + tokens("Hola") + tokens("¡Hola!"), budgeted.estimatedTokens());
+    }
+
+    @Test
+    void contextKeepsRankOrderAndTruncatesTheFirstChunkThatDoesNotFit() {
+        properties.setMaxTokens(250);
+        List<String> context = List.of(text("primero", 100), text("segundo", 100), text("tercero", 100));
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, context, List.of(), 0);
+
+        assertEquals(2, budgeted.context().size());
+        assertEquals(context.get(0), budgeted.context().get(0));
+        String truncated = budgeted.context().get(1);
+        assertTrue(truncated.endsWith("…"));
+        assertTrue(context.get(1).startsWith(truncated.substring(0, truncated.length() - 1)));
+        assertTrue(budgeted.estimatedTokens() <= 250, budgeted.estimatedTokens() + " tokens");
+        assertEquals(1.0, trimmed("context", "truncated"));
+        assertEquals(1.0, trimmed("context", "dropped"));
+    }
+
+    @Test
+    void chunkIsDroppedInsteadOfTruncatedBelowMinChunkTokens() {
+        int fixed = 1000 - tokens(QUESTION) - 210;
+        List<String> context = List.of(text("primero", 150), text("segundo", 150));
+        properties.setMaxTokens(1000);
+        properties.setMinChunkTokens(100);
+        properties.setHistoryShare(0.0);
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, context, List.of(), fixed);
+
+        assertEquals(List.of(context.get(0)), budgeted.context());
+        assertEquals(0.0, trimmed("context", "truncated"));
+        assertEquals(1.0, trimmed("context", "dropped"));
+    }
+
+    @Test
+    void historyKeepsMostRecentMessagesThatFit() {
+        properties.setMaxTokens(tokens(QUESTION) + 100);
+        properties.setHistoryShare(1.0);
+        List<Map<String, String>> history = List.of(
+                message("user", text("reciente", 40)),
+                message("assistant", text("anterior", 40)),
+                message("user", text("antiguo", 40)));
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, List.of(), history, 0);
+
+        assertEquals(history.subList(0, 2), budgeted.history());
+        assertEquals(1.0, trimmed("history", "dropped"));
+    }
+
+    @Test
+    void longHistoryMessagesAreTruncatedAndKeepTheirRole() {
+        properties.setMaxHistoryMessageTokens(30);
+        String longMessage = text("largo", 300);
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, List.of(), List.of(message("assistant", longMessage)), 0);
+
+        Map<String, String> kept = budgeted.history().get(0);
+        assertEquals("assistant", kept.get("role"));
+        assertTrue(kept.get("content").endsWith("…"));
+        assertTrue(tokens(kept.get("content")) <= 30, tokens(kept.get("content")) + " tokens");
+    }
+
+    @Test
+    void unusedContextBudgetIsLeftToHistory() {
+        properties.setMaxTokens(tokens(QUESTION) + 200);
+        properties.setHistoryShare(0.1);
+        List<Map<String, String>> history = List.of(message("user", text("historial", 120)));
+
+        Budgeted budgeted = budgeter.fit(null, QUESTION, List.of(), history, 0);
+
+        assertEquals(history, budgeted.history());
+    }
+
+    @Test
+    void tenantOverrideReplacesDefaultMaxTokens() {
+        String clientId = "5b0e0c3e-8d4f-4b8a-9a57-2f6d2b1c9e01";
+        properties.setTenantMaxTokens(Map.of(clientId, 150));
+        List<String> context = List.of(text("uno", 100), text("dos", 100));
+
+        assertEquals(2, budgeter.fit(null, QUESTION, context, List.of(), 0).context().size());
+        Budgeted budgeted = budgeter.fit(clientId, QUESTION, context, List.of(), 0);
+        assertEquals(List.of(context.get(0)), budgeted.context());
+        assertTrue(budgeted.estimatedTokens() <= 150, budgeted.estimatedTokens() + " tokens");
+    }
+
+    @Test
+    void nullContextAndHistoryAreTreatedAsEmpty() {
+        Budgeted budgeted = budgeter.fit(null, QUESTION, null, null, 50);
+
+        assertTrue(budgeted.context().isEmpty());
+        assertTrue(budgeted.history().isEmpty());
+        assertEquals(50 + tokens(QUESTION), budgeted.estimatedTokens());
+    }
+
+    /**
+     * Texto de aproximadamente {@code approxTokens} tokens
+     */
+    private String text(String topic, int approxTokens) {
+        String text = IntStream.range(0, approxTokens)
+                .mapToObj(i -> topic + " " + i)
+                .collect(Collectors.joining(" "));
+        while (tokens(text) > approxTokens) {
+            text = text.substring(0, text.lastIndexOf(' '));
+        }
+        return text;
+    }
+
+    private int tokens(String text) {
+        return tokenCounter.estimate(text);
+    }
+
+    private double trimmed(String part, String action) {
+        return meterRegistry.counter("ai.prompt.budget.trimmed", "part", part, "action", action).count();
+    }
+
+    private static Map<String, String> message(String role, String content) {
+        return Map.of("role", role, "content", content);
+    }
+}
@@ -0,0 +1,154 @@
+package com.relative.chat.bot.ia.application.services;
+
+import com.relative.chat.bot.ia.application.dto.TextChunk;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecursiveDocumentChunkerTest {
+
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+
+    @Test
+    void emptyDocumentProducesNoChunks() {
+        assertTrue(chunk(chunker(100, 10, true), "").isEmpty());
+        assertTrue(chunk(chunker(100, 10, true), "\n\n   \n").isEmpty());
+    }
+
+    @Test
+    void shortDocumentIsASingleChunk() {
+        List<TextChunk> chunks = chunk(chunker(100, 10, true), "Primer párrafo.\n\nSegundo párrafo.");
+
+        assertEquals(1, chunks.size());
+        assertEquals(0, chunks.get(0).index());
+        assertEquals("Primer párrafo.\n\nSegundo párrafo.", chunks.get(0).content());
+        assertNull(chunks.get(0).heading());
+    }
+
+    @Test
+    void chunksStayWithinTokenBudget() {
+        String text = sentences("Párrafo uno", 40) + "\n\n" + sentences("Párrafo dos", 40);
+
+        List<TextChunk> chunks = chunk(chunker(64, 16, false), text);
+
+        assertTrue(chunks.size() > 2);
+        for (int i = 0; i < chunks.size(); i++) {
+            TextChunk chunk = chunks.get(i);
+            assertEquals(i, chunk.index());
+            assertEquals(tokenCounter.estimate(chunk.content()), chunk.tokens());
+            assertTrue(chunk.tokens() <= 64, "chunk " + i + " tiene " + chunk.tokens() + " tokens");
+        }
+    }
+
+    @Test
+    void textWithoutSeparatorsIsHardSplitWithinBudget() {
+        String blob = "x".repeat(5_000);
+
+        List<TextChunk> chunks = chunk(chunker(50, 0, false), blob);
+
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> assertTrue(chunk.tokens() <= 50, chunk.tokens() + " tokens"));
+        assertEquals(blob, chunks.stream().map(TextChunk::content).collect(Collectors.joining()));
+    }
+
+    @Test
+    void consecutiveChunksRepeatTrailingSegmentsAsOverlap() {
+        List<TextChunk> chunks = chunk(chunker(60, 20, false), sentences("Texto", 30));
+
+        assertTrue(chunks.size() > 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1).content();
+            String lastSentence = previous.substring(previous.lastIndexOf("Texto"));
+            assertTrue(chunks.get(i).content().startsWith(lastSentence),
+                    "el chunk " + i + " no empieza con el final del anterior");
+        }
+    }
+
+    @Test
+    void zeroOverlapRepeatsNothing() {
+        String text = sentences("Texto", 30);
+
+        List<TextChunk> chunks = chunk(chunker(60, 0, false), text);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(text, chunks.stream().map(TextChunk::content).collect(Collectors.joining(" ")));
+    }
+
+    @Test
+    void headingIsCarriedIntoEveryChunkOfItsSection() {
+        String text = "# Horarios\n\n" + sentences("Atención", 20) + "\n\n## Pagos\n\nEfectivo o transferencia.";
+
+        List<TextChunk> chunks = chunk(chunker(60, 10, true), text);
+
+        List<TextChunk> schedule = chunks.stream().filter(chunk -> "Horarios".equals(chunk.heading())).toList();
+        assertTrue(schedule.size() > 1);
+        for (TextChunk chunk : schedule) {
+            assertTrue(chunk.content().startsWith("Horarios\n\n"));
+            assertTrue(chunk.tokens() <= 60, chunk.tokens() + " tokens");
+        }
+
+        TextChunk payments = chunks.get(chunks.size() - 1);
+        assertEquals("Pagos", payments.heading());
+        assertEquals("Pagos\n\nEfectivo o transferencia.", payments.content());
+    }
+
+    @Test
+    void headingClosesTheChunkWithoutOverlapIntoTheNextSection() {
+        String text = "# Uno\n\nContenido de la primera sección.\n\n# Dos\n\nContenido de la segunda sección.";
+
+        List<TextChunk> chunks = chunk(chunker(100, 50, true), text);
+
+        assertEquals(List.of(
+                "Uno\n\nContenido de la primera sección.",
+                "Dos\n\nContenido de la segunda sección."), chunks.stream().map(TextChunk::content).toList());
+    }
+
+    @Test
+    void headingsAreTreatedAsTextWhenNotHeadingAware() {
+        List<TextChunk> chunks = chunk(chunker(100, 10, false), "# Título\n\nCuerpo.");
+
+        assertEquals(1, chunks.size());
+        assertNull(chunks.get(0).heading());
+        assertEquals("# Título\n\nCuerpo.", chunks.get(0).content());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalStateException.class, () -> chunker(50, 50, true));
+        assertThrows(IllegalStateException.class, () -> chunker(0, 0, true));
+        assertThrows(IllegalStateException.class, () -> chunker(50, -1, true));
+    }
+
+    private static RecursiveDocumentChunker chunker(int maxTokens, int overlapTokens, boolean headingAware) {
+        RecursiveDocumentChunker chunker = new RecursiveDocumentChunker();
+        ReflectionTestUtils.setField(chunker, "maxTokens", maxTokens);
+        ReflectionTestUtils.setField(chunker, "overlapTokens", overlapTokens);
+        ReflectionTestUtils.setField(chunker, "headingAware", headingAware);
+        chunker.init();
+        return chunker;
+    }
+
+    private static List<TextChunk> chunk(RecursiveDocumentChunker chunker, String text) {
+        try (Stream<TextChunk> chunks = chunker.chunk(new StringReader(text))) {
+            return chunks.toList();
+        }
+    }
+
+    private static String sentences(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> prefix + " oración número " + i + " con algo de contenido adicional.")
+                .collect(Collectors.joining(" "));
+    }
+}
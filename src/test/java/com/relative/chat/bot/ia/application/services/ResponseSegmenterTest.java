@@ -0,0 +1,87 @@
+package com.relative.chat.bot.ia.application.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseSegmenterTest {
+
+    private final List<String> segments = new ArrayList<>();
+
+    @Test
+    void cutsAtSentenceEndOnlyOnceTheFollowingSpaceArrives() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(10, 5, segments::add);
+
+        stream(segmenter, "Tenemos envíos a", " todo el país.");
+        assertTrue(segments.isEmpty());
+
+        stream(segmenter, " El costo", " depende de la zona.");
+        assertEquals(List.of("Tenemos envíos a todo el país."), segments);
+
+        segmenter.flush();
+        assertEquals(List.of("Tenemos envíos a todo el país.", "El costo depende de la zona."), segments);
+        assertEquals(2, segmenter.emittedSegments());
+    }
+
+    @Test
+    void shortSentencesAreGroupedUntilMinChars() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(20, 5, segments::add);
+
+        stream(segmenter, "¡Hola! ", "Sí. ", "Abrimos a las nueve. ", "Te esperamos");
+        segmenter.flush();
+
+        assertEquals(List.of("¡Hola! Sí. Abrimos a las nueve.", "Te esperamos"), segments);
+    }
+
+    @Test
+    void paragraphBreaksAlwaysCut() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(100, 5, segments::add);
+
+        stream(segmenter, "Horarios:\n", "\nLunes a viernes", "\n\n\nSábados");
+        segmenter.flush();
+
+        assertEquals(List.of("Horarios:", "Lunes a viernes", "Sábados"), segments);
+    }
+
+    @Test
+    void doesNotCutInsideUrlsOrDecimals() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(5, 5, segments::add);
+
+        stream(segmenter, "Mirá https://tienda.ejemplo.com/p", "/1.5 hoy", " cuesta 10.5 dólares");
+        segmenter.flush();
+
+        assertEquals(List.of("Mirá https://tienda.ejemplo.com/p/1.5 hoy cuesta 10.5 dólares"), segments);
+    }
+
+    @Test
+    void lastSegmentKeepsTheRestOnceMaxSegmentsIsReached() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(1, 2, segments::add);
+
+        stream(segmenter, "Uno. ", "Dos. ", "Tres. ", "Cuatro.");
+        assertEquals(List.of("Uno."), segments);
+
+        segmenter.flush();
+        assertEquals(List.of("Uno.", "Dos. Tres. Cuatro."), segments);
+    }
+
+    @Test
+    void blankInputEmitsNothing() {
+        ResponseSegmenter segmenter = new ResponseSegmenter(10, 3, segments::add);
+
+        stream(segmenter, null, "", "  \n\n ");
+        segmenter.flush();
+
+        assertTrue(segments.isEmpty());
+        assertEquals(0, segmenter.emittedSegments());
+    }
+
+    private static void stream(ResponseSegmenter segmenter, String... fragments) {
+        for (String fragment : fragments) {
+            segmenter.accept(fragment);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.relative.chat.bot.ia.application.usecases;
+
+import com.relative.chat.bot.ia.application.dto.MessageCommand;
+import com.relative.chat.bot.ia.application.dto.MessageResponse;
+import com.relative.chat.bot.ia.domain.common.UuidId;
+import com.relative.chat.bot.ia.domain.identity.Client;
+import com.relative.chat.bot.ia.domain.knowledge.Kb;
+import com.relative.chat.bot.ia.domain.messaging.ClientPhone;
+import com.relative.chat.bot.ia.domain.messaging.Contact;
+import com.relative.chat.bot.ia.domain.messaging.Conversation;
+import com.relative.chat.bot.ia.domain.messaging.Message;
+import com.relative.chat.bot.ia.domain.ports.identity.ClientRepository;
+import com.relative.chat.bot.ia.domain.ports.messaging.ContactRepository;
+import com.relative.chat.bot.ia.domain.ports.messaging.ConversationRepository;
+import com.relative.chat.bot.ia.domain.ports.messaging.MessageRepository;
+import com.relative.chat.bot.ia.domain.types.Channel;
+import com.relative.chat.bot.ia.domain.types.Direction;
+import com.relative.chat.bot.ia.domain.types.EntityStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conversaciones concurrentes que atiende un pool de conexiones acotado, con la transacción envolviendo
+ * todo el flujo (antes: @Transactional sobre handle) y con las unidades transaccionales cortas actuales
+ *
+ * - Ejecuta el ReceiveWhatsAppMessage real; el pool es un PlatformTransactionManager que toma una de
+ *   POOL_SIZE conexiones por transacción y falla si no la obtiene en CONNECTION_TIMEOUT_MS (como Hikari)
+ * - La IA y el envío al proveedor se simulan con su latencia; cada escritura en la base tarda DB_WRITE_MS
+ * - No corre con la suite normal (no termina en Test): mvn test -Dtest=ReceiveWhatsAppMessageBenchmark
+ */
+class ReceiveWhatsAppMessageBenchmark {
+
+    private static final int POOL_SIZE = 10;
+    private static final long CONNECTION_TIMEOUT_MS = 1_000;
+    private static final long DB_WRITE_MS = 5;
+    private static final long AI_LATENCY_MS = 800;
+    private static final long SEND_LATENCY_MS = 200;
+    private static final int[] CONCURRENT_CONVERSATIONS = {10, 20, 50, 100, 200};
+
+    private final Client client = new Client(UuidId.newId(), "ACME", "Acme", EntityStatus.ACTIVE);
+    private final Kb kb = new Kb(UuidId.newId(), client.id(), "kb", "Preguntas frecuentes");
+
+    @Test
+    void shortTransactionsServeManyMoreConcurrentConversations() throws Exception {
+        System.out.printf("%nPool de %d conexiones, timeout %d ms, IA %d ms, envío %d ms%n",
+                POOL_SIZE, CONNECTION_TIMEOUT_MS, AI_LATENCY_MS, SEND_LATENCY_MS);
+        System.out.printf("%-14s %-26s %-26s%n", "conversaciones", "transacción envolvente", "transacciones cortas");
+
+        for (int conversations : CONCURRENT_CONVERSATIONS) {
+            Result wrapped = run(conversations, true);
+            Result split = run(conversations, false);
+            System.out.printf("%-14d %-26s %-26s%n", conversations, wrapped, split);
+
+            assertEquals(conversations, split.served(), "con transacciones cortas se atienden todas");
+            if (conversations > 2 * POOL_SIZE) {
+                assertTrue(wrapped.served() < conversations, "la transacción envolvente agota el pool");
+            }
+        }
+    }
+
+    /**
+     * @param wrapInTransaction true para reproducir el @Transactional anterior sobre todo el flujo
+     */
+    private Result run(int conversations, boolean wrapInTransaction) throws Exception {
+        ConnectionPool pool = new ConnectionPool(POOL_SIZE, CONNECTION_TIMEOUT_MS);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(pool);
+        ReceiveWhatsAppMessage receive = receiveWhatsAppMessage(transactionTemplate);
+
+        long start = System.nanoTime();
+        List<Future<MessageResponse>> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < conversations; i++) {
+                MessageCommand command = new MessageCommand("ACME", "+5491100000000", "+54911" + (10_000_000 + i),
+                        "Contacto " + i, Channel.WHATSAPP, "¿Hacen envíos?", Instant.now(), "wamid." + i);
+                responses.add(executor.submit(() -> wrapInTransaction
+                        ? transactionTemplate.execute(status -> receive.handle(command))
+                        : receive.handle(command)));
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        int served = 0;
+        for (Future<MessageResponse> response : responses) {
+            try {
+                if (response.get().success()) {
+                    served++;
+                }
+            } catch (ExecutionException e) {
+                // Con la transacción envolvente, el timeout del pool falla antes de entrar a handle
+            }
+        }
+        return new Result(served, conversations - served, elapsedMs);
+    }
+
+    private ReceiveWhatsAppMessage receiveWhatsAppMessage(TransactionTemplate transactionTemplate) {
+        MessageRepository messageRepository = stub(MessageRepository.class, Map.of("save", args -> {
+            sleep(DB_WRITE_MS);
+            return null;
+        }));
+        ClientRepository clientRepository = stub(ClientRepository.class,
+                Map.of("findByCode", args -> Optional.of(client)));
+
+        GetOrCreateContact getOrCreateContact = new GetOrCreateContact(null) {
+            @Override
+            public Contact handle(UuidId<Client> clientId, String phoneNumber, String displayName, Channel channel) {
+                sleep(DB_WRITE_MS);
+                return Contact.create(clientId, displayName, null, null, null, null);
+            }
+        };
+        GetOrCreateConversation getOrCreateConversation = new GetOrCreateConversation(null) {
+            @Override
+            public Conversation handle(UuidId<Client> clientId, UuidId<Contact> contactId, UuidId<ClientPhone> phoneId,
+                                       Channel channel, String title) {
+                sleep(DB_WRITE_MS);
+                return new Conversation(UuidId.newId(), clientId, contactId, phoneId, channel, title, Instant.now());
+            }
+        };
+        GetKnowledgeBase getKnowledgeBase = new GetKnowledgeBase(null) {
+            @Override
+            public List<Kb> listByClient(UuidId<Client> clientId) {
+                return List.of(kb);
+            }
+        };
+        ProcessMessageWithAI processMessageWithAI = new ProcessMessageWithAI(null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null) {
+            @Override
+            public String handle(String userMessage, UuidId<Conversation> conversationId, String namespace,
+                                 UuidId<Client> clientId, UuidId<Contact> contactId, Consumer<String> onSegment) {
+                sleep(AI_LATENCY_MS);
+                return "Sí, enviamos a todo el país.";
+            }
+        };
+        // Como el SendMessage real: llamada HTTP fuera de transacción y registro del mensaje en una unidad corta
+        SendMessage sendMessage = new SendMessage(null, null, null, null, transactionTemplate) {
+            @Override
+            public Message handle(UuidId<Client> clientId, UuidId<Conversation> conversationId, UuidId<Contact> contactId,
+                                  UuidId<ClientPhone> phoneId, Channel channel, String content,
+                                  String fromNumber, String toNumber) {
+                sleep(SEND_LATENCY_MS);
+                Message message = new Message(UuidId.newId(), clientId, conversationId, contactId, phoneId, channel,
+                        Direction.OUT, content, Instant.now());
+                message.markSent(Instant.now(), "wamid.out");
+                transactionTemplate.executeWithoutResult(status -> messageRepository.save(message));
+                return message;
+            }
+        };
+
+        ReceiveWhatsAppMessage receive = new ReceiveWhatsAppMessage(
+                clientRepository,
+                messageRepository,
+                stub(ConversationRepository.class, Map.of()),
+                stub(ContactRepository.class, Map.of()),
+                getOrCreateContact,
+                getOrCreateConversation,
+                processMessageWithAI,
+                sendMessage,
+                getKnowledgeBase,
+                transactionTemplate,
+                new SimpleMeterRegistry());
+        receive.initMetrics();
+        return receive;
+    }
+
+    private record Result(int served, int failed, long elapsedMs) {
+        @Override
+        public String toString() {
+            return "%d ok, %d error, %d ms".formatted(served, failed, elapsedMs);
+        }
+    }
+
+    /**
+     * Pool de conexiones simulado: cada transacción nueva toma una conexión hasta su commit o rollback;
+     * las transacciones anidadas (PROPAGATION_REQUIRED) participan de la existente
+     */
+    private static final class ConnectionPool implements PlatformTransactionManager {
+
+        private final Semaphore connections;
+        private final long timeoutMs;
+        private final ThreadLocal<Integer> depth = ThreadLocal.withInitial(() -> 0);
+
+        private ConnectionPool(int size, long timeoutMs) {
+            this.connections = new Semaphore(size, true);
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            boolean newTransaction = depth.get() == 0;
+            if (newTransaction) {
+                try {
+                    if (!connections.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                        throw new CannotCreateTransactionException(
+                                "Connection is not available, request timed out after " + timeoutMs + "ms");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CannotCreateTransactionException("Interrumpido esperando conexión");
+                }
+            }
+            depth.set(depth.get() + 1);
+            return new SimpleTransactionStatus(newTransaction);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            release(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            release(status);
+        }
+
+        private void release(TransactionStatus status) {
+            depth.set(depth.get() - 1);
+            if (status.isNewTransaction()) {
+                connections.release();
+            }
+        }
+    }
+
+    /**
+     * Implementación mínima de un puerto: responde los métodos indicados y valores vacíos para el resto
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> port, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(port.getClassLoader(), new Class<?>[]{port}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            Class<?> type = method.getReturnType();
+            if (type == Optional.class) {
+                return Optional.empty();
+            }
+            if (type == List.class) {
+                return List.of();
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class || type == long.class) {
+                return type == int.class ? 0 : 0L;
+            }
+            if (method.getName().equals("toString")) {
+                return port.getSimpleName() + "Stub";
+            }
+            return null;
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.relative.chat.bot.ia.domain.vo;
+
+import com.relative.chat.bot.ia.domain.common.DomainException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChecksumSha256Test {
+
+    @Test
+    void hashesUtf8TextAsLowercaseHex() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                ChecksumSha256.of("abc").hex());
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                ChecksumSha256.of("").hex());
+    }
+
+    @Test
+    void sameContentAlwaysHashesTheSame() {
+        String chunk = "Horarios\n\nAtendemos de lunes a viernes de 9 a 18 h.";
+
+        assertEquals(ChecksumSha256.of(chunk), ChecksumSha256.of(new String(chunk.toCharArray())));
+    }
+
+    @Test
+    void anyChangeInContentChangesTheHash() {
+        assertNotEquals(ChecksumSha256.of("Atención de 9 a 18 h."), ChecksumSha256.of("Atención de 9 a 19 h."));
+        assertNotEquals(ChecksumSha256.of("acción"), ChecksumSha256.of("accion"));
+        assertNotEquals(ChecksumSha256.of("texto"), ChecksumSha256.of("texto "));
+    }
+
+    @Test
+    void rejectsValuesThatAreNotSha256Hex() {
+        assertThrows(DomainException.class, () -> new ChecksumSha256("abc"));
+        assertThrows(DomainException.class, () -> new ChecksumSha256("z".repeat(64)));
+        assertDoesNotThrow(() -> new ChecksumSha256("AB".repeat(32)));
+    }
+}
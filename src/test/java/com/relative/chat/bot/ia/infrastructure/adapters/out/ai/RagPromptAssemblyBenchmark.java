@@ -0,0 +1,115 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai;
+
+import com.relative.chat.bot.ia.support.MicroBenchmark;
+import com.relative.chat.bot.ia.support.MicroBenchmark.Measurement;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tiempo y memoria de armar el Prompt del flujo RAG: String.format + Collectors.joining + PromptTemplate("{msg}")
+ * (antes) frente a {@link RagPromptBuilder} + Prompt con el mensaje de sistema constante
+ *
+ * - Chunks de CHUNK_LENGTH caracteres e historial de MAX_HISTORY_MESSAGES mensajes; ambos caminos escriben
+ *   solo los MAX_CONTEXT_DOCUMENTS primeros chunks, así que 20 y 50 miden el costo de descartar el resto
+ * - El camino anterior además registraba el prompt completo a nivel info; ese costo depende del appender
+ *   y no se incluye
+ * - No corre con la suite normal (no termina en Test): mvn test -Dtest=RagPromptAssemblyBenchmark
+ */
+class RagPromptAssemblyBenchmark {
+
+    private static final int CHUNK_LENGTH = 1_500;
+    private static final int WARMUP = 5_000;
+    private static final int ITERATIONS = 20_000;
+
+    private static final SystemMessage SYSTEM_MESSAGE = new SystemMessage("Eres un asistente RAG."
+            + RagPromptBuilder.RESPONSE_INSTRUCTIONS);
+
+    @Test
+    void builderIsFasterThanFormatAndTemplateRendering() {
+        List<Map<String, String>> history = history();
+        String question = "¿Dónde queda la sede de Cutuglagua y cuáles son los horarios de atención?";
+
+        System.out.printf("%n%-7s %-34s %-34s%n", "chunks", "format + PromptTemplate (antes)", "RagPromptBuilder");
+        for (int chunks : new int[]{5, 20, 50}) {
+            List<String> context = context(chunks);
+
+            Measurement legacy = MicroBenchmark.measure(WARMUP, ITERATIONS,
+                    () -> legacyPrompt(question, context, history));
+            Measurement builder = MicroBenchmark.measure(WARMUP, ITERATIONS,
+                    () -> new Prompt(List.of(SYSTEM_MESSAGE,
+                            new UserMessage(RagPromptBuilder.build(question, context, history)))));
+            System.out.printf("%-7d %-34s %-34s%n", chunks, legacy, builder);
+
+            assertTrue(builder.nanosPerOp() < legacy.nanosPerOp(),
+                    "RagPromptBuilder debería ser más rápido que la plantilla");
+            assertTrue(builder.bytesPerOp() < legacy.bytesPerOp(),
+                    "RagPromptBuilder debería asignar menos que la plantilla");
+        }
+    }
+
+    /**
+     * Camino anterior de OpenAIServiceAdapter.buildPrompt
+     */
+    private static Prompt legacyPrompt(String userMessage, List<String> context, List<Map<String, String>> history) {
+        String contextStr = context.stream()
+                .limit(5)
+                .map(doc -> "- " + doc)
+                .collect(Collectors.joining("\n"));
+        String historyStr = history.stream()
+                .limit(10)
+                .map(entry -> {
+                    String role = entry.getOrDefault("role", "UNKNOWN");
+                    String content = entry.getOrDefault("content", "");
+                    String roleLabel = role.equals("IN") ? "Usuario" : "Asistente";
+                    return String.format("%s: %s", roleLabel, content);
+                })
+                .collect(Collectors.joining("\n"));
+
+        String enhancedPrompt = String.format("""
+            <CONTEXT>
+            %s
+            </CONTEXT>
+
+            <HISTORIAL>
+            %s
+            </HISTORIAL>
+
+            <PREGUNTA>
+            %s
+            </PREGUNTA>
+
+            <INSTRUCCIONES_DE_RESPUESTA>
+            - Primero, verifica si la respuesta está explícitamente cubierta por el CONTEXTO.
+            - Segundo, siempre se gentil y amable
+            </INSTRUCCIONES_DE_RESPUESTA>
+            """, contextStr, historyStr, userMessage);
+        return new PromptTemplate("{msg}").create(Map.of("msg", enhancedPrompt));
+    }
+
+    private static List<String> context(int chunks) {
+        return IntStream.range(0, chunks)
+                .mapToObj(i -> ("Entrada " + i + ": horarios, sedes y medios de pago de la sede número " + i + ". ")
+                        .repeat(CHUNK_LENGTH / 60 + 1)
+                        .substring(0, CHUNK_LENGTH))
+                .toList();
+    }
+
+    private static List<Map<String, String>> history() {
+        return IntStream.range(0, RagPromptBuilder.MAX_HISTORY_MESSAGES)
+                .mapToObj(i -> Map.of(
+                        "role", i % 2 == 0 ? "IN" : "OUT",
+                        "content", i % 2 == 0 ? "Consulta número " + i + " sobre agendamiento de turnos"
+                                : "Puede agendar su turno en línea desde la página de agendamiento."))
+                .toList();
+    }
+}
@@ -0,0 +1,69 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RagPromptBuilderTest {
+
+    @Test
+    void sameChunksInAnyRankOrderProduceTheSameContextBlock() {
+        String first = RagPromptBuilder.build("¿Hacen envíos?", List.of("Envíos a todo el país.", "Aceptamos tarjetas."), List.of());
+        String second = RagPromptBuilder.build("¿Cómo pago?", List.of("Aceptamos tarjetas.", "Envíos a todo el país."), List.of());
+
+        assertEquals(contextBlock(first), contextBlock(second));
+        assertEquals("[1] Aceptamos tarjetas.\n[2] Envíos a todo el país.", contextBlock(first));
+    }
+
+    @Test
+    void relevanceListsChunkNumbersFromMostToLeastRelevant() {
+        String prompt = RagPromptBuilder.build("¿Cómo pago?",
+                List.of("Cuotas sin interés.", "Aceptamos tarjetas.", "Envíos a todo el país."), List.of());
+
+        assertEquals("[1] Aceptamos tarjetas.\n[2] Cuotas sin interés.\n[3] Envíos a todo el país.", contextBlock(prompt));
+        assertEquals("[2], [1], [3]", between(prompt, "<RELEVANCIA>\n", "\n</RELEVANCIA>"));
+    }
+
+    @Test
+    void onlyTheTopChunksAreIncluded() {
+        List<String> context = List.of("f", "e", "d", "c", "b", "a");
+
+        String prompt = RagPromptBuilder.build("pregunta", context, List.of());
+
+        assertEquals("[1] b\n[2] c\n[3] d\n[4] e\n[5] f", contextBlock(prompt));
+        assertEquals("[5], [4], [3], [2], [1]", between(prompt, "<RELEVANCIA>\n", "\n</RELEVANCIA>"));
+    }
+
+    @Test
+    void emptyContextAndHistoryUsePlaceholders() {
+        String prompt = RagPromptBuilder.build("Hola", List.of(), null);
+
+        assertEquals("No hay contexto disponible.", contextBlock(prompt));
+        assertEquals("", between(prompt, "<RELEVANCIA>\n", "\n</RELEVANCIA>"));
+        assertEquals("Esta es una nueva conversación.", between(prompt, "<HISTORIAL>\n", "\n</HISTORIAL>"));
+        assertTrue(prompt.endsWith("<PREGUNTA>\nHola\n</PREGUNTA>\n"));
+    }
+
+    @Test
+    void historyKeepsItsOrderWithRoleLabels() {
+        String prompt = RagPromptBuilder.build("¿Y el envío?", List.of("Envíos gratis."), List.of(
+                Map.of("role", "IN", "content", "Hola"),
+                Map.of("role", "OUT", "content", "¡Hola! ¿En qué te ayudo?")));
+
+        assertEquals("Usuario: Hola\nAsistente: ¡Hola! ¿En qué te ayudo?",
+                between(prompt, "<HISTORIAL>\n", "\n</HISTORIAL>"));
+    }
+
+    private static String contextBlock(String prompt) {
+        return between(prompt, "<CONTEXT>\n", "\n</CONTEXT>");
+    }
+
+    private static String between(String text, String open, String close) {
+        int start = text.indexOf(open) + open.length();
+        return text.substring(start, text.indexOf(close, start));
+    }
+}
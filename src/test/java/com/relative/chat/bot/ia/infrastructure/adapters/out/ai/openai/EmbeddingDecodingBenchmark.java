@@ -0,0 +1,148 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai.OpenAIEmbeddingsAdapter.EmbeddingData;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai.OpenAIEmbeddingsAdapter.EmbeddingsResponse;
+import com.relative.chat.bot.ia.infrastructure.adapters.out.ai.openai.OpenAIEmbeddingsAdapter.Usage;
+import com.relative.chat.bot.ia.support.MicroBenchmark;
+import com.relative.chat.bot.ia.support.MicroBenchmark.Measurement;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costo de leer la respuesta de /v1/embeddings hasta tener los float[]: encoding_format=float con
+ * List&lt;Double&gt; más la copia de convertToFloatArray (antes) frente a {@link EmbeddingVectorDeserializer}
+ * con encoding_format=base64 y con encoding_format=float
+ *
+ * - Cada operación deserializa con Jackson una respuesta de BATCH_SIZE embeddings; se reporta por vector
+ * - Debajo de cada fila se imprime el tamaño del cuerpo HTTP por vector; la red no se mide
+ * - No corre con la suite normal (no termina en Test): mvn test -Dtest=EmbeddingDecodingBenchmark
+ */
+class EmbeddingDecodingBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Forma anterior de EmbeddingData
+     */
+    record LegacyEmbeddingData(String object, List<Double> embedding, int index) {}
+
+    record LegacyEmbeddingsResponse(String object, List<LegacyEmbeddingData> data, String model, Usage usage) {}
+
+    @Test
+    void base64DecodingAvoidsBoxingAndTheExtraCopy() {
+        System.out.printf("%n%-6s %-34s %-34s %-34s%n", "dims",
+                "float + List<Double> (antes)", "float + deserializer", "base64 + deserializer");
+        for (int dimensions : new int[]{1536, 3072}) {
+            float[][] vectors = randomVectors(dimensions);
+            byte[] floatBody = responseBody(vectors, false);
+            byte[] base64Body = responseBody(vectors, true);
+
+            Measurement legacy = perVector(() -> legacy(floatBody));
+            Measurement floats = perVector(() -> current(floatBody));
+            Measurement base64 = perVector(() -> current(base64Body));
+            System.out.printf("%-6d %-34s %-34s %-34s%n", dimensions, legacy, floats, base64);
+            System.out.printf("%-6s %-34s %-34s %-34s%n", "",
+                    bodySize(floatBody), bodySize(floatBody), bodySize(base64Body));
+
+            assertArrayEquals(vectors[BATCH_SIZE - 1], current(base64Body)[BATCH_SIZE - 1]);
+            assertArrayEquals(vectors[BATCH_SIZE - 1], current(floatBody)[BATCH_SIZE - 1]);
+            assertTrue(base64.bytesPerOp() < legacy.bytesPerOp() / 2,
+                    "base64 debería asignar menos de la mitad que List<Double>");
+            assertTrue(floats.bytesPerOp() < legacy.bytesPerOp(),
+                    "con float el deserializador también debería asignar menos que List<Double>");
+        }
+    }
+
+    /**
+     * Camino anterior: EmbeddingData con List&lt;Double&gt; y convertToFloatArray
+     */
+    private float[][] legacy(byte[] body) {
+        LegacyEmbeddingsResponse response = read(body, LegacyEmbeddingsResponse.class);
+        float[][] vectors = new float[response.data().size()][];
+        for (int v = 0; v < vectors.length; v++) {
+            List<Double> doubleList = response.data().get(v).embedding();
+            float[] floatArray = new float[doubleList.size()];
+            for (int i = 0; i < doubleList.size(); i++) {
+                floatArray[i] = doubleList.get(i).floatValue();
+            }
+            vectors[v] = floatArray;
+        }
+        return vectors;
+    }
+
+    private float[][] current(byte[] body) {
+        EmbeddingsResponse response = read(body, EmbeddingsResponse.class);
+        return response.data().stream().map(EmbeddingData::embedding).toArray(float[][]::new);
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Measurement perVector(Supplier<float[][]> operation) {
+        Measurement batch = MicroBenchmark.measure(WARMUP, ITERATIONS, operation);
+        return new Measurement(batch.nanosPerOp() / BATCH_SIZE, batch.bytesPerOp() / BATCH_SIZE);
+    }
+
+    private static String bodySize(byte[] body) {
+        return "%,d B de respuesta".formatted(body.length / BATCH_SIZE);
+    }
+
+    /**
+     * Respuesta con el formato de OpenAI; base64 lleva float32 little-endian
+     */
+    private static byte[] responseBody(float[][] vectors, boolean base64) {
+        StringBuilder json = new StringBuilder("{\"object\":\"list\",\"data\":[");
+        for (int v = 0; v < vectors.length; v++) {
+            if (v > 0) json.append(',');
+            json.append("{\"object\":\"embedding\",\"index\":").append(v).append(",\"embedding\":");
+            if (base64) {
+                ByteBuffer bytes = ByteBuffer.allocate(vectors[v].length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.asFloatBuffer().put(vectors[v]);
+                json.append('"').append(Base64.getEncoder().encodeToString(bytes.array())).append('"');
+            } else {
+                json.append('[');
+                for (int i = 0; i < vectors[v].length; i++) {
+                    if (i > 0) json.append(',');
+                    json.append(vectors[v][i]);
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+        json.append("],\"model\":\"text-embedding-3-large\",\"usage\":{\"prompt_tokens\":8,\"total_tokens\":8}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static float[][] randomVectors(int dimensions) {
+        Random random = new Random(42);
+        float[][] vectors = new float[BATCH_SIZE][dimensions];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = random.nextFloat() * 0.2f - 0.1f;
+            }
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,93 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.vector;
+
+import com.relative.chat.bot.ia.support.MicroBenchmark;
+import com.relative.chat.bot.ia.support.MicroBenchmark.Measurement;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costo en el cliente de enviar un embedding como parámetro: literal de texto "[0.1,0.2,...]" con
+ * CAST(? AS vector) (antes) frente a arreglo float4 vinculado con {@link PgVectorStoreAdapter#bindVector}
+ *
+ * - Texto: el StringBuilder del literal más su codificación UTF-8, que es lo que pgjdbc envía con setString
+ * - float4[]: la representación binaria que pgjdbc genera para el arreglo de createArrayOf("float4", float[])
+ *   con binaryTransfer; se invoca por reflexión su codificador interno (ArrayEncoding), sin conexión
+ * - La latencia del lado de Postgres (parseo del literal frente al cast real[] -> vector) no se mide aquí;
+ *   en producción se sigue con ai.pipeline.stage{stage=vector_query} y vector.upsert
+ * - No corre con la suite normal (no termina en Test): mvn test -Dtest=PgVectorBindingBenchmark
+ */
+class PgVectorBindingBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    void float4ArrayAllocatesAFractionOfTheTextLiteral() throws Exception {
+        System.out.printf("%n%-6s %-34s %-34s%n", "dims", "literal de texto", "float4[] binario");
+        for (int dimensions : new int[]{1536, 3072}) {
+            float[] vector = randomVector(dimensions);
+            Supplier<byte[]> binary = float4Encoder(vector);
+
+            Measurement text = MicroBenchmark.measure(WARMUP, ITERATIONS, () -> textLiteral(vector));
+            Measurement array = MicroBenchmark.measure(WARMUP, ITERATIONS, binary);
+            System.out.printf("%-6d %-34s %-34s%n", dimensions, text, array);
+
+            assertTrue(array.bytesPerOp() < text.bytesPerOp() / 2,
+                    "float4[] debería asignar menos de la mitad que el literal de texto");
+        }
+    }
+
+    /**
+     * Camino anterior: vectorToString + bytes UTF-8 del parámetro de texto
+     */
+    private static byte[] textLiteral(float[] vector) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(",");
+            sb.append(vector[i]);
+        }
+        sb.append("]");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Codificación binaria que pgjdbc aplica al arreglo float4 creado por bindVector
+     */
+    private static Supplier<byte[]> float4Encoder(float[] vector) throws Exception {
+        Class<?> arrayEncoding = Class.forName("org.postgresql.jdbc.ArrayEncoding");
+        Method getEncoder = arrayEncoding.getDeclaredMethod("getArrayEncoder", Object.class);
+        getEncoder.setAccessible(true);
+        Object encoder = getEncoder.invoke(null, (Object) vector);
+
+        Class<?> encoderType = Class.forName("org.postgresql.jdbc.ArrayEncoding$ArrayEncoder");
+        Method oid = encoderType.getMethod("getDefaultArrayTypeOid");
+        Method toBinary = encoderType.getMethod("toBinaryRepresentation",
+                Class.forName("org.postgresql.core.BaseConnection"), Object.class, int.class);
+        oid.setAccessible(true);
+        toBinary.setAccessible(true);
+        int arrayOid = (int) oid.invoke(encoder);
+
+        return () -> {
+            try {
+                return (byte[]) toBinary.invoke(encoder, null, vector, arrayOid);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static float[] randomVector(int dimensions) {
+        Random random = new Random(42);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+}
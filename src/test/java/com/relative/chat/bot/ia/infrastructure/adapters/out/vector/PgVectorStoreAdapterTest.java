@@ -0,0 +1,103 @@
+package com.relative.chat.bot.ia.infrastructure.adapters.out.vector;
+
+import com.relative.chat.bot.ia.application.ports.out.VectorStore.QueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgVectorStoreAdapterTest {
+
+    private static final double DELTA = 1e-12;
+
+    @Test
+    void fuseScoresByReciprocalRank() {
+        List<QueryResult> fused = PgVectorStoreAdapter.fuse(
+                List.of(result("a", 0.9), result("b", 0.8)),
+                List.of(),
+                60, 10);
+
+        assertEquals(List.of("a", "b"), ids(fused));
+        assertEquals(1.0 / 61, fused.get(0).score(), DELTA);
+        assertEquals(1.0 / 62, fused.get(1).score(), DELTA);
+    }
+
+    @Test
+    void fuseRanksChunksFoundByBothSearchesFirst() {
+        List<QueryResult> fused = PgVectorStoreAdapter.fuse(
+                List.of(result("a", 0.95), result("b", 0.90), result("c", 0.85)),
+                List.of(result("x", 0.70), result("c", 0.60)),
+                60, 10);
+
+        assertEquals("c", fused.get(0).id());
+        assertEquals(1.0 / 63 + 1.0 / 62, fused.get(0).score(), DELTA);
+        assertEquals(List.of("c", "a", "x", "b"), ids(fused));
+    }
+
+    @Test
+    void fuseIgnoresRawScoresAndOnlyUsesPositions() {
+        List<QueryResult> fused = PgVectorStoreAdapter.fuse(
+                List.of(result("a", 0.10)),
+                List.of(result("b", 0.99)),
+                60, 10);
+
+        assertEquals(fused.get(0).score(), fused.get(1).score(), DELTA);
+        // Empate: se conserva el orden de la búsqueda semántica
+        assertEquals(List.of("a", "b"), ids(fused));
+    }
+
+    @Test
+    void kBalancesAgreementAgainstTopRank() {
+        List<QueryResult> semantic = List.of(result("a", 0.9), result("x", 0.8), result("b", 0.7));
+        List<QueryResult> lexical = List.of(result("c", 0.9), result("y", 0.8), result("b", 0.7));
+
+        assertEquals("b", PgVectorStoreAdapter.fuse(semantic, lexical, 60, 10).get(0).id());
+        assertEquals("a", PgVectorStoreAdapter.fuse(semantic, lexical, 0, 10).get(0).id());
+    }
+
+    @Test
+    void fuseKeepsOnlyTopK() {
+        List<QueryResult> fused = PgVectorStoreAdapter.fuse(
+                List.of(result("a", 0.9), result("b", 0.8), result("c", 0.7)),
+                List.of(result("d", 0.9), result("e", 0.8)),
+                60, 2);
+
+        assertEquals(2, fused.size());
+        assertEquals(List.of("a", "d"), ids(fused));
+    }
+
+    @Test
+    void fuseKeepsEachSearchScoreInPayload() {
+        List<QueryResult> fused = PgVectorStoreAdapter.fuse(
+                List.of(new QueryResult("a", 0.9, Map.of("content", "texto"))),
+                List.of(result("a", 0.4), result("b", 0.3)),
+                60, 10);
+
+        Map<String, Object> both = fused.get(0).payload();
+        assertEquals("texto", both.get("content"));
+        assertEquals(0.9, both.get("vector_score"));
+        assertEquals(0.4, both.get("lexical_score"));
+        assertEquals(fused.get(0).score(), both.get("rrf_score"));
+
+        Map<String, Object> lexicalOnly = fused.get(1).payload();
+        assertFalse(lexicalOnly.containsKey("vector_score"));
+        assertEquals(0.3, lexicalOnly.get("lexical_score"));
+    }
+
+    @Test
+    void fuseOfEmptyListsIsEmpty() {
+        assertTrue(PgVectorStoreAdapter.fuse(List.of(), List.of(), 60, 10).isEmpty());
+    }
+
+    private static QueryResult result(String id, double score) {
+        return new QueryResult(id, score, Map.of());
+    }
+
+    private static List<String> ids(List<QueryResult> results) {
+        return results.stream().map(QueryResult::id).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.relative.chat.bot.ia.support;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Medición simple de latencia y memoria asignada por operación para los benchmarks de src/test
+ *
+ * - Calienta el JIT con {@code warmup} ejecuciones antes de medir
+ * - La memoria asignada se toma del contador por hilo de HotSpot (com.sun.management.ThreadMXBean),
+ *   por lo que incluye toda la basura generada por la operación aunque el GC la recoja
+ * - El resultado de cada operación se consume para que el JIT no elimine el trabajo
+ */
+public final class MicroBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile int sink;
+
+    /**
+     * @param nanosPerOp Latencia media por operación
+     * @param bytesPerOp Memoria asignada en el heap por operación
+     */
+    public record Measurement(double nanosPerOp, double bytesPerOp) {
+
+        @Override
+        public String toString() {
+            return "%,10.1f µs/op %,12.0f B/op".formatted(nanosPerOp / 1_000, bytesPerOp);
+        }
+    }
+
+    private MicroBenchmark() {
+    }
+
+    public static Measurement measure(int warmup, int iterations, Supplier<?> operation) {
+        for (int i = 0; i < warmup; i++) {
+            consume(operation.get());
+        }
+        long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            consume(operation.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+        return new Measurement((double) elapsed / iterations, (double) allocated / iterations);
+    }
+
+    private static void consume(Object result) {
+        sink += System.identityHashCode(result);
+    }
+}